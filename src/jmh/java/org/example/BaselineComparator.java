@@ -0,0 +1,278 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result (-rf json) against a stored baseline and lists
+ * every benchmark whose throughput dropped, or whose allocation per
+ * operation (gc profiler) grew, by more than the threshold. Exits with 1 if
+ * there is any regression.
+ * <pre>
+ * mvn -Pjmh compile exec:exec -Djmh.main=org.example.BaselineComparator \
+ *     -Djmh.args="src/jmh/baseline/pipeline.json target/pipeline.json [threshold]"
+ * </pre>
+ * The threshold is a fraction and defaults to 0.10.
+ */
+public final class BaselineComparator {
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private BaselineComparator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparator <baseline.json> <result.json> [threshold]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        Map<String, Map<String, Object>> baseline = load(Path.of(args[0]));
+        Map<String, Map<String, Object>> current = load(Path.of(args[1]));
+        int regressions = 0;
+        for (Map.Entry<String, Map<String, Object>> entry : current.entrySet()) {
+            Map<String, Object> before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.println("NEW        " + entry.getKey());
+                continue;
+            }
+            double oldScore = score(before);
+            double newScore = score(entry.getValue());
+            double change = (newScore - oldScore) / oldScore;
+            boolean slower = lowerIsBetter(entry.getValue()) ? change > threshold : change < -threshold;
+            String line = String.format("%-10s %s %+.1f%%", slower ? "SLOWER" : "OK", entry.getKey(), change * 100);
+            Double oldAllocation = allocation(before);
+            Double newAllocation = allocation(entry.getValue());
+            boolean allocates = false;
+            if (oldAllocation != null && newAllocation != null) {
+                double growth = oldAllocation == 0 ? (newAllocation > 0 ? 1 : 0)
+                        : (newAllocation - oldAllocation) / oldAllocation;
+                allocates = growth > threshold;
+                line += String.format(", alloc %.0f -> %.0f B/op", oldAllocation, newAllocation);
+            }
+            if (allocates && !slower) {
+                line = "ALLOCATES" + line.substring("ALLOCATES".length());
+            }
+            if (slower || allocates) {
+                regressions++;
+            }
+            System.out.println(line);
+        }
+        System.out.println(regressions + " regression(s) over " + Math.round(threshold * 100) + "%");
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    // Results keyed by benchmark name plus its parameters
+    @SuppressWarnings("unchecked")
+    static Map<String, Map<String, Object>> load(Path path) throws IOException {
+        Object parsed = new JsonParser(new String(Files.readAllBytes(path), StandardCharsets.UTF_8)).parse();
+        Map<String, Map<String, Object>> results = new LinkedHashMap<>();
+        for (Object element : (List<Object>) parsed) {
+            Map<String, Object> result = (Map<String, Object>) element;
+            StringBuilder key = new StringBuilder((String) result.get("benchmark"));
+            Object params = result.get("params");
+            if (params != null) {
+                new TreeMap<>((Map<String, Object>) params)
+                        .forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            }
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static double score(Map<String, Object> result) {
+        return ((Number) ((Map<String, Object>) result.get("primaryMetric")).get("score")).doubleValue();
+    }
+
+    private static boolean lowerIsBetter(Map<String, Object> result) {
+        return !"thrpt".equals(result.get("mode"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Double allocation(Map<String, Object> result) {
+        Map<String, Object> secondary = (Map<String, Object>) result.get("secondaryMetrics");
+        if (secondary == null || !secondary.containsKey(ALLOCATION)) {
+            return null;
+        }
+        return ((Number) ((Map<String, Object>) secondary.get(ALLOCATION)).get("score")).doubleValue();
+    }
+
+    // Just enough JSON for the JMH result format
+    static final class JsonParser {
+        private final String text;
+        private int pos;
+
+        JsonParser(String text) {
+            this.text = text;
+        }
+
+        Object parse() {
+            Object value = value();
+            skipWhitespace();
+            if (pos != text.length()) {
+                throw error();
+            }
+            return value;
+        }
+
+        private Object value() {
+            skipWhitespace();
+            if (pos >= text.length()) {
+                throw error();
+            }
+            char c = text.charAt(pos);
+            switch (c) {
+                case '{':
+                    return object();
+                case '[':
+                    return array();
+                case '"':
+                    return string();
+                default:
+                    if (text.startsWith("true", pos)) {
+                        pos += 4;
+                        return Boolean.TRUE;
+                    }
+                    if (text.startsWith("false", pos)) {
+                        pos += 5;
+                        return Boolean.FALSE;
+                    }
+                    if (text.startsWith("null", pos)) {
+                        pos += 4;
+                        return null;
+                    }
+                    return number();
+            }
+        }
+
+        private Map<String, Object> object() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return map;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = string();
+                skipWhitespace();
+                expect(':');
+                map.put(key, value());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                    continue;
+                }
+                expect('}');
+                return map;
+            }
+        }
+
+        private List<Object> array() {
+            List<Object> list = new ArrayList<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return list;
+            }
+            while (true) {
+                list.add(value());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                    continue;
+                }
+                expect(']');
+                return list;
+            }
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default:
+                        sb.append(escaped);
+                        break;
+                }
+            }
+        }
+
+        private Object number() {
+            int start = pos;
+            while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+                pos++;
+            }
+            if (start == pos) {
+                // JMH writes NaN and Infinity unquoted for missing scores
+                for (String word : new String[]{"NaN", "Infinity", "-Infinity"}) {
+                    if (text.startsWith(word, pos)) {
+                        pos += word.length();
+                        return Double.parseDouble(word);
+                    }
+                }
+                throw error();
+            }
+            return Double.parseDouble(text.substring(start, pos));
+        }
+
+        private char peek() {
+            return pos < text.length() ? text.charAt(pos) : 0;
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error();
+            }
+            pos++;
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error() {
+            return new IllegalArgumentException("Invalid JSON at offset " + pos);
+        }
+    }
+}
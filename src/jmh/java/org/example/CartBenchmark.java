@@ -0,0 +1,71 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CartBenchmark {
+
+    @Param({"20", "200", "2000"})
+    public int lines;
+
+    private Product[] products;
+    private Customer customer;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        customer = new RegularCustomer("C001", "John", "john@example.com", "1 Street");
+        products = new Product[lines];
+        for (int i = 0; i < lines; i++) {
+            products[i] = new Fashion("P" + i, "Item" + i, 10.0, 500, "M");
+        }
+    }
+
+    @Benchmark
+    public Order indexedCart() {
+        Order order = new OnlineOrder("O1", "C001", customer);
+        order.setCartLimit(Integer.MAX_VALUE);
+        // Every product twice: one new line and one merge per product
+        for (int round = 0; round < 2; round++) {
+            for (Product product : products) {
+                order.addToCart(product, 1);
+            }
+        }
+        return order;
+    }
+
+    @Benchmark
+    public ArrayList<CartLine> scanningCart() {
+        // The cart logic Order.addToCart had before: sum the cart, then scan it for the item
+        ArrayList<CartLine> cart = new ArrayList<>();
+        for (int round = 0; round < 2; round++) {
+            for (Product product : products) {
+                int totalItemsInCart = cart.stream().mapToInt(CartLine::getQuantity).sum();
+                if (totalItemsInCart + 1 > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("CART_LIMIT_EXCEEDED");
+                }
+                product.setQuantity(product.getQuantity() - 1);
+                CartLine cartLine = null;
+                for (CartLine line : cart) {
+                    if (line.getItemId().equals(product.getItemId())) {
+                        cartLine = line;
+                        break;
+                    }
+                }
+                if (cartLine != null) {
+                    cartLine.setQuantity(cartLine.getQuantity() + 1);
+                } else {
+                    cart.add(new CartLine(product, product.getItemId(), product.getPrice(), 1));
+                }
+            }
+        }
+        return cart;
+    }
+}
@@ -0,0 +1,108 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills the carts of a batch of orders, five additions over four products
+ * each as in the sample feeds, from an object or a columnar inventory.
+ * cartLines is Order.addToCart; copiedLines does what it did before, a
+ * copy of the product per line and an index per cart next to the same
+ * pricing, with the quantities kept aside. Meant to be run with -prof gc:
+ * <pre>
+ * mvn -Pjmh compile exec:exec -Djmh.args="CartFootprintBenchmark -prof gc"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CartFootprintBenchmark {
+    private static final int ORDERS = 1000;
+    private static final int PRODUCTS = 1000;
+    private static final int STOCK = 1_000_000;
+
+    @Param({"objects", "columnar"})
+    public String layout;
+
+    private Customer customer;
+    private Inventory inventory;
+    private String[] ids;
+    private int[] quantities = new int[Order.DEFAULT_CART_LIMIT];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        customer = new RegularCustomer("C001", "John", "john@example.com", "1 Street");
+        inventory = layout.equals("columnar") ? new Inventory(new ProductCatalog()) : new Inventory();
+        ids = new String[PRODUCTS];
+        for (int i = 0; i < PRODUCTS; i++) {
+            ids[i] = "P" + i;
+            Product product = (i & 1) == 0
+                    ? new Electronics(ids[i], "Item " + i, 10 + i % 100, STOCK, 12)
+                    : new Fashion(ids[i], "Item " + i, 10 + i % 100, STOCK, "M");
+            inventory.put(ids[i], product);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void restock() {
+        for (String id : ids) {
+            inventory.get(id).setQuantity(STOCK);
+        }
+    }
+
+    @Benchmark
+    public void cartLines(Blackhole bh) {
+        for (int n = 0; n < ORDERS; n++) {
+            Order order = new OnlineOrder("O1", "C001", customer);
+            for (int line = 0; line < 5; line++) {
+                order.addToCart(inventory.get(ids[product(n, line)]), 1);
+            }
+            bh.consume(order);
+        }
+    }
+
+    @Benchmark
+    public void copiedLines(Blackhole bh) {
+        for (int n = 0; n < ORDERS; n++) {
+            Order order = new OnlineOrder("O1", "C001", customer);
+            PricingStrategy pricing = order.getPricing();
+            BigDecimal subtotal = BigDecimal.ZERO;
+            ArrayList<Product> cart = new ArrayList<>();
+            HashMap<String, Product> index = new HashMap<>();
+            for (int line = 0; line < 5; line++) {
+                Product product = inventory.get(ids[product(n, line)]);
+                if (!product.tryReserve(1)) {
+                    throw new IllegalStateException("OUT_OF_STOCK");
+                }
+                Product cartProduct = index.get(product.getItemId());
+                if (cartProduct != null) {
+                    quantities[cart.indexOf(cartProduct)]++;
+                } else {
+                    Product copy = product.getType().create(product.getItemId(), product.getName(),
+                            product.getPrice(), 0, product.getAttribute());
+                    quantities[cart.size()] = 1;
+                    cart.add(copy);
+                    index.put(copy.getItemId(), copy);
+                }
+                subtotal = subtotal.add(pricing.line(product.getType(), product.getPrice(), 1));
+                bh.consume(pricing.total(subtotal, line + 1).doubleValue());
+            }
+            bh.consume(order);
+            bh.consume(cart);
+            bh.consume(index);
+        }
+    }
+
+    // The last addition repeats the first product of the cart
+    private static int product(int order, int line) {
+        return (order * 7 + (line == 4 ? 0 : line) * 13) % PRODUCTS;
+    }
+}
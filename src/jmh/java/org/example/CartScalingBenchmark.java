@@ -0,0 +1,97 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CartScalingBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int workers;
+
+    @Param({"100000"})
+    public int additions;
+
+    private String customerInput;
+    private String productInput;
+    private String[] cartLines;
+
+    private Helper helper;
+    private LinkedHashMap<String, Customer> customers;
+    private Inventory inventory;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(11);
+        int customerCount = 5_000;
+        int productCount = 2_000;
+        StringBuilder input = new StringBuilder().append(customerCount).append('\n');
+        for (int i = 0; i < customerCount; i++) {
+            input.append("C").append(i).append(" Name c").append(i).append("@example.com \"1 Street\" Regular\n");
+        }
+        customerInput = input.toString();
+        input = new StringBuilder().append(productCount).append('\n');
+        for (int i = 0; i < productCount; i++) {
+            input.append("P").append(i).append(" Electronics Item ").append(10 + i % 90).append(".50 500 12\n");
+        }
+        productInput = input.toString();
+        cartLines = new String[additions];
+        for (int i = 0; i < additions; i++) {
+            cartLines[i] = "C" + random.nextInt(customerCount) + " P" + random.nextInt(productCount) + " "
+                    + (1 + random.nextInt(3));
+        }
+        helper = new Helper(new PrintStream(OutputStream.nullOutputStream()));
+        helper.setCartWorkers(workers);
+    }
+
+    @Setup(Level.Invocation)
+    public void reset() {
+        helper.setLimits(IngestLimits.UNBOUNDED.withCartLimit(Integer.MAX_VALUE));
+        customers = new LinkedHashMap<>();
+        inventory = new Inventory();
+        helper.readCustomers(new Scanner(customerInput), customers);
+        helper.readProducts(new Scanner(productInput), inventory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        helper.setCartWorkers(1);
+    }
+
+    @Benchmark
+    public Inventory readCartAdditions() {
+        helper.setLimits(IngestLimits.UNBOUNDED.streaming(true).withCartLimit(Integer.MAX_VALUE));
+        helper.readCartAdditions(new ArrayLineSource(cartLines), customers, inventory);
+        return inventory;
+    }
+
+    static final class ArrayLineSource implements LineSource {
+        private final String[] lines;
+        private int next;
+
+        ArrayLineSource(String[] lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public boolean hasNextLine() {
+            return next < lines.length;
+        }
+
+        @Override
+        public CharSequence nextLine() {
+            return lines[next++];
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Object inventory against the columnar ProductCatalog. The benchmarks
+ * time loading and looking up products; run them with -prof gc for the
+ * allocation side. main() prints the heap each layout retains per SKU:
+ * <pre>
+ * mvn -Pjmh compile exec:exec -Djmh.main=org.example.CatalogFootprintBenchmark -Djmh.args="1000000"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class CatalogFootprintBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    @Param({"objects", "columnar"})
+    public String layout;
+
+    private String[] ids;
+    private String[] names;
+    private Inventory inventory;
+    private int[] lookups;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        ids = new String[size];
+        names = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = "P" + i;
+            names[i] = "Item " + i;
+        }
+        inventory = load(layout, ids, names);
+        lookups = new int[1024];
+        for (int i = 0; i < lookups.length; i++) {
+            lookups[i] = (int) ((i * 2654435761L) % size);
+        }
+    }
+
+    static Inventory load(String layout, String[] ids, String[] names) {
+        Inventory inventory = layout.equals("columnar") ? new Inventory(new ProductCatalog()) : new Inventory();
+        for (int i = 0; i < ids.length; i++) {
+            Product product = (i & 1) == 0
+                    ? new Electronics(ids[i], names[i], 10 + i % 1000, 500, i % 37)
+                    : new Fashion(ids[i], names[i], 10 + i % 1000, 500, "M");
+            inventory.put(ids[i], product);
+        }
+        return inventory;
+    }
+
+    @Benchmark
+    public Inventory loadCatalog() {
+        return load(layout, ids, names);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(1024)
+    public void lookupAndReserve(Blackhole bh) {
+        for (int index : lookups) {
+            Product product = inventory.get(ids[index]);
+            bh.consume(product.getPrice());
+            if (!product.tryReserve(1)) {
+                product.setQuantity(500);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String[] ids = new String[size];
+        String[] names = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = "P" + i;
+            names[i] = "Item " + i;
+        }
+        for (String layout : new String[]{"objects", "columnar"}) {
+            long before = usedHeap();
+            Inventory inventory = load(layout, ids, names);
+            long after = usedHeap();
+            // Ids and names are shared by both layouts and left out
+            System.out.printf("%-9s %,d products: %,d bytes retained, %.1f bytes per SKU%n", layout,
+                    inventory.size(), after - before, (after - before) / (double) size);
+        }
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,57 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The order section checked out one record at a time against batches of
+ * orderBatch orders paid together per payment method. Scores are orders
+ * per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CheckoutBenchmark {
+    private static final int ORDERS = 20_000;
+
+    @Param({"1", "64", "1024"})
+    public int orderBatch;
+
+    @Param({"0.0", "0.1"})
+    public double invalidRatio;
+
+    private FeedGenerator.Feed feed;
+    private LinkedHashMap<String, Customer> customers;
+    private Inventory inventory;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        feed = FeedGenerator.generate(ORDERS, invalidRatio, 42);
+    }
+
+    // Carts filled again, the orders of the last invocation took them
+    @Setup(Level.Invocation)
+    public void fill() {
+        customers = new LinkedHashMap<>();
+        inventory = new Inventory();
+        Helper helper = PipelineBenchmark.helper();
+        helper.readCustomers(PipelineBenchmark.source(feed.customers), customers);
+        helper.readProducts(PipelineBenchmark.source(feed.products), inventory);
+        helper.readCartAdditions(PipelineBenchmark.source(feed.cartAdditions), customers, inventory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public LinkedHashMap<String, Order> readOrders() {
+        Helper helper = PipelineBenchmark.helper();
+        helper.setOrderBatch(orderBatch);
+        LinkedHashMap<String, Order> orders = new LinkedHashMap<>();
+        helper.readOrders(PipelineBenchmark.source(feed.orders), customers, inventory, orders);
+        return orders;
+    }
+}
@@ -0,0 +1,48 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CurrencyFormatBenchmark {
+
+    private final double[] amounts = new double[1024];
+    private final StringBuilder line = new StringBuilder(64);
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = (1 + random.nextInt(20_000_000)) / 100.0 * (1 + random.nextInt(20)) * 0.9;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public void stringFormat(Blackhole bh) {
+        for (double amount : amounts) {
+            line.setLength(0);
+            line.append("Total: ").append(String.format("%.2f", amount));
+            bh.consume(line);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public void currencyFormat(Blackhole bh) {
+        for (double amount : amounts) {
+            line.setLength(0);
+            line.append("Total: ");
+            CurrencyFormat.append(line, amount);
+            bh.consume(line);
+        }
+    }
+}
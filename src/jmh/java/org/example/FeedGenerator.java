@@ -0,0 +1,144 @@
+package org.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Synthetic input feeds for the benchmarks. A feed of size n has n
+ * customers, n products, 2n cart additions and n orders in the count
+ * header format Main reads. Roughly invalidRatio of the records in each
+ * section are broken in one of the ways Helper rejects.
+ */
+final class FeedGenerator {
+    private static final String[] SIZES = {"S", "M", "L", "XL", "XXL"};
+
+    private FeedGenerator() {
+    }
+
+    static final class Feed {
+        final byte[] customers;
+        final byte[] products;
+        final byte[] cartAdditions;
+        final byte[] orders;
+        final byte[] all;
+
+        Feed(String customers, String products, String cartAdditions, String orders) {
+            this.customers = customers.getBytes(StandardCharsets.UTF_8);
+            this.products = products.getBytes(StandardCharsets.UTF_8);
+            this.cartAdditions = cartAdditions.getBytes(StandardCharsets.UTF_8);
+            this.orders = orders.getBytes(StandardCharsets.UTF_8);
+            this.all = (customers + products + cartAdditions + orders).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    static Feed generate(int size, double invalidRatio, long seed) {
+        Random random = new Random(seed);
+        return new Feed(customers(size, invalidRatio, random), products(size, invalidRatio, random),
+                cartAdditions(size, invalidRatio, random), orders(size, invalidRatio, random));
+    }
+
+    static String customers(int size, double invalidRatio, Random random) {
+        StringBuilder sb = new StringBuilder(size * 64).append(size).append('\n');
+        for (int i = 0; i < size; i++) {
+            String id = "C" + i;
+            String type = i % 4 == 0 ? "Premium" : "Regular";
+            if (random.nextDouble() < invalidRatio) {
+                switch (random.nextInt(3)) {
+                    case 0:
+                        id = "C" + random.nextInt(Math.max(1, i)); // duplicate id
+                        break;
+                    case 1:
+                        type = "Gold";
+                        break;
+                    default:
+                        sb.append(id).append(" Broken\n");
+                        continue;
+                }
+            }
+            sb.append(id).append(" Name").append(i).append(" user").append(i).append("@example.com \"")
+                    .append(i).append(" Main Street\" ").append(type).append('\n');
+        }
+        return sb.toString();
+    }
+
+    static String products(int size, double invalidRatio, Random random) {
+        StringBuilder sb = new StringBuilder(size * 48).append(size).append('\n');
+        for (int i = 0; i < size; i++) {
+            String id = "P" + i;
+            boolean electronics = i % 2 == 0;
+            String price = (1 + random.nextInt(2000)) + "." + (10 + random.nextInt(90));
+            int quantity = 50 + random.nextInt(451);
+            String attribute = electronics ? String.valueOf(random.nextInt(37)) : SIZES[random.nextInt(SIZES.length)];
+            if (random.nextDouble() < invalidRatio) {
+                switch (random.nextInt(4)) {
+                    case 0:
+                        id = "P" + random.nextInt(Math.max(1, i));
+                        break;
+                    case 1:
+                        price = "250000.00";
+                        break;
+                    case 2:
+                        attribute = electronics ? "48" : "XS";
+                        break;
+                    default:
+                        quantity = 0;
+                        break;
+                }
+            }
+            sb.append(id).append(electronics ? " Electronics \"Gadget " : " Fashion \"Shirt ").append(i)
+                    .append("\" ").append(price).append(' ').append(quantity).append(' ').append(attribute)
+                    .append('\n');
+        }
+        return sb.toString();
+    }
+
+    static String cartAdditions(int size, double invalidRatio, Random random) {
+        int count = size * 2;
+        StringBuilder sb = new StringBuilder(count * 16).append(count).append('\n');
+        for (int i = 0; i < count; i++) {
+            String customer = "C" + random.nextInt(size);
+            String product = "P" + random.nextInt(size);
+            int quantity = 1 + random.nextInt(5);
+            if (random.nextDouble() < invalidRatio) {
+                switch (random.nextInt(3)) {
+                    case 0:
+                        customer = "X" + i;
+                        break;
+                    case 1:
+                        product = "X" + i;
+                        break;
+                    default:
+                        quantity = -1;
+                        break;
+                }
+            }
+            sb.append(customer).append(' ').append(product).append(' ').append(quantity).append('\n');
+        }
+        return sb.toString();
+    }
+
+    static String orders(int size, double invalidRatio, Random random) {
+        StringBuilder sb = new StringBuilder(size * 32).append(size).append('\n');
+        for (int i = 0; i < size; i++) {
+            String customer = "C" + random.nextInt(size);
+            String type = random.nextBoolean() ? "Online" : "InStore";
+            String payment = random.nextBoolean() ? "CreditCard" : "PayPal";
+            if (random.nextDouble() < invalidRatio) {
+                switch (random.nextInt(3)) {
+                    case 0:
+                        customer = "X" + i;
+                        break;
+                    case 1:
+                        type = "Phone";
+                        break;
+                    default:
+                        payment = "Bitcoin";
+                        break;
+                }
+            }
+            sb.append('O').append(i).append(' ').append(customer).append(' ').append(type).append(' ')
+                    .append(payment).append('\n');
+        }
+        return sb.toString();
+    }
+}
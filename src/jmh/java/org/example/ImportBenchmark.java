@@ -0,0 +1,161 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads a file of a million customers or products, about 10% of them
+ * invalid, in the text format with its count header, as RFC 4180 CSV and in
+ * the binary record format. The CSV and binary files are converted from
+ * the generated text, so all three hold the same records.
+ * <pre>
+ * mvn -Pjmh compile exec:exec -Djmh.args="ImportBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ImportBenchmark {
+
+    @Param({"text", "csv", "binary"})
+    public String format;
+
+    @Param({"1000000"})
+    public int size;
+
+    private Path dir;
+    private Path customers;
+    private Path products;
+
+    @Setup(Level.Trial)
+    public void write() throws IOException {
+        dir = Files.createTempDirectory("import-bench");
+        Random random = new Random(42);
+        String customerText = FeedGenerator.customers(size, 0.1, random);
+        String productText = FeedGenerator.products(size, 0.1, random);
+        switch (format) {
+            case "text":
+                customers = Files.writeString(dir.resolve("customers.txt"), customerText);
+                products = Files.writeString(dir.resolve("products.txt"), productText);
+                break;
+            case "csv":
+                customers = writeCsv(customerText, dir.resolve("customers.csv"));
+                products = writeCsv(productText, dir.resolve("products.csv"));
+                break;
+            default:
+                customers = writeBinary(customerText, dir.resolve("customers.bin"));
+                products = writeBinary(productText, dir.resolve("products.bin"));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.delete(customers);
+        Files.delete(products);
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public LinkedHashMap<String, Customer> customers() throws IOException {
+        Helper helper = helper();
+        LinkedHashMap<String, Customer> loaded = new LinkedHashMap<>();
+        if (format.equals("text")) {
+            try (LineSource source = ChannelLineSource.open(customers, StandardCharsets.UTF_8)) {
+                helper.readCustomers(source, loaded);
+            }
+        } else {
+            try (RecordReader reader = RecordReader.open(customers)) {
+                helper.readCustomers(reader, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    @Benchmark
+    public Inventory products() throws IOException {
+        Helper helper = helper();
+        Inventory loaded = new Inventory();
+        if (format.equals("text")) {
+            try (LineSource source = ChannelLineSource.open(products, StandardCharsets.UTF_8)) {
+                helper.readProducts(source, loaded);
+            }
+        } else {
+            try (RecordReader reader = RecordReader.open(products)) {
+                helper.readProducts(reader, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    private static Helper helper() {
+        Helper helper = new Helper(OutputSink.buffered(new PrintStream(OutputStream.nullOutputStream())));
+        helper.setLimits(IngestLimits.UNBOUNDED);
+        return helper;
+    }
+
+    // The records of a text section without its count header
+    private static String[] records(String section) {
+        String[] lines = section.split("\n");
+        String[] records = new String[lines.length - 1];
+        System.arraycopy(lines, 1, records, 0, records.length);
+        return records;
+    }
+
+    private static Path writeCsv(String section, Path file) throws IOException {
+        LineTokenizer tokenizer = new LineTokenizer();
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("header\r\n");
+            for (String record : records(section)) {
+                int tokens = tokenizer.tokenize(record);
+                for (int i = 0; i < tokens; i++) {
+                    String token = tokenizer.token(i);
+                    if (i > 0) {
+                        out.write(',');
+                    }
+                    if (token.indexOf(',') >= 0 || token.indexOf('"') >= 0) {
+                        out.write('"' + token.replace("\"", "\"\"") + '"');
+                    } else {
+                        out.write(token);
+                    }
+                }
+                out.write("\r\n");
+            }
+        }
+        return file;
+    }
+
+    // Numbers become INT or DOUBLE fields, everything else TEXT
+    private static Path writeBinary(String section, Path file) throws IOException {
+        LineTokenizer tokenizer = new LineTokenizer();
+        try (BinaryRecordWriter out = new BinaryRecordWriter(Files.newOutputStream(file))) {
+            for (String record : records(section)) {
+                int tokens = tokenizer.tokenize(record);
+                for (int i = 0; i < tokens; i++) {
+                    String token = tokenizer.token(i);
+                    if (token.matches("-?\\d{1,9}")) {
+                        out.integer(Integer.parseInt(token));
+                    } else if (token.matches("-?\\d+\\.\\d+")) {
+                        out.decimal(Double.parseDouble(token));
+                    } else {
+                        out.text(token);
+                    }
+                }
+                out.endRecord();
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,66 @@
+package org.example;
+
+import org.apache.logging.log4j.LogManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects per second through RejectLog, with the reject logger off, with
+ * the default sampling of 100 lines a second and with every reject logged.
+ * "async" runs with the asynchronous loggers of log4j2.component.properties,
+ * "sync" with the classic selector, where the calling thread formats and
+ * writes every line itself. Add -prof gc to see the allocation per reject:
+ * <pre>
+ * mvn -Pjmh compile exec:exec -Djmh.args="LoggingBenchmark -prof gc"
+ * </pre>
+ * Lines go to target/reject-benchmark.log. With every reject logged the
+ * asynchronous ring buffer fills up and events are discarded, rather
+ * than the caller waiting; the score is then the discard path.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+    private static final String CONFIG = "-Dlog4j2.configurationFile=src/jmh/log4j2-benchmark.xml";
+
+    @Param({"off", "sampled", "all"})
+    public String logging;
+
+    private RejectLog log;
+    private int record;
+
+    @Setup(Level.Trial)
+    public void open() {
+        switch (logging) {
+            case "off":
+                log = new RejectLog(LogManager.getLogger("org.example.reject.off"), 100, System::nanoTime);
+                break;
+            case "sampled":
+                log = new RejectLog(100);
+                break;
+            default:
+                log = new RejectLog(0);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        log.close();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = CONFIG)
+    public void async() {
+        log.rejected(Phase.CART_ADDITIONS, record++, RejectReason.OUT_OF_STOCK);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {CONFIG,
+            "-Dlog4j2.contextSelector=org.apache.logging.log4j.core.selector.ClassLoaderContextSelector"})
+    public void sync() {
+        log.rejected(Phase.CART_ADDITIONS, record++, RejectReason.OUT_OF_STOCK);
+    }
+}
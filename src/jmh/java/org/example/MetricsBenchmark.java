@@ -0,0 +1,55 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * All four input phases over a generated feed with metrics off and on.
+ * "off" is the path every run without --metrics takes; compare it with
+ * the stored PipelineBenchmark baseline to see that the instrumentation
+ * costs nothing when disabled:
+ * <pre>
+ * mvn -Pjmh compile exec:exec -Djmh.args="MetricsBenchmark"
+ * mvn -Pjmh compile exec:exec -Djmh.args="PipelineBenchmark -rf json -rff target/pipeline.json"
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    @Param({"off", "on"})
+    public String metrics;
+
+    @Param({"10000"})
+    public int size;
+
+    private FeedGenerator.Feed feed;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        feed = FeedGenerator.generate(size, 0.1, 42);
+    }
+
+    @Benchmark
+    public LinkedHashMap<String, Order> allPhases() {
+        Helper helper = new Helper(OutputSink.buffered(new PrintStream(OutputStream.nullOutputStream())));
+        helper.setLimits(IngestLimits.UNBOUNDED);
+        helper.setMetrics(metrics.equals("on") ? new Metrics() : null);
+        LinkedHashMap<String, Customer> customers = new LinkedHashMap<>();
+        Inventory inventory = new Inventory();
+        LinkedHashMap<String, Order> orders = new LinkedHashMap<>();
+        helper.readCustomers(PipelineBenchmark.source(feed.customers), customers);
+        helper.readProducts(PipelineBenchmark.source(feed.products), inventory);
+        helper.readCartAdditions(PipelineBenchmark.source(feed.cartAdditions), customers, inventory);
+        helper.readOrders(PipelineBenchmark.source(feed.orders), customers, inventory, orders);
+        return orders;
+    }
+}
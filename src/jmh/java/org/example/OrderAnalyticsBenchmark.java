@@ -0,0 +1,73 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-aggregation of a snapshot of processed orders on fork/join pools of
+ * growing parallelism, against adding the orders up one by one on the
+ * calling thread. Scaling needs as many cores as the pool has threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderAnalyticsBenchmark {
+
+    @Param({"200000"})
+    public int orders;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private List<Order> snapshot;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Customer regular = new RegularCustomer("C001", "John", "john@example.com", "1 Street");
+        Customer premium = new PremiumCustomer("C002", "Jane", "jane@example.com", "2 Road");
+        Product[] products = new Product[50];
+        for (int i = 0; i < products.length; i++) {
+            products[i] = i % 2 == 0 ? new Electronics("P" + i, "Item" + i, 10.0 + i, Integer.MAX_VALUE, 12)
+                    : new Fashion("P" + i, "Item" + i, 10.0 + i, Integer.MAX_VALUE, "M");
+        }
+        snapshot = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            Customer customer = i % 4 == 0 ? premium : regular;
+            Order order = i % 3 == 0 ? new InStoreOrder("O" + i, customer.getCustomerId(), customer)
+                    : new OnlineOrder("O" + i, customer.getCustomerId(), customer);
+            for (int line = 0; line < 3; line++) {
+                order.addToCart(products[(i + line * 7) % products.length], 1 + line);
+            }
+            order.setPaymentResult(i % 5 == 0 ? "PayPal" : "CreditCard", i % 20 != 0);
+            snapshot.add(order);
+        }
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public OrderAnalytics forkJoin() {
+        return OrderAnalytics.aggregate(snapshot, pool);
+    }
+
+    @Benchmark
+    public OrderAnalytics sequential() {
+        OrderAnalytics analytics = new OrderAnalytics();
+        for (Order order : snapshot) {
+            analytics.add(order, order.isPaid());
+        }
+        return analytics;
+    }
+}
@@ -0,0 +1,58 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentPipelineBenchmark {
+
+    private static final int ORDERS = 256;
+
+    @Param({"1", "16", "64", "256"})
+    public int inFlight;
+
+    @Param({"2000"})
+    public long latencyMicros;
+
+    private SimulatedGateway gateway;
+    private PaymentPipeline pipeline;
+    private Order order;
+    private int successful;
+
+    @Setup
+    public void setUp() {
+        gateway = new SimulatedGateway(latencyMicros, latencyMicros / 4);
+        pipeline = new PaymentPipeline(inFlight, 10_000);
+        Customer customer = new RegularCustomer("C001", "John", "john@example.com", "1 Street");
+        order = new OnlineOrder("O001", "C001", customer);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pipeline.close();
+        gateway.close();
+    }
+
+    // Orders paid per second, ORDERS per invocation
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public int payOrders() {
+        successful = 0;
+        Payment payment = gateway.payment("CreditCard");
+        for (int i = 0; i < ORDERS; i++) {
+            pipeline.submit(order, payment, 10.0, status -> {
+                if (status) {
+                    successful++;
+                }
+            });
+        }
+        pipeline.drain();
+        return successful;
+    }
+}
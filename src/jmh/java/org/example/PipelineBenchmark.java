@@ -0,0 +1,124 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each Helper phase on its own plus the whole Main flow, over generated
+ * feeds. Run with the gc profiler to get allocation rates and keep the
+ * JSON result to compare against src/jmh/baseline:
+ * <pre>
+ * mvn -Pjmh compile exec:exec -Djmh.args="Pipeline -prof gc -rf json -rff target/pipeline.json"
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PipelineBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Feed {
+        @Param({"1000", "10000", "100000"})
+        public int size;
+
+        @Param({"0.0", "0.1"})
+        public double invalidRatio;
+
+        FeedGenerator.Feed feed;
+
+        @Setup(Level.Trial)
+        public void generate() {
+            feed = FeedGenerator.generate(size, invalidRatio, 42);
+        }
+    }
+
+    // Customers and products loaded, carts empty
+    @State(Scope.Thread)
+    public static class Loaded {
+        LinkedHashMap<String, Customer> customers;
+        Inventory inventory;
+
+        @Setup(Level.Invocation)
+        public void load(Feed feed) {
+            customers = new LinkedHashMap<>();
+            inventory = new Inventory();
+            Helper helper = helper();
+            helper.readCustomers(source(feed.feed.customers), customers);
+            helper.readProducts(source(feed.feed.products), inventory);
+        }
+    }
+
+    // Carts filled, ready for the cart report or the orders
+    @State(Scope.Thread)
+    public static class Carts {
+        LinkedHashMap<String, Customer> customers;
+        Inventory inventory;
+
+        @Setup(Level.Invocation)
+        public void fill(Feed feed) {
+            customers = new LinkedHashMap<>();
+            inventory = new Inventory();
+            Helper helper = helper();
+            helper.readCustomers(source(feed.feed.customers), customers);
+            helper.readProducts(source(feed.feed.products), inventory);
+            helper.readCartAdditions(source(feed.feed.cartAdditions), customers, inventory);
+        }
+    }
+
+    static Helper helper() {
+        Helper helper = new Helper(OutputSink.buffered(new PrintStream(OutputStream.nullOutputStream())));
+        helper.setLimits(IngestLimits.UNBOUNDED);
+        return helper;
+    }
+
+    static LineSource source(byte[] bytes) {
+        return ChannelLineSource.of(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public LinkedHashMap<String, Customer> readCustomers(Feed feed) {
+        LinkedHashMap<String, Customer> customers = new LinkedHashMap<>();
+        helper().readCustomers(source(feed.feed.customers), customers);
+        return customers;
+    }
+
+    @Benchmark
+    public Inventory readProducts(Feed feed) {
+        Inventory inventory = new Inventory();
+        helper().readProducts(source(feed.feed.products), inventory);
+        return inventory;
+    }
+
+    @Benchmark
+    public Inventory readCartAdditions(Feed feed, Loaded loaded) {
+        helper().readCartAdditions(source(feed.feed.cartAdditions), loaded.customers, loaded.inventory);
+        return loaded.inventory;
+    }
+
+    @Benchmark
+    public void printCustomerCartDetails(Carts carts) {
+        helper().printCustomerCartDetails(carts.customers);
+    }
+
+    @Benchmark
+    public LinkedHashMap<String, Order> readOrders(Feed feed, Carts carts) {
+        LinkedHashMap<String, Order> orders = new LinkedHashMap<>();
+        helper().readOrders(source(feed.feed.orders), carts.customers, carts.inventory, orders);
+        return orders;
+    }
+
+    @Benchmark
+    public void endToEnd(Feed feed) throws IOException {
+        RunOptions options = RunOptions.parse(new String[]{"--unbounded"});
+        Main.run(options, source(feed.feed.all), OutputSink.buffered(new PrintStream(OutputStream.nullOutputStream())));
+    }
+}
@@ -0,0 +1,74 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PricingBenchmark {
+    private static final BigDecimal PREMIUM_RATE = new BigDecimal("0.90");
+
+    @Param({"20", "200"})
+    public int lines;
+
+    private Order[] orders;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Customer regular = new RegularCustomer("C001", "John", "john@example.com", "1 Street");
+        Customer premium = new PremiumCustomer("C002", "Jane", "jane@example.com", "2 Road");
+        PricingStrategy sale = PricingStrategy.STANDARD
+                .withCategoryDiscount(ProductType.ELECTRONICS, new BigDecimal("0.15"))
+                .withVolumeDiscount(50, new BigDecimal("0.05"))
+                .withTier(new BigDecimal("5000"), new BigDecimal("0.02"));
+        orders = new Order[4];
+        for (int i = 0; i < orders.length; i++) {
+            Order order = new OnlineOrder("O" + i, "C00" + i, i % 2 == 0 ? regular : premium);
+            order.setCartLimit(Integer.MAX_VALUE);
+            if (i == 3) {
+                order.setPricing(sale);
+            }
+            for (int line = 0; line < lines; line++) {
+                Product product = line % 2 == 0
+                        ? new Electronics("P" + line, "Item" + line, 10.0 + line, 500, 12)
+                        : new Fashion("P" + line, "Item" + line, 10.0 + line, 500, "M");
+                order.addToCart(product, 1 + line % 3);
+            }
+            orders[i] = order;
+        }
+    }
+
+    @Benchmark
+    public BigDecimal strategyTotals() {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (Order order : orders) {
+            sum = sum.add(order.recalculateTotal());
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public BigDecimal instanceofTotals() {
+        // The pricing Order had before: a premium check per item, no other discounts
+        BigDecimal sum = BigDecimal.ZERO;
+        for (Order order : orders) {
+            BigDecimal total = BigDecimal.ZERO;
+            for (CartLine cartLine : order.cart) {
+                BigDecimal line = BigDecimal.valueOf(cartLine.getPrice())
+                        .multiply(BigDecimal.valueOf(cartLine.getQuantity()));
+                if (order.customer instanceof PremiumCustomer) {
+                    line = line.multiply(PREMIUM_RATE);
+                }
+                total = total.add(line);
+            }
+            sum = sum.add(total);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,140 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShopIndexBenchmark {
+    private static final int PRODUCTS = 200;
+
+    @Param({"10000", "100000"})
+    public int customers;
+
+    private final LinkedHashMap<String, Customer> customerMap = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Order> orders = new LinkedHashMap<>();
+    private ShopIndex index;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new ShopIndex(customerMap, orders);
+        Helper helper = new Helper(new PrintStream(new ByteArrayOutputStream()));
+        helper.setLimits(IngestLimits.UNBOUNDED);
+        helper.setListener(index);
+        StringBuilder feed = new StringBuilder().append(customers).append('\n');
+        for (int i = 0; i < customers; i++) {
+            feed.append('C').append(i).append(" Name").append(i).append(" c").append(i).append("@example.com")
+                    .append(" \"1 Street\" ").append(i % 10 == 0 ? "Premium" : "Regular").append('\n');
+        }
+        feed.append(PRODUCTS).append('\n');
+        for (int i = 0; i < PRODUCTS; i++) {
+            feed.append('P').append(i).append(" Fashion Item").append(i).append(" 10.00 500 M\n");
+        }
+        // Three lines in every cart, half of the carts checked out
+        feed.append(customers * 3).append('\n');
+        for (int i = 0; i < customers; i++) {
+            for (int line = 0; line < 3; line++) {
+                feed.append('C').append(i).append(" P").append((i * 7 + line * 31) % PRODUCTS).append(" 1\n");
+            }
+        }
+        feed.append(customers / 2).append('\n');
+        for (int i = 0; i < customers / 2; i++) {
+            feed.append('O').append(i).append(" C").append(i * 2).append(" Online ")
+                    .append(i % 3 == 0 ? "PayPal" : "CreditCard").append('\n');
+        }
+        Scanner scanner = new Scanner(feed.toString());
+        Inventory inventory = new Inventory();
+        helper.readCustomers(scanner, customerMap);
+        helper.readProducts(scanner, inventory);
+        helper.readCartAdditions(scanner, customerMap, inventory);
+        helper.readOrders(scanner, customerMap, inventory, orders);
+    }
+
+    private String product() {
+        return "P" + (next++ % PRODUCTS);
+    }
+
+    @Benchmark
+    public int indexedPremiumCustomers() {
+        return index.customersOfType("Premium").size();
+    }
+
+    @Benchmark
+    public int scannedPremiumCustomers() {
+        List<Customer> premium = new ArrayList<>();
+        for (Customer customer : customerMap.values()) {
+            if (customer.getCustomerType().equals("Premium")) {
+                premium.add(customer);
+            }
+        }
+        return premium.size();
+    }
+
+    @Benchmark
+    public Customer indexedEmail() {
+        return index.customerByEmail("c" + (next++ % customers) + "@example.com");
+    }
+
+    @Benchmark
+    public Customer scannedEmail() {
+        String email = "c" + (next++ % customers) + "@example.com";
+        for (Customer customer : customerMap.values()) {
+            if (customer.getEmail().equals(email)) {
+                return customer;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public int indexedCartsHolding() {
+        return index.cartsHolding(product()).size();
+    }
+
+    @Benchmark
+    public int scannedCartsHolding() {
+        String productId = product();
+        List<Customer> holding = new ArrayList<>();
+        for (Customer customer : customerMap.values()) {
+            Order order = customer.getOrder();
+            if (order == null) {
+                continue;
+            }
+            for (CartLine line : order.cart) {
+                if (line.getItemId().equals(productId)) {
+                    holding.add(customer);
+                    break;
+                }
+            }
+        }
+        return holding.size();
+    }
+
+    @Benchmark
+    public int indexedPayPalOrders() {
+        return index.ordersPaidWith("PayPal").size();
+    }
+
+    @Benchmark
+    public int scannedPayPalOrders() {
+        List<Order> payPal = new ArrayList<>();
+        for (Order order : orders.values()) {
+            if ("PayPal".equals(order.getPaymentType())) {
+                payPal.add(order);
+            }
+        }
+        return payPal.size();
+    }
+}
@@ -0,0 +1,106 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local load against the service mode: every JMH thread is a client
+ * sending one request after the other over its own kept-alive connection.
+ * Throughput gives the requests per second, SampleTime the latency
+ * percentiles (p0.50, p0.99) of the same requests.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ShopServerBenchmark {
+    private static final int CUSTOMERS = 1000;
+    private static final int PRODUCTS = 100;
+
+    private ShopServer server;
+    private String base;
+    private final AtomicInteger clients = new AtomicInteger();
+    private final AtomicInteger orderIds = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        LinkedHashMap<String, Customer> customers = new LinkedHashMap<>();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            String id = "C" + i;
+            customers.put(id, i % 2 == 0 ? new RegularCustomer(id, "Name" + i, "c" + i + "@example.com", "1 Street")
+                    : new PremiumCustomer(id, "Name" + i, "c" + i + "@example.com", "1 Street"));
+        }
+        Inventory inventory = new Inventory();
+        for (int i = 0; i < PRODUCTS; i++) {
+            inventory.put("P" + i, new Fashion("P" + i, "Item" + i, 10.0 + i, Integer.MAX_VALUE, "M"));
+        }
+        Helper helper = new Helper(new PrintStream(new ByteArrayOutputStream()));
+        // Carts only grow up to one line per product, so none is turned down
+        helper.setLimits(IngestLimits.DEFAULT.withCartLimit(Integer.MAX_VALUE));
+        server = new ShopServer(helper, customers, inventory, new LinkedHashMap<>(), 0);
+        base = "http://localhost:" + server.getPort();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        HttpClient http;
+        int client;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(ShopServerBenchmark benchmark) {
+            http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            client = benchmark.clients.getAndIncrement();
+        }
+
+        // Customers of different clients do not overlap
+        String customer() {
+            return "C" + (client + 8 * (next++ % (CUSTOMERS / 8)));
+        }
+
+        int send(String method, String uri) throws IOException, InterruptedException {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(uri))
+                    .method(method, HttpRequest.BodyPublishers.noBody()).build();
+            return http.send(request, HttpResponse.BodyHandlers.ofString()).statusCode();
+        }
+    }
+
+    @Benchmark
+    public int cartAdd(Client client) throws IOException, InterruptedException {
+        return client.send("POST", base + "/cart/add?customer=" + client.customer() + "&product=P"
+                + client.next % PRODUCTS + "&quantity=1");
+    }
+
+    @Benchmark
+    public int cartView(Client client) throws IOException, InterruptedException {
+        return client.send("GET", base + "/cart?customer=" + client.customer());
+    }
+
+    // Fills a cart and checks it out, two requests per invocation
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public int checkout(Client client) throws IOException, InterruptedException {
+        String customer = client.customer();
+        client.send("POST", base + "/cart/add?customer=" + customer + "&product=P1&quantity=2");
+        return client.send("POST", base + "/checkout?order=B" + orderIds.incrementAndGet() + "&customer="
+                + customer + "&type=Online&payment=CreditCard");
+    }
+}
@@ -0,0 +1,85 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to a usable inventory: parsing the product section against mapping
+ * a snapshot. "snapshot" still reads through the product section to check
+ * its fingerprint, as Main does; "snapshotMapOnly" is the mapping alone.
+ * Each variant ends with one lookup so the inventory is actually used.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotStartupBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private Path dir;
+    private Path text;
+    private Path snapshot;
+    private String lastId;
+
+    @Setup(Level.Trial)
+    public void write() throws IOException {
+        dir = Files.createTempDirectory("snapshot-bench");
+        text = dir.resolve("products.txt");
+        snapshot = dir.resolve("products.snap");
+        Files.writeString(text, FeedGenerator.products(size, 0.0, new Random(42)), StandardCharsets.UTF_8);
+        try (LineSource source = ChannelLineSource.open(text, StandardCharsets.UTF_8)) {
+            helper().readProducts(source, new Inventory(), snapshot);
+        }
+        lastId = "P" + (size - 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        Files.deleteIfExists(text);
+        Files.deleteIfExists(snapshot);
+        Files.deleteIfExists(dir);
+    }
+
+    private static Helper helper() {
+        Helper helper = new Helper(OutputSink.buffered(new PrintStream(OutputStream.nullOutputStream())));
+        helper.setLimits(IngestLimits.UNBOUNDED);
+        return helper;
+    }
+
+    @Benchmark
+    public int text() throws IOException {
+        Inventory inventory = new Inventory();
+        try (LineSource source = ChannelLineSource.open(text, StandardCharsets.UTF_8)) {
+            helper().readProducts(source, inventory);
+        }
+        return inventory.get(lastId).getQuantity();
+    }
+
+    @Benchmark
+    public int snapshot() throws IOException {
+        try (InventorySnapshot mapped = InventorySnapshot.open(snapshot, false);
+             LineSource source = ChannelLineSource.open(text, StandardCharsets.UTF_8)) {
+            helper().readProducts(source, mapped);
+            return Inventory.readOnly(mapped).get(lastId).getQuantity();
+        }
+    }
+
+    @Benchmark
+    public int snapshotMapOnly() throws IOException {
+        try (InventorySnapshot mapped = InventorySnapshot.open(snapshot, false)) {
+            return Inventory.readOnly(mapped).get(lastId).getQuantity();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TokenizerBenchmark {
+
+    private final String[] lines = {
+            "C001 John john@example.com \"123 Street\" Regular",
+            "C002 Alice alice@example.com \"456 Avenue, Apt 7\" Premium",
+            "P001 Electronics Phone 500.00 10 12",
+            "P002 Fashion \"Summer T-Shirt\" 20.00 50 M",
+            "C001 P001 5",
+            "O001 C001 Online CreditCard"
+    };
+
+    private final LineTokenizer tokenizer = new LineTokenizer();
+
+    @Benchmark
+    public void regexPerLine(Blackhole bh) {
+        for (String line : lines) {
+            // What Helper.parseLine did before: compile, match, box into a list
+            ArrayList<String> tokens = new ArrayList<>();
+            Matcher matcher = Pattern.compile("\"([^\"]*)\"|(\\S+)").matcher(line);
+            while (matcher.find()) {
+                tokens.add(matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+            }
+            bh.consume(tokens.toArray(new String[0]));
+        }
+    }
+
+    @Benchmark
+    public void tokenizerAllTokens(Blackhole bh) {
+        for (String line : lines) {
+            int count = tokenizer.tokenize(line);
+            for (int i = 0; i < count; i++) {
+                bh.consume(tokenizer.token(i));
+            }
+        }
+    }
+
+    @Benchmark
+    public void tokenizerBoundsOnly(Blackhole bh) {
+        for (String line : lines) {
+            bh.consume(tokenizer.tokenize(line));
+        }
+    }
+}
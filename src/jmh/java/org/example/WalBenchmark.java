@@ -0,0 +1,72 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable cart records per second through the write-ahead log. Every
+ * operation appends a record and waits until it is on disk, from four
+ * threads, so the score is bounded by how many records one fsync carries.
+ * "perRecord" is a single thread, where every fsync carries one record.
+ * The records per fsync are printed at the end of each trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WalBenchmark {
+
+    @Param({"0", "200", "1000"})
+    public long groupWindowMicros;
+
+    private Path dir;
+    private WriteAheadLog wal;
+    private Customer customer;
+    private Product product;
+    private long recordsBefore;
+    private long syncsBefore;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+        dir = Files.createTempDirectory("wal-bench");
+        wal = WriteAheadLog.open(dir.resolve("bench.wal"), new LinkedHashMap<>(), new Inventory(),
+                new LinkedHashMap<>(), Order.DEFAULT_CART_LIMIT, Pricing.DEFAULT, groupWindowMicros, Long.MAX_VALUE);
+        customer = new RegularCustomer("C000123", "Name", "name@example.com", "1 Street");
+        product = new Fashion("P000456", "T-Shirt", 20.00, 500, "M");
+        wal.phaseStarted(Phase.CART_ADDITIONS);
+        recordsBefore = wal.getAppendedCount();
+        syncsBefore = wal.getSyncCount();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        long records = wal.getAppendedCount() - recordsBefore;
+        long syncs = wal.getSyncCount() - syncsBefore;
+        wal.close();
+        System.out.printf("%n%d records in %d fsyncs, %.1f per fsync%n", records, syncs,
+                syncs == 0 ? 0.0 : records / (double) syncs);
+        Files.deleteIfExists(dir.resolve("bench.wal"));
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void groupCommit() {
+        wal.cartAdded(customer, product, 1);
+        wal.sync();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void perRecord() {
+        wal.cartAdded(customer, product, 1);
+        wal.sync();
+    }
+}
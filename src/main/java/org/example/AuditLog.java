@@ -0,0 +1,45 @@
+package org.example;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+/**
+ * Logs a line for every change Helper makes to the customers, the
+ * inventory, the carts and the orders to the "org.example.audit" logger.
+ * That logger is off unless configured otherwise, and Main only installs
+ * the listener when it is on.
+ */
+final class AuditLog implements ProcessingListener {
+    static final Logger LOGGER = LogManager.getLogger("org.example.audit");
+
+    public static boolean isEnabled() {
+        return LOGGER.isInfoEnabled();
+    }
+
+    @Override
+    public void customerAdded(Customer customer) {
+        LOGGER.info("Customer {} added ({})", customer.getCustomerId(), customer.getCustomerType());
+    }
+
+    @Override
+    public void productAdded(Product product) {
+        LOGGER.info("Product {} added, stock {}", product.getItemId(), Unbox.box(product.getQuantity()));
+    }
+
+    @Override
+    public void cartAdded(Customer customer, Product product, int quantity) {
+        LOGGER.info("Cart of {} holds {} more of {}, stock left {}", customer.getCustomerId(), Unbox.box(quantity),
+                product.getItemId(), Unbox.box(product.getQuantity()));
+    }
+
+    @Override
+    public void orderProcessed(int ordinal, Order order, boolean paid) {
+        LOGGER.info("Order {} of {} {}", order.getOrderId(), order.getCustomerId(), paid ? "paid" : "payment failed");
+    }
+
+    @Override
+    public void phaseCompleted(Phase phase) {
+        LOGGER.info("Phase {} completed", phase);
+    }
+}
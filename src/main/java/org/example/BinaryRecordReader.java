@@ -0,0 +1,190 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the length-prefixed binary record format BinaryRecordWriter
+ * writes. The file starts with the magic number "HRB1", then every record
+ * is an int with the length of the rest of it, a byte with the number of
+ * fields and the fields. A field is a kind byte followed by its value:
+ * TEXT an unsigned short length and that many UTF-8 bytes, INT four bytes
+ * and DOUBLE eight, all big-endian.
+ * <p>
+ * Numbers are read straight from the buffer, text is only decoded when a
+ * field is asked for as a String.
+ */
+final class BinaryRecordReader implements RecordReader {
+    static final int MAGIC = 0x48524231;
+    static final byte TEXT = 0;
+    static final byte INT = 1;
+    static final byte DOUBLE = 2;
+    static final int MAX_RECORD_LENGTH = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(MAX_RECORD_LENGTH + Integer.BYTES);
+    private byte[] kinds = new byte[8];
+    private int[] offsets = new int[8];
+    private int[] lengths = new int[8];
+    private int count;
+
+    public BinaryRecordReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        buffer.limit(0);
+        if (!fill(Integer.BYTES) || buffer.getInt() != MAGIC) {
+            throw corrupt("Not a binary record file");
+        }
+    }
+
+    public static BinaryRecordReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new BinaryRecordReader(channel);
+        } catch (RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int next() {
+        count = 0;
+        if (!fill(Integer.BYTES)) {
+            if (buffer.hasRemaining()) {
+                throw corrupt("Truncated record");
+            }
+            return -1;
+        }
+        int length = buffer.getInt();
+        if (length < 1 || length > MAX_RECORD_LENGTH) {
+            throw corrupt("Invalid record length " + length);
+        }
+        if (!fill(length)) {
+            throw corrupt("Truncated record");
+        }
+        int end = buffer.position() + length;
+        int fields = buffer.get() & 0xFF;
+        for (int i = 0; i < fields; i++) {
+            if (buffer.position() >= end) {
+                throw corrupt("Record shorter than its fields");
+            }
+            byte kind = buffer.get();
+            int fieldLength;
+            if (kind == TEXT) {
+                if (buffer.position() + Short.BYTES > end) {
+                    throw corrupt("Record shorter than its fields");
+                }
+                fieldLength = buffer.getShort() & 0xFFFF;
+            } else if (kind == INT) {
+                fieldLength = Integer.BYTES;
+            } else if (kind == DOUBLE) {
+                fieldLength = Double.BYTES;
+            } else {
+                throw corrupt("Unknown field kind " + kind);
+            }
+            int offset = buffer.position();
+            if (offset + fieldLength > end) {
+                throw corrupt("Record shorter than its fields");
+            }
+            buffer.position(offset + fieldLength);
+            add(kind, offset, fieldLength);
+        }
+        if (buffer.position() != end) {
+            throw corrupt("Record longer than its fields");
+        }
+        return count;
+    }
+
+    @Override
+    public String token(int index) {
+        checkIndex(index);
+        switch (kinds[index]) {
+            case INT:
+                return Integer.toString(buffer.getInt(offsets[index]));
+            case DOUBLE:
+                return Double.toString(buffer.getDouble(offsets[index]));
+            default:
+                return new String(buffer.array(), offsets[index], lengths[index], StandardCharsets.UTF_8);
+        }
+    }
+
+    @Override
+    public int intToken(int index) {
+        checkIndex(index);
+        switch (kinds[index]) {
+            case INT:
+                return buffer.getInt(offsets[index]);
+            case DOUBLE:
+                throw new NumberFormatException("Field " + index + " is not an integer");
+            default:
+                return Integer.parseInt(token(index));
+        }
+    }
+
+    @Override
+    public double doubleToken(int index) {
+        checkIndex(index);
+        switch (kinds[index]) {
+            case INT:
+                return buffer.getInt(offsets[index]);
+            case DOUBLE:
+                return buffer.getDouble(offsets[index]);
+            default:
+                return Double.parseDouble(token(index));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Whether at least bytes are buffered after reading more of the channel if needed
+    private boolean fill(int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        try {
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.flip();
+        }
+        return buffer.remaining() >= bytes;
+    }
+
+    private void add(byte kind, int offset, int length) {
+        if (count == kinds.length) {
+            kinds = Arrays.copyOf(kinds, count * 2);
+            offsets = Arrays.copyOf(offsets, count * 2);
+            lengths = Arrays.copyOf(lengths, count * 2);
+        }
+        kinds[count] = kind;
+        offsets[count] = offset;
+        lengths[count] = length;
+        count++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Field " + index + " out of " + count);
+        }
+    }
+
+    private static UncheckedIOException corrupt(String message) {
+        return new UncheckedIOException(new IOException(message));
+    }
+}
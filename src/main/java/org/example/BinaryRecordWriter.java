@@ -0,0 +1,67 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes records in the format BinaryRecordReader reads. Fields are added
+ * one after the other and endRecord writes them out as one record.
+ */
+final class BinaryRecordWriter implements Closeable {
+    private final DataOutputStream out;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    private final DataOutputStream record = new DataOutputStream(bytes);
+    private int fields;
+
+    public BinaryRecordWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        this.out.writeInt(BinaryRecordReader.MAGIC);
+    }
+
+    public BinaryRecordWriter text(String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length > 0xFFFF) {
+            throw new IllegalArgumentException("Invalid value.");
+        }
+        record.writeByte(BinaryRecordReader.TEXT);
+        record.writeShort(utf8.length);
+        record.write(utf8);
+        fields++;
+        return this;
+    }
+
+    public BinaryRecordWriter integer(int value) throws IOException {
+        record.writeByte(BinaryRecordReader.INT);
+        record.writeInt(value);
+        fields++;
+        return this;
+    }
+
+    public BinaryRecordWriter decimal(double value) throws IOException {
+        record.writeByte(BinaryRecordReader.DOUBLE);
+        record.writeDouble(value);
+        fields++;
+        return this;
+    }
+
+    public void endRecord() throws IOException {
+        if (fields > 0xFF || bytes.size() + 1 > BinaryRecordReader.MAX_RECORD_LENGTH) {
+            throw new IllegalArgumentException("Invalid value.");
+        }
+        out.writeInt(bytes.size() + 1);
+        out.writeByte(fields);
+        bytes.writeTo(out);
+        bytes.reset();
+        fields = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,60 @@
+package org.example;
+
+/**
+ * One line of a cart: the product as the inventory holds it, the price it
+ * was added at and the quantity in the cart. The product is referred to,
+ * not copied, so a line costs one small object whatever kind of product it
+ * is; name and type are read from the product when asked for.
+ */
+final class CartLine {
+    private final Product product;
+    // Kept, it is the key the line is looked up by
+    private final String itemId;
+    private final double price;
+    private int quantity;
+
+    CartLine(Product product, String itemId, double price, int quantity) {
+        this.product = product;
+        this.itemId = itemId;
+        this.price = price;
+        this.quantity = quantity;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public String getItemId() {
+        return itemId;
+    }
+
+    public String getName() {
+        return product.getName();
+    }
+
+    public ProductType getType() {
+        return product.getType();
+    }
+
+    // The price when the line was added
+    public double getPrice() {
+        return price;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    CartLine copy() {
+        return new CartLine(product, itemId, price, quantity);
+    }
+
+    @Override
+    public String toString() {
+        return itemId + " " + getName() + " " + price + " Quantity: " + quantity;
+    }
+}
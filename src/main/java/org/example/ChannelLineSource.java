@@ -0,0 +1,342 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+
+/**
+ * Line source over a byte channel. Lines are split on the raw bytes and only
+ * the bytes of the current line are decoded, into a CharBuffer that is reused
+ * for every line. Line breaks are the ones Scanner.nextLine() knows about
+ * (LF, CRLF, CR, NEL, U+2028 and U+2029) so the output stays the same as
+ * with a Scanner. Works for ASCII compatible charsets, see {@link #supports}.
+ */
+class ChannelLineSource implements LineSource {
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    static final long DEFAULT_WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final FileChannel file;
+    private final long windowSize;
+    private final CharsetDecoder decoder;
+    private final boolean utf8;
+    private final boolean latin1;
+
+    private ByteBuffer bytes;
+    // Offset in the input of bytes index 0
+    private long base;
+    private CharBuffer chars = CharBuffer.allocate(256);
+    private boolean eof;
+    private boolean skipLf;
+    private int scanned;
+    // Offsets of the last line returned, -1 before the first
+    private long lineStart = -1;
+    private long lineEnd;
+
+    private ChannelLineSource(ReadableByteChannel channel, FileChannel file, int bufferSize, long windowSize,
+            Charset charset) {
+        if (!supports(charset)) {
+            throw new IllegalArgumentException("Unsupported charset: " + charset);
+        }
+        this.channel = channel;
+        this.file = file;
+        this.windowSize = windowSize;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.utf8 = charset.equals(StandardCharsets.UTF_8);
+        this.latin1 = charset.equals(StandardCharsets.ISO_8859_1);
+        this.bytes = ByteBuffer.allocate(file == null ? bufferSize : 0);
+        this.bytes.flip();
+    }
+
+    public static boolean supports(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.ISO_8859_1)
+                || charset.equals(StandardCharsets.US_ASCII);
+    }
+
+    public static ChannelLineSource of(InputStream in, Charset charset) {
+        return of(Channels.newChannel(in), DEFAULT_BUFFER_SIZE, charset);
+    }
+
+    public static ChannelLineSource of(ReadableByteChannel channel, int bufferSize, Charset charset) {
+        return new ChannelLineSource(channel, null, bufferSize, 0, charset);
+    }
+
+    public static ChannelLineSource open(Path path, Charset charset) throws IOException {
+        return of(FileChannel.open(path, StandardOpenOption.READ), DEFAULT_BUFFER_SIZE, charset);
+    }
+
+    public static ChannelLineSource mapped(Path path, Charset charset) throws IOException {
+        return mapped(path, DEFAULT_WINDOW_SIZE, charset);
+    }
+
+    public static ChannelLineSource mapped(Path path, long windowSize, Charset charset) throws IOException {
+        FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+        return new ChannelLineSource(null, file, 0, windowSize, charset);
+    }
+
+    /** Number of input bytes consumed so far. */
+    public long position() {
+        return base + bytes.position();
+    }
+
+    // Where the last line returned by nextLine() starts, -1 if there was none
+    public long lineStart() {
+        return lineStart;
+    }
+
+    // Where the line after the last one returned starts
+    public long lineEnd() {
+        return lineEnd;
+    }
+
+    /** The last line returned, valid until the next call to nextLine(). */
+    public CharSequence lastLine() {
+        return lineStart < 0 ? null : chars;
+    }
+
+    /**
+     * Continues reading at the byte offset, which has to be the start of a
+     * line. Files are positioned directly; other channels can only move
+     * forward and read over the bytes in between without splitting lines.
+     */
+    public void seek(long offset) {
+        skipLf = false;
+        if (offset >= base && offset <= base + bytes.limit()) {
+            bytes.position((int) (offset - base));
+            return;
+        }
+        if (file != null) {
+            // remap() maps from position() on the next read
+            bytes = ByteBuffer.allocate(0);
+            base = offset;
+            eof = false;
+            return;
+        }
+        if (channel instanceof SeekableByteChannel) {
+            try {
+                ((SeekableByteChannel) channel).position(offset);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            bytes.clear().flip();
+            base = offset;
+            eof = false;
+            return;
+        }
+        if (offset < base) {
+            throw new IllegalStateException("Cannot seek back in a stream");
+        }
+        while (base + bytes.limit() < offset) {
+            if (eof) {
+                throw new IllegalStateException("Input ends before offset " + offset);
+            }
+            bytes.position(bytes.limit());
+            refill();
+        }
+        bytes.position((int) (offset - base));
+    }
+
+    @Override
+    public boolean hasNextLine() {
+        if (skipLf) {
+            if (ensureAvailable() && bytes.get(bytes.position()) == '\n') {
+                bytes.position(bytes.position() + 1);
+            }
+            skipLf = false;
+        }
+        return ensureAvailable();
+    }
+
+    @Override
+    public CharSequence nextLine() {
+        if (!hasNextLine()) {
+            throw new NoSuchElementException("No line found");
+        }
+        int from = bytes.position();
+        lineStart = position();
+        while (true) {
+            int end = findTerminator(from);
+            if (end >= 0) {
+                int terminatorLength = terminatorLength(end);
+                decode(bytes.position(), end);
+                skipLf = bytes.get(end) == '\r';
+                bytes.position(end + terminatorLength);
+                lineEnd = position();
+                return chars;
+            }
+            if (eof) {
+                decode(bytes.position(), bytes.limit());
+                bytes.position(bytes.limit());
+                lineEnd = position();
+                return chars;
+            }
+            int offset = scanned - bytes.position();
+            refill();
+            from = bytes.position() + offset;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+            if (file != null) {
+                file.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean ensureAvailable() {
+        while (!bytes.hasRemaining() && !eof) {
+            refill();
+        }
+        return bytes.hasRemaining();
+    }
+
+    // Index of the next line break at or after from, or -1 with scanned set
+    // to where the search has to resume once more bytes are available
+    private int findTerminator(int from) {
+        int limit = bytes.limit();
+        for (int i = from; i < limit; i++) {
+            byte b = bytes.get(i);
+            if (b >= 0) {
+                if (b == '\n' || b == '\r') {
+                    return i;
+                }
+                continue;
+            }
+            if (latin1 && b == (byte) 0x85) {
+                return i;
+            }
+            if (utf8 && (b == (byte) 0xC2 || b == (byte) 0xE2)) {
+                int needed = b == (byte) 0xC2 ? 2 : 3;
+                if (i + needed > limit) {
+                    if (eof) {
+                        continue;
+                    }
+                    scanned = i;
+                    return -1;
+                }
+                if (terminatorLength(i) > 0) {
+                    return i;
+                }
+            }
+        }
+        scanned = limit;
+        return -1;
+    }
+
+    private int terminatorLength(int i) {
+        byte b = bytes.get(i);
+        if (b == '\n' || b == '\r' || (latin1 && b == (byte) 0x85)) {
+            return 1;
+        }
+        if (utf8 && b == (byte) 0xC2 && bytes.get(i + 1) == (byte) 0x85) {
+            return 2;
+        }
+        if (utf8 && b == (byte) 0xE2 && bytes.get(i + 1) == (byte) 0x80
+                && (bytes.get(i + 2) == (byte) 0xA8 || bytes.get(i + 2) == (byte) 0xA9)) {
+            return 3;
+        }
+        return 0;
+    }
+
+    private void decode(int start, int end) {
+        chars.clear();
+        if (chars.capacity() < end - start) {
+            chars = CharBuffer.allocate(Math.max(end - start, chars.capacity() * 2));
+        }
+        int i = start;
+        for (; i < end; i++) {
+            byte b = bytes.get(i);
+            if (b < 0) {
+                break;
+            }
+            chars.put((char) b);
+        }
+        if (i < end) {
+            ByteBuffer in = bytes.duplicate();
+            in.limit(end).position(i);
+            decoder.reset();
+            while (decoder.decode(in, chars, true).isOverflow()) {
+                growChars();
+            }
+            CoderResult result;
+            while ((result = decoder.flush(chars)).isOverflow()) {
+                growChars();
+            }
+            if (result.isError()) {
+                throw new IllegalStateException(result.toString());
+            }
+        }
+        chars.flip();
+    }
+
+    private void growChars() {
+        CharBuffer bigger = CharBuffer.allocate(chars.capacity() * 2);
+        chars.flip();
+        bigger.put(chars);
+        chars = bigger;
+    }
+
+    // Keeps the bytes from position() on and adds more after them
+    private void refill() {
+        try {
+            if (file != null) {
+                remap();
+                return;
+            }
+            base += bytes.position();
+            bytes.compact();
+            if (!bytes.hasRemaining()) {
+                ByteBuffer bigger = ByteBuffer.allocate(bytes.capacity() * 2);
+                bytes.flip();
+                bigger.put(bytes);
+                bytes = bigger;
+            }
+            int read = channel.read(bytes);
+            if (read < 0) {
+                eof = true;
+            }
+            bytes.flip();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void remap() throws IOException {
+        long start = position();
+        long available = file.size() - start;
+        int kept = bytes.remaining();
+        if (available <= kept) {
+            eof = true;
+            return;
+        }
+        long size = Math.min(available, Math.max(windowSize, kept * 2L));
+        if (size > Integer.MAX_VALUE) {
+            size = Integer.MAX_VALUE;
+        }
+        bytes = file.map(FileChannel.MapMode.READ_ONLY, start, size);
+        base = start;
+    }
+}
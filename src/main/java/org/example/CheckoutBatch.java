@@ -0,0 +1,128 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Holds up to capacity checked-out orders and the output between them
+ * until {@link #settle} pays them all. Payments are grouped by payment
+ * method: each group is handed to one Payment of the method, as a single
+ * call when it is a {@link BatchPayment}. Only orders whose processOrder
+ * just calls the payment are charged that way, any other order still pays
+ * through its own processOrder. Results and output callbacks
+ * then run in the order they were added, so the output reads the same as
+ * paying every order when it is read.
+ */
+class CheckoutBatch {
+    private final int capacity;
+    private final ValidationRules.PaymentMethod[] methods;
+    private final Order[] orders;
+    private final double[] amounts;
+    private final List<Consumer<Boolean>> onResults;
+    // Set for output entries, which have no payment
+    private final Runnable[] callbacks;
+    private final boolean[] results;
+    private final boolean[] paid;
+    private int count;
+    // Scratch space for one payment method
+    private final int[] group;
+    private final double[] groupAmounts;
+    private final boolean[] groupResults;
+
+    public CheckoutBatch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid value.");
+        }
+        this.capacity = capacity;
+        this.methods = new ValidationRules.PaymentMethod[capacity];
+        this.orders = new Order[capacity];
+        this.amounts = new double[capacity];
+        this.onResults = new ArrayList<>(Collections.nCopies(capacity, null));
+        this.callbacks = new Runnable[capacity];
+        this.results = new boolean[capacity];
+        this.paid = new boolean[capacity];
+        this.group = new int[capacity];
+        this.groupAmounts = new double[capacity];
+        this.groupResults = new boolean[capacity];
+    }
+
+    public boolean isFull() {
+        return count == capacity;
+    }
+
+    public void add(Order order, ValidationRules.PaymentMethod method, double amount, Consumer<Boolean> onResult) {
+        if (isFull()) {
+            throw new IllegalStateException("Checkout batch is full");
+        }
+        methods[count] = method;
+        orders[count] = order;
+        amounts[count] = amount;
+        onResults.set(count, onResult);
+        count++;
+    }
+
+    // Runs the callback after the orders added before it are reported
+    public void then(Runnable callback) {
+        if (isFull()) {
+            throw new IllegalStateException("Checkout batch is full");
+        }
+        callbacks[count++] = callback;
+    }
+
+    /**
+     * Pays every order of the batch with the Payment paymentFor gives for
+     * its method, then reports them and runs the callbacks in the order
+     * they were added. Leaves the batch empty.
+     */
+    public void settle(Function<ValidationRules.PaymentMethod, Payment> paymentFor) {
+        try {
+            for (int i = 0; i < count; i++) {
+                if (callbacks[i] == null && !paid[i]) {
+                    pay(methods[i], paymentFor.apply(methods[i]), i);
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                if (callbacks[i] != null) {
+                    callbacks[i].run();
+                } else {
+                    onResults.get(i).accept(results[i]);
+                }
+            }
+        } finally {
+            Arrays.fill(methods, 0, count, null);
+            Arrays.fill(orders, 0, count, null);
+            Collections.fill(onResults.subList(0, count), null);
+            Arrays.fill(callbacks, 0, count, null);
+            Arrays.fill(paid, 0, count, false);
+            count = 0;
+        }
+    }
+
+    // Pays the orders from first on that have the method
+    private void pay(ValidationRules.PaymentMethod method, Payment payment, int first) {
+        boolean batch = payment instanceof BatchPayment;
+        int size = 0;
+        for (int i = first; i < count; i++) {
+            if (callbacks[i] == null && methods[i] == method) {
+                paid[i] = true;
+                if (batch && orders[i].paysDirectly()) {
+                    group[size] = i;
+                    groupAmounts[size] = amounts[i];
+                    size++;
+                } else {
+                    results[i] = orders[i].processOrder(payment, amounts[i]);
+                }
+            }
+        }
+        if (size > 0) {
+            ((BatchPayment) payment).processPayments(groupAmounts, size, groupResults);
+            for (int i = 0; i < size; i++) {
+                results[group[i]] = groupResults[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.example;
+
+/**
+ * How far a run got through its input: the phase, the number of records
+ * of the phase's section it consumed and the byte offsets of the last line
+ * it read, with a hash of that line so a later run can check it is reading
+ * the same input before it seeks there.
+ * <p>
+ * The settings fingerprint covers the limits that decide how the input is
+ * read, the state fingerprint the customers, products, reserved stock and
+ * orders the records before the checkpoint produced. A run only resumes
+ * from a checkpoint when both still match.
+ */
+final class Checkpoint {
+    private final Phase phase;
+    private final int count;
+    private final int records;
+    private final boolean open;
+    private final long lineStart;
+    private final long lineEnd;
+    private final long lineHash;
+    private final long settings;
+    private final long state;
+
+    public Checkpoint(Phase phase, int count, int records, boolean open, long lineStart, long lineEnd,
+            long lineHash, long settings, long state) {
+        this.phase = phase;
+        this.count = count;
+        this.records = records;
+        this.open = open;
+        this.lineStart = lineStart;
+        this.lineEnd = lineEnd;
+        this.lineHash = lineHash;
+        this.settings = settings;
+        this.state = state;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    // Records the section holds: its count header, or the limit when streamed
+    public int getCount() {
+        return count;
+    }
+
+    public int getRecords() {
+        return records;
+    }
+
+    // A streamed section that ran into the end of the input, lines appended later belong to it
+    public boolean isOpen() {
+        return open;
+    }
+
+    // Offset of the last line read, -1 when nothing was read yet
+    public long getLineStart() {
+        return lineStart;
+    }
+
+    // Offset the next line starts at
+    public long getLineEnd() {
+        return lineEnd;
+    }
+
+    public long getLineHash() {
+        return lineHash;
+    }
+
+    public long getSettings() {
+        return settings;
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public Checkpoint withState(long state) {
+        return new Checkpoint(phase, count, records, open, lineStart, lineEnd, lineHash, settings, state);
+    }
+
+    // The same input position at the end of a phase that reads no input
+    public Checkpoint endOf(Phase phase) {
+        return new Checkpoint(phase, 0, 0, false, lineStart, lineEnd, lineHash, settings, state);
+    }
+}
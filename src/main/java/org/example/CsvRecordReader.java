@@ -0,0 +1,150 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads comma separated values as RFC 4180 has them: records end at CRLF
+ * (a bare LF is taken too), a field in double quotes may hold commas, line
+ * breaks and quotes written as two quotes, and spaces belong to the field.
+ * Files opened with {@link #open(Path)} are UTF-8 and start with a header
+ * row, which is skipped.
+ * <p>
+ * The characters of a record are decoded into one reused buffer and a
+ * field only becomes a String when asked for, like in LineTokenizer.
+ */
+final class CsvRecordReader implements RecordReader {
+    private final Reader in;
+    private final char[] buffer = new char[1 << 16];
+    private int position;
+    private int limit;
+    private final StringBuilder chars = new StringBuilder(256);
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int count;
+
+    public CsvRecordReader(Reader in, boolean header) {
+        this.in = in;
+        if (header) {
+            next();
+        }
+    }
+
+    public static CsvRecordReader open(Path path) throws IOException {
+        return new CsvRecordReader(new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8), true);
+    }
+
+    @Override
+    public int next() {
+        chars.setLength(0);
+        count = 0;
+        int c = read();
+        if (c < 0) {
+            return -1;
+        }
+        while (true) {
+            int start = chars.length();
+            if (c == '"') {
+                c = readQuoted();
+            }
+            // Anything up to the next separator, also what follows a closing quote
+            while (c >= 0 && c != ',' && c != '\r' && c != '\n') {
+                chars.append((char) c);
+                c = read();
+            }
+            add(start, chars.length());
+            if (c != ',') {
+                break;
+            }
+            c = read();
+        }
+        if (c == '\r') {
+            c = read();
+            if (c != '\n' && c >= 0) {
+                position--;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String token(int index) {
+        checkIndex(index);
+        return chars.substring(starts[index], ends[index]);
+    }
+
+    @Override
+    public int intToken(int index) {
+        checkIndex(index);
+        return Integer.parseInt(chars, starts[index], ends[index], 10);
+    }
+
+    @Override
+    public double doubleToken(int index) {
+        return Double.parseDouble(token(index));
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Appends the quoted part of a field and returns the character after its closing quote
+    private int readQuoted() {
+        while (true) {
+            int c = read();
+            if (c < 0) {
+                // Unterminated, the field runs to the end of the input
+                return c;
+            }
+            if (c == '"') {
+                c = read();
+                if (c != '"') {
+                    return c;
+                }
+            }
+            chars.append((char) c);
+        }
+    }
+
+    private int read() {
+        if (position == limit) {
+            try {
+                int read;
+                do {
+                    read = in.read(buffer);
+                } while (read == 0);
+                if (read < 0) {
+                    return -1;
+                }
+                position = 0;
+                limit = read;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return buffer[position++];
+    }
+
+    private void add(int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Field " + index + " out of " + count);
+        }
+    }
+}
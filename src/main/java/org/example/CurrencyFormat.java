@@ -0,0 +1,70 @@
+package org.example;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Appends a double with two decimals, giving the same text as
+ * String.format("%.2f", value) without going through a Formatter.
+ * <p>
+ * %.2f rounds half up on the shortest decimal form of the double. Scaling
+ * by 100 and rounding gives the same answer unless the scaled value lies
+ * within a few ulps of a .5 boundary; those values, negatives, very large
+ * values and locales that do not print plain ASCII digits with a '.' take
+ * the String.format path.
+ */
+final class CurrencyFormat {
+    private static final double MAX_FAST = 1e13;
+
+    private static volatile LocaleCheck localeCheck = new LocaleCheck(null, false);
+
+    private CurrencyFormat() {
+    }
+
+    public static void append(StringBuilder sb, double value) {
+        if (!(value >= 0 && value < MAX_FAST) || Double.doubleToRawLongBits(value) < 0 || !plainLocale()) {
+            sb.append(String.format("%.2f", value));
+            return;
+        }
+        double scaled = value * 100;
+        long cents = (long) scaled;
+        double fraction = scaled - cents;
+        if (Math.abs(fraction - 0.5) <= 4 * Math.ulp(scaled)) {
+            sb.append(String.format("%.2f", value));
+            return;
+        }
+        if (fraction > 0.5) {
+            cents++;
+        }
+        sb.append(cents / 100).append('.');
+        int rest = (int) (cents % 100);
+        sb.append((char) ('0' + rest / 10)).append((char) ('0' + rest % 10));
+    }
+
+    public static String format(double value) {
+        StringBuilder sb = new StringBuilder(16);
+        append(sb, value);
+        return sb.toString();
+    }
+
+    private static boolean plainLocale() {
+        Locale current = Locale.getDefault(Locale.Category.FORMAT);
+        LocaleCheck check = localeCheck;
+        if (check.locale != current) {
+            DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(current);
+            check = new LocaleCheck(current, symbols.getDecimalSeparator() == '.' && symbols.getZeroDigit() == '0');
+            localeCheck = check;
+        }
+        return check.plain;
+    }
+
+    private static final class LocaleCheck {
+        final Locale locale;
+        final boolean plain;
+
+        LocaleCheck(Locale locale, boolean plain) {
+            this.locale = locale;
+            this.plain = plain;
+        }
+    }
+}
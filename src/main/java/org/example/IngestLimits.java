@@ -0,0 +1,68 @@
+package org.example;
+
+/**
+ * Batch size limits Helper applies to the input sections.
+ * <p>
+ * With count headers a batch whose header is over the limit is dropped as a
+ * whole, which is what the tool has always done. In streaming mode there are
+ * no count headers: every section runs until a blank line or the end of the
+ * input and each record is handled as soon as it is read. Records past the
+ * limit of a streamed section are read and ignored.
+ * <p>
+ * The cart limit is the number of items a customer's cart may hold, B2B
+ * feeds raise it with {@link #withCartLimit(int)}.
+ */
+class IngestLimits {
+    public static final IngestLimits DEFAULT = new IngestLimits(100, 200, 50, false);
+    public static final IngestLimits UNBOUNDED = new IngestLimits(Integer.MAX_VALUE, Integer.MAX_VALUE,
+            Integer.MAX_VALUE, false);
+
+    private final int maxCustomers;
+    private final int maxProducts;
+    private final int maxOrders;
+    private final int cartLimit;
+    private final boolean streaming;
+
+    public IngestLimits(int maxCustomers, int maxProducts, int maxOrders, boolean streaming) {
+        this(maxCustomers, maxProducts, maxOrders, Order.DEFAULT_CART_LIMIT, streaming);
+    }
+
+    public IngestLimits(int maxCustomers, int maxProducts, int maxOrders, int cartLimit, boolean streaming) {
+        if (maxCustomers < 0 || maxProducts < 0 || maxOrders < 0 || cartLimit < 0) {
+            throw new IllegalArgumentException("Invalid value.");
+        }
+        this.maxCustomers = maxCustomers;
+        this.maxProducts = maxProducts;
+        this.maxOrders = maxOrders;
+        this.cartLimit = cartLimit;
+        this.streaming = streaming;
+    }
+
+    public int getMaxCustomers() {
+        return maxCustomers;
+    }
+
+    public int getMaxProducts() {
+        return maxProducts;
+    }
+
+    public int getMaxOrders() {
+        return maxOrders;
+    }
+
+    public int getCartLimit() {
+        return cartLimit;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public IngestLimits streaming(boolean streaming) {
+        return new IngestLimits(maxCustomers, maxProducts, maxOrders, cartLimit, streaming);
+    }
+
+    public IngestLimits withCartLimit(int cartLimit) {
+        return new IngestLimits(maxCustomers, maxProducts, maxOrders, cartLimit, streaming);
+    }
+}
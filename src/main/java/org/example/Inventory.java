@@ -0,0 +1,121 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Products by id. Lookups and stock reservations are safe from any number
+ * of threads; a reservation either takes the whole quantity or nothing, so
+ * stock never goes below zero. Products keep the order they were added in.
+ * <p>
+ * An inventory created over a {@link WritableProductStore} such as the
+ * columnar {@link ProductCatalog} copies every product into the store and
+ * hands out flyweight views instead of the objects that were put in. One
+ * made with {@link #readOnly(ProductStore)}, over a snapshot, hands out
+ * views as well but takes no new products.
+ */
+class Inventory {
+    private final ConcurrentHashMap<String, Product> products;
+    private final List<Product> inOrder;
+    private final ProductStore store;
+    // The store again when products can be added to it
+    private final WritableProductStore writable;
+
+    public Inventory() {
+        this.products = new ConcurrentHashMap<>();
+        this.inOrder = new ArrayList<>();
+        this.store = null;
+        this.writable = null;
+    }
+
+    public Inventory(WritableProductStore store) {
+        this(store, store);
+    }
+
+    private Inventory(ProductStore store, WritableProductStore writable) {
+        this.products = null;
+        this.inOrder = null;
+        this.store = store;
+        this.writable = writable;
+    }
+
+    // Over a store that is only read and reserved from, put refuses every product
+    public static Inventory readOnly(ProductStore store) {
+        return new Inventory(store, null);
+    }
+
+    public ProductStore getStore() {
+        return store;
+    }
+
+    public int size() {
+        return store != null ? store.size() : products.size();
+    }
+
+    public boolean containsKey(String productId) {
+        return store != null ? store.contains(productId) : products.containsKey(productId);
+    }
+
+    /**
+     * The product with the id, or null. Over a store this is a new
+     * flyweight view on every call, not the object that was put in and not
+     * an Electronics or Fashion instance; read its category and attribute
+     * through {@link Product#getType()}, {@link Product#getWarranty()} and
+     * {@link Product#getSize()} rather than with instanceof.
+     */
+    public Product get(String productId) {
+        if (store != null) {
+            int index = store.indexOf(productId);
+            return index < 0 ? null : store.view(index);
+        }
+        return products.get(productId);
+    }
+
+    // Adds the product unless the id is taken, returns whether it was added
+    public synchronized boolean put(String productId, Product product) {
+        if (store != null) {
+            if (writable == null) {
+                throw new UnsupportedOperationException("Inventory is read-only");
+            }
+            if (!productId.equals(product.getItemId())) {
+                throw new IllegalArgumentException("INVALID_PRODUCT_ID");
+            }
+            return writable.add(product) >= 0;
+        }
+        if (products.putIfAbsent(productId, product) != null) {
+            return false;
+        }
+        inOrder.add(product);
+        return true;
+    }
+
+    public synchronized List<Product> values() {
+        if (store != null) {
+            List<Product> views = new ArrayList<>(store.size());
+            for (int i = 0; i < store.size(); i++) {
+                views.add(store.view(i));
+            }
+            return Collections.unmodifiableList(views);
+        }
+        return Collections.unmodifiableList(new ArrayList<>(inOrder));
+    }
+
+    public boolean reserve(String productId, int quantity) {
+        if (store != null) {
+            int index = store.indexOf(productId);
+            return index >= 0 && store.tryReserve(index, quantity);
+        }
+        Product product = products.get(productId);
+        return product != null && product.tryReserve(quantity);
+    }
+
+    public void release(String productId, int quantity) {
+        Product product = get(productId);
+        if (product == null) {
+            throw new IllegalArgumentException("INVALID_PRODUCT_ID");
+        }
+        product.release(quantity);
+    }
+}
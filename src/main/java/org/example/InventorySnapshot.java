@@ -0,0 +1,318 @@
+package org.example;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Binary copy of the inventory as readProducts left it, memory-mapped so a
+ * run can start without parsing the product section again. Lookups read
+ * the mapped file directly; nothing is deserialized onto the heap.
+ * <p>
+ * Layout, big-endian:
+ * <pre>
+ * header   64 bytes: magic, version, count, slot count, fingerprint and the
+ *          offsets of the sections below
+ * records  32 bytes per product: id and name (offset and length into the
+ *          strings), price, stock, type, warranty or size ordinal
+ * slots    int per slot, index + 1 of the product hashed there, 0 if empty
+ * strings  UTF-8 ids and names
+ * messages the lines readProducts printed, each as a length and UTF-8
+ * </pre>
+ * The fingerprint identifies the product section and limits the snapshot
+ * was taken from. Stock is updated in place with a CAS on the mapping;
+ * opened for write-back the changes end up in the file, otherwise the
+ * mapping is private and the file stays as it was.
+ */
+final class InventorySnapshot implements ProductStore, AutoCloseable {
+    private static final int MAGIC = 0x494E5653; // "INVS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 32;
+
+    private static final int ID_OFFSET = 0;
+    private static final int ID_LENGTH = 4;
+    private static final int NAME_OFFSET = 8;
+    private static final int NAME_LENGTH = 12;
+    private static final int PRICE = 16;
+    private static final int STOCK = 24;
+    private static final int TYPE = 28;
+    private static final int ATTRIBUTE = 29;
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private final FileChannel file;
+    private final MappedByteBuffer buffer;
+    private final boolean writeBack;
+    private final int count;
+    private final int slotCount;
+    private final long fingerprint;
+    private final int slotsOffset;
+    private final int stringsOffset;
+    private final List<String> messages;
+
+    private InventorySnapshot(FileChannel file, MappedByteBuffer buffer, boolean writeBack) {
+        this.file = file;
+        this.buffer = buffer;
+        this.writeBack = writeBack;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not an inventory snapshot");
+        }
+        this.count = buffer.getInt(8);
+        this.slotCount = buffer.getInt(12);
+        this.fingerprint = buffer.getLong(16);
+        this.slotsOffset = (int) buffer.getLong(32);
+        this.stringsOffset = (int) buffer.getLong(40);
+        int messagesOffset = (int) buffer.getLong(48);
+        int messageCount = buffer.getInt(56);
+        List<String> lines = new ArrayList<>(messageCount);
+        int position = messagesOffset;
+        for (int i = 0; i < messageCount; i++) {
+            int length = buffer.getInt(position);
+            lines.add(decode(position + 4, length));
+            position += 4 + length;
+        }
+        this.messages = Collections.unmodifiableList(lines);
+    }
+
+    /** Maps a snapshot; with writeBack stock changes are stored in the file. */
+    public static InventorySnapshot open(Path path, boolean writeBack) throws IOException {
+        // A private mapping needs a writable channel too, it just never writes to the file
+        FileChannel file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (file.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Snapshot too large");
+            }
+            MappedByteBuffer buffer = file.map(writeBack ? FileChannel.MapMode.READ_WRITE
+                    : FileChannel.MapMode.PRIVATE, 0, file.size());
+            return new InventorySnapshot(file, buffer, writeBack);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the inventory with the fingerprint of its product section and
+     * the lines printed while reading it. The file is replaced atomically.
+     */
+    public static void write(Path path, Inventory inventory, long fingerprint, List<String> messages)
+            throws IOException {
+        List<Product> products = inventory.values();
+        int count = products.size();
+        int slotCount = Integer.highestOneBit(Math.max(count, 1) * 2 - 1) * 2;
+        byte[][] ids = new byte[count][];
+        byte[][] names = new byte[count][];
+        long stringsSize = 0;
+        for (int i = 0; i < count; i++) {
+            ids[i] = products.get(i).getItemId().getBytes(StandardCharsets.UTF_8);
+            names[i] = products.get(i).getName().getBytes(StandardCharsets.UTF_8);
+            stringsSize += ids[i].length + names[i].length;
+        }
+        long messagesSize = 0;
+        byte[][] lines = new byte[messages.size()][];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = messages.get(i).getBytes(StandardCharsets.UTF_8);
+            messagesSize += 4 + lines[i].length;
+        }
+        long slotsOffset = HEADER_SIZE + (long) count * RECORD_SIZE;
+        long stringsOffset = slotsOffset + 4L * slotCount;
+        long messagesOffset = stringsOffset + stringsSize;
+        long size = messagesOffset + messagesSize;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Snapshot too large");
+        }
+
+        ByteBuffer out = ByteBuffer.allocate((int) size);
+        out.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, count).putInt(12, slotCount).putLong(16, fingerprint)
+                .putLong(24, HEADER_SIZE).putLong(32, slotsOffset).putLong(40, stringsOffset)
+                .putLong(48, messagesOffset).putInt(56, lines.length);
+        int strings = 0;
+        int mask = slotCount - 1;
+        for (int i = 0; i < count; i++) {
+            Product product = products.get(i);
+            int record = HEADER_SIZE + i * RECORD_SIZE;
+            out.putInt(record + ID_OFFSET, strings).putInt(record + ID_LENGTH, ids[i].length);
+            out.put((int) stringsOffset + strings, ids[i]);
+            strings += ids[i].length;
+            out.putInt(record + NAME_OFFSET, strings).putInt(record + NAME_LENGTH, names[i].length);
+            out.put((int) stringsOffset + strings, names[i]);
+            strings += names[i].length;
+            out.putDouble(record + PRICE, product.getPrice()).putInt(record + STOCK, product.getQuantity());
+            out.put(record + TYPE, (byte) product.getType().getId())
+                    .put(record + ATTRIBUTE, (byte) product.getAttribute());
+            int slot = hash(product.getItemId()) & mask;
+            while (out.getInt((int) slotsOffset + 4 * slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            out.putInt((int) slotsOffset + 4 * slot, i + 1);
+        }
+        int position = (int) messagesOffset;
+        for (byte[] line : lines) {
+            out.putInt(position, line.length).put(position + 4, line);
+            position += 4 + line.length;
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    // What readProducts printed when the snapshot was taken
+    public List<String> getMessages() {
+        return messages;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int indexOf(String id) {
+        int mask = slotCount - 1;
+        for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+            int entry = buffer.getInt(slotsOffset + 4 * slot);
+            if (entry == 0) {
+                return -1;
+            }
+            int record = record(entry - 1);
+            if (matches(buffer.getInt(record + ID_OFFSET), buffer.getInt(record + ID_LENGTH), id)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    @Override
+    public String id(int index) {
+        int record = record(index);
+        return decode(stringsOffset + buffer.getInt(record + ID_OFFSET), buffer.getInt(record + ID_LENGTH));
+    }
+
+    @Override
+    public String name(int index) {
+        int record = record(index);
+        return decode(stringsOffset + buffer.getInt(record + NAME_OFFSET), buffer.getInt(record + NAME_LENGTH));
+    }
+
+    @Override
+    public double price(int index) {
+        return buffer.getDouble(record(index) + PRICE);
+    }
+
+    @Override
+    public ProductType type(int index) {
+        return ProductType.byId(buffer.get(record(index) + TYPE));
+    }
+
+    @Override
+    public int attribute(int index) {
+        return buffer.get(record(index) + ATTRIBUTE);
+    }
+
+    @Override
+    public int stock(int index) {
+        return (int) INT.getVolatile(buffer, record(index) + STOCK);
+    }
+
+    @Override
+    public void setStock(int index, int quantity) {
+        INT.setVolatile(buffer, record(index) + STOCK, quantity);
+    }
+
+    @Override
+    public boolean tryReserve(int index, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("INVALID_QUANTITY");
+        }
+        int offset = record(index) + STOCK;
+        while (true) {
+            int left = (int) INT.getVolatile(buffer, offset);
+            if (quantity > left) {
+                return false;
+            }
+            if (INT.compareAndSet(buffer, offset, left, left - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void release(int index, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("INVALID_QUANTITY");
+        }
+        INT.getAndAdd(buffer, record(index) + STOCK, quantity);
+    }
+
+    // Flushes written back stock to the file
+    public void force() {
+        if (writeBack) {
+            buffer.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        file.close();
+    }
+
+    private int record(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    private String decode(int position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Compares without decoding as long as the id is ASCII
+    private boolean matches(int offset, int length, String id) {
+        int position = stringsOffset + offset;
+        if (length != id.length()) {
+            return length > id.length() && decode(position, length).equals(id);
+        }
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get(position + i);
+            if (b < 0) {
+                return decode(position, length).equals(id);
+            }
+            if (b != id.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(String id) {
+        int h = id.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,34 @@
+package org.example;
+
+/**
+ * 64-bit FNV-1a hash over input lines, used to tell whether a section of
+ * the input is the same one a stored result was made from.
+ */
+final class LineFingerprint {
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private long hash = OFFSET_BASIS;
+
+    public void add(CharSequence line) {
+        long h = hash;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            h = (h ^ (c & 0xFF)) * PRIME;
+            h = (h ^ (c >>> 8)) * PRIME;
+        }
+        hash = (h ^ '\n') * PRIME;
+    }
+
+    public void add(long value) {
+        long h = hash;
+        for (int shift = 0; shift < 64; shift += 8) {
+            h = (h ^ ((value >>> shift) & 0xFF)) * PRIME;
+        }
+        hash = h;
+    }
+
+    public long value() {
+        return hash;
+    }
+}
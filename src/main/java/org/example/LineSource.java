@@ -0,0 +1,45 @@
+package org.example;
+
+import java.io.Closeable;
+import java.util.Scanner;
+
+/**
+ * Where Helper pulls its input lines from. The returned line is only valid
+ * until the next call to {@link #nextLine()}; implementations may reuse it.
+ */
+interface LineSource extends Closeable {
+    boolean hasNextLine();
+
+    CharSequence nextLine();
+
+    @Override
+    default void close() {
+    }
+
+    static LineSource of(Scanner scanner) {
+        return new ScannerLineSource(scanner);
+    }
+}
+
+class ScannerLineSource implements LineSource {
+    private final Scanner scanner;
+
+    public ScannerLineSource(Scanner scanner) {
+        this.scanner = scanner;
+    }
+
+    @Override
+    public boolean hasNextLine() {
+        return scanner.hasNextLine();
+    }
+
+    @Override
+    public CharSequence nextLine() {
+        return scanner.nextLine();
+    }
+
+    @Override
+    public void close() {
+        scanner.close();
+    }
+}
@@ -0,0 +1,104 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Splits an input line into tokens using the same rules as the old
+ * {@code "([^"]*)"|(\S+)} pattern: a double-quoted run becomes one token
+ * (without the quotes) and anything else is split on whitespace.
+ * Token bounds are kept in reusable arrays, a token only becomes a String
+ * when someone asks for it.
+ */
+class LineTokenizer implements RecordFields {
+    private CharSequence line;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int count;
+
+    public int tokenize(CharSequence line) {
+        this.line = line;
+        this.count = 0;
+        int length = line.length();
+        int i = 0;
+        while (i < length) {
+            char c = line.charAt(i);
+            if (isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            if (c == '"') {
+                int close = indexOfQuote(line, i + 1, length);
+                if (close >= 0) {
+                    add(i + 1, close);
+                    i = close + 1;
+                    continue;
+                }
+            }
+            int start = i;
+            while (i < length && !isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            add(start, i);
+        }
+        return count;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    @Override
+    public String token(int index) {
+        checkIndex(index);
+        return line.subSequence(starts[index], ends[index]).toString();
+    }
+
+    @Override
+    public int intToken(int index) {
+        checkIndex(index);
+        return Integer.parseInt(line, starts[index], ends[index], 10);
+    }
+
+    @Override
+    public double doubleToken(int index) {
+        return Double.parseDouble(token(index));
+    }
+
+    public String[] toArray() {
+        String[] tokens = new String[count];
+        for (int i = 0; i < count; i++) {
+            tokens[i] = token(i);
+        }
+        return tokens;
+    }
+
+    private void add(int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Token " + index + " out of " + count);
+        }
+    }
+
+    private static int indexOfQuote(CharSequence line, int from, int length) {
+        for (int i = from; i < length; i++) {
+            if (line.charAt(i) == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Same set as the regex \s class: [ \t\n\x0B\f\r]
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -1,289 +1,1075 @@
 package org.example;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
 import java.util.*;
 import java.io.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 
 public class Main {
-    public static void main(String[] args) {
+    private static final Logger LOGGER = LogManager.getLogger(Main.class);
+
+    public static void main(String[] args) throws IOException {
+        RunOptions options = RunOptions.parse(args);
+        try (LineSource scanner = openInput(options.inputPath, options.mapped)) {
+            run(options, scanner, OutputSink.buffered(System.out));
+        }
+    }
+
+    // One batch run over the whole input: the four phases and the cart report
+    static void run(RunOptions options, LineSource scanner, OutputSink out) throws IOException {
         LinkedHashMap<String, Customer> customers = new LinkedHashMap<>();
-        LinkedHashMap<String, Product> inventory = new LinkedHashMap<>();
         LinkedHashMap<String, Order> orders = new LinkedHashMap<>();
+        InventorySnapshot snapshot = null;
+        Inventory inventory;
+        if (options.snapshotPath != null && Files.exists(Path.of(options.snapshotPath))) {
+            snapshot = InventorySnapshot.open(Path.of(options.snapshotPath), options.snapshotWriteBack);
+            inventory = Inventory.readOnly(snapshot);
+            LOGGER.info("Inventory taken from snapshot {}", options.snapshotPath);
+        } else {
+            inventory = options.columnarCatalog ? new Inventory(new ProductCatalog()) : new Inventory();
+        }
+
+        Order.verifyTotals |= options.verifyTotals;
+
+        Pricing pricing = Pricing.DEFAULT;
+        Helper helper = new Helper(out);
+        helper.setLimits(options.effectiveLimits());
+        helper.setPricing(pricing);
+        helper.setRules(options.rulesPath == null ? ValidationRules.DEFAULT
+                : ValidationRules.load(Path.of(options.rulesPath)));
+        helper.setCartWorkers(options.cartWorkers);
+        helper.setOrderBatch(options.orderBatch);
+        Metrics metrics = options.metricsPath == null ? null : new Metrics();
+        helper.setMetrics(metrics);
+        RejectLog rejectLog = new RejectLog(options.rejectLogRate);
+        helper.setRejectLog(rejectLog);
+        SimulatedGateway gateway = null;
+        if (options.simulatedGatewayMillis >= 0) {
+            gateway = new SimulatedGateway(options.simulatedGatewayMillis * 1000, 0);
+            helper.setPaymentGateway(gateway);
+        }
+        PaymentPipeline payments = null;
+        if (options.paymentsInFlight > 1) {
+            payments = new PaymentPipeline(options.paymentsInFlight, options.paymentTimeoutMillis);
+            helper.setPaymentPipeline(payments);
+        }
+        WriteAheadLog wal = null;
+        WriteAheadLog.Recovery recovery = new WriteAheadLog.Recovery();
+        if (options.walPath != null) {
+            wal = WriteAheadLog.open(Path.of(options.walPath), customers, inventory, orders,
+                    options.effectiveLimits().getCartLimit(), pricing, options.walGroupMicros,
+                    options.walCompactBytes);
+            recovery = wal.getRecovery();
+            LOGGER.info("Recovered {} records from {}, last completed phase {}", Unbox.box(recovery.getRecords()),
+                    options.walPath, recovery.getCompletedPhase());
+            helper.setListener(wal);
+            helper.setPaymentOutcomes(recovery.getPaymentOutcomes());
+            helper.setCheckpointInterval(options.checkpointEvery);
+        }
+        if (AuditLog.isEnabled()) {
+            helper.setListener(ProcessingListener.both(helper.getListener(), new AuditLog()));
+        }
+        OrderAnalytics analytics = null;
+        if (options.analyticsPath != null) {
+            analytics = new OrderAnalytics();
+            helper.setListener(ProcessingListener.both(helper.getListener(), analytics));
+        }
+
+        try {
+            Checkpoint checkpoint = recovery.getCheckpoint();
+            if (checkpoint != null) {
+                LOGGER.info("Resuming after record {} of {}", Unbox.box(checkpoint.getRecords()),
+                        checkpoint.getPhase());
+                // A finished streamed section may have grown since, its new lines are read too
+                helper.resume(scanner, checkpoint,
+                        !recovery.isCompleted(checkpoint.getPhase()) || checkpoint.isOpen());
+            }
+            if (options.customersPath != null) {
+                try (RecordReader reader = RecordReader.open(Path.of(options.customersPath))) {
+                    helper.readCustomers(reader, customers);
+                }
+            } else if (pending(Phase.CUSTOMERS, recovery, helper, scanner)) {
+                helper.readCustomers(scanner, customers);
+            }
+            if (options.productsPath != null) {
+                try (RecordReader reader = RecordReader.open(Path.of(options.productsPath))) {
+                    helper.readProducts(reader, inventory);
+                }
+            } else if (pending(Phase.PRODUCTS, recovery, helper, scanner)) {
+                if (snapshot != null) {
+                    helper.readProducts(scanner, snapshot);
+                } else if (options.snapshotPath != null) {
+                    helper.readProducts(scanner, inventory, Path.of(options.snapshotPath));
+                } else {
+                    helper.readProducts(scanner, inventory);
+                }
+            }
+            if (pending(Phase.CART_ADDITIONS, recovery, helper, scanner)) {
+                helper.readCartAdditions(scanner, customers, inventory);
+            }
+            if (pending(Phase.CART_REPORT, recovery, helper, scanner)) {
+                helper.printCustomerCartDetails(customers);
+            }
+            if (pending(Phase.ORDERS, recovery, helper, scanner)) {
+                helper.readOrders(scanner, customers, inventory, orders);
+            }
+            if (options.servePort >= 0) {
+                helper.flush();
+                serve(helper, customers, inventory, orders, options.servePort);
+            }
+        } finally {
+            helper.flush();
+            helper.setCartWorkers(1);
+            rejectLog.close();
+            if (payments != null) {
+                payments.close();
+            }
+            if (gateway != null) {
+                gateway.close();
+            }
+            if (snapshot != null) {
+                snapshot.close();
+            }
+            if (wal != null) {
+                wal.close();
+            }
+        }
+        if (metrics != null) {
+            metrics.write(Path.of(options.metricsPath));
+            LOGGER.info("Metrics written to {}", options.metricsPath);
+        }
+        if (analytics != null) {
+            analytics.write(Path.of(options.analyticsPath));
+            LOGGER.info("Analytics written to {}", options.analyticsPath);
+        }
+    }
+
+    // Serves the loaded state until the JVM is asked to shut down
+    private static void serve(Helper helper, LinkedHashMap<String, Customer> customers, Inventory inventory,
+            LinkedHashMap<String, Order> orders, int port) throws IOException {
+        ShopServer server = new ShopServer(helper, customers, inventory, orders, port);
+        Thread main = Thread.currentThread();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            try {
+                // Lets run flush and close what it opened before the JVM exits
+                main.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "shutdown"));
+        try {
+            server.await();
+        } catch (InterruptedException e) {
+            server.close();
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.info("Service stopped");
+    }
 
-        Scanner scanner = new Scanner(System.in);
-        Helper helper = new Helper(System.out);
+    // Whether the phase still has to run. The input of a phase an earlier run finished is
+    // read past, unless a checkpoint already put the input beyond it.
+    private static boolean pending(Phase phase, WriteAheadLog.Recovery recovery, Helper helper, LineSource scanner) {
+        if (helper.resumes(phase) || !recovery.isCompleted(phase)) {
+            return true;
+        }
+        if (recovery.getCheckpoint() == null) {
+            helper.skipPhase(scanner, phase);
+        }
+        return false;
+    }
 
-        helper.readCustomers(scanner, customers);
-        helper.readProducts(scanner, inventory);
-        helper.readCartAdditions(scanner, customers, inventory);
-        helper.printCustomerCartDetails(customers);
-        helper.readOrders(scanner, customers, inventory, orders);
+    static LineSource openInput(String path, boolean mapped) throws IOException {
+        Charset charset = Charset.defaultCharset();
+        if (!ChannelLineSource.supports(charset)) {
+            return LineSource.of(path == null ? new Scanner(System.in) : new Scanner(Path.of(path), charset));
+        }
+        if (path == null) {
+            return ChannelLineSource.of(System.in, charset);
+        }
+        return mapped ? ChannelLineSource.mapped(Path.of(path), charset) : ChannelLineSource.open(Path.of(path), charset);
     }
 }
 
 class Helper {
-    private PrintStream out;
+    private static final Logger LOGGER = LogManager.getLogger(Helper.class);
+
+    private final OutputSink out;
+    private final LineTokenizer tokenizer = new LineTokenizer();
+    private IngestLimits limits = IngestLimits.DEFAULT;
+    private ParallelCartProcessor parallelCarts;
+    private PaymentGateway paymentGateway;
+    private PaymentPipeline payments;
+    // More than 1 checks out that many orders before paying them together
+    private int orderBatch = 1;
+    // Set while a batch of orders is read
+    private CheckoutBatch checkoutBatch;
+    // Set while a section is read for an inventory snapshot
+    private List<String> printed;
+    private ProcessingListener listener = ProcessingListener.NONE;
+    // Payment results by order ordinal that were logged before a crash
+    private Map<Integer, Boolean> paymentOutcomes = Collections.emptyMap();
+    private final SectionCursor cursor = new SectionCursor(this::settle, this::settingsFingerprint,
+            checkpoint -> listener.checkpointReached(checkpoint));
+    // Null while metrics are off
+    private Metrics metrics;
+    private long phaseStart;
+    private long validateStart;
+    private RejectLog rejectLog = RejectLog.NONE;
+    private ValidationRules rules = ValidationRules.DEFAULT;
+    private Pricing pricing = Pricing.DEFAULT;
 
     public Helper(PrintStream out) {
+        this(OutputSink.direct(out));
+    }
+
+    public Helper(OutputSink out) {
         this.out = out;
     }
 
     public void print(String message) {
+        if (printed != null) {
+            printed.add(message);
+        }
         out.println(message);
     }
 
+    public void flush() {
+        out.flush();
+    }
+
+    public IngestLimits getLimits() {
+        return limits;
+    }
+
+    public void setLimits(IngestLimits limits) {
+        this.limits = limits;
+        cursor.setStreaming(limits.isStreaming());
+    }
+
+    // More than one worker applies cart additions in parallel, sharded by customer
+    public void setCartWorkers(int workers) {
+        if (parallelCarts != null) {
+            parallelCarts.close();
+        }
+        parallelCarts = workers > 1 ? new ParallelCartProcessor(workers) : null;
+    }
+
+    // Null keeps the built-in CreditCardPayment and PayPalPayment
+    public void setPaymentGateway(PaymentGateway paymentGateway) {
+        this.paymentGateway = paymentGateway;
+    }
+
+    // With a pipeline readOrders keeps several payments in flight, null pays one order at a time
+    public void setPaymentPipeline(PaymentPipeline payments) {
+        this.payments = payments;
+    }
+
+    public ProcessingListener getListener() {
+        return listener;
+    }
+
+    public void setOrderBatch(int orders) {
+        if (orders < 1) {
+            throw new IllegalArgumentException("Invalid value.");
+        }
+        this.orderBatch = orders;
+    }
+
+    public void setListener(ProcessingListener listener) {
+        this.listener = listener == null ? ProcessingListener.NONE : listener;
+    }
+
+    // Orders with an outcome here are reported with it instead of being paid again
+    public void setPaymentOutcomes(Map<Integer, Boolean> paymentOutcomes) {
+        this.paymentOutcomes = paymentOutcomes;
+    }
+
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void setRules(ValidationRules rules) {
+        this.rules = rules;
+    }
+
+    // A write-ahead log listening to this Helper has to be opened with the same pricing
+    public void setPricing(Pricing pricing) {
+        this.pricing = pricing;
+    }
+
+    public void setRejectLog(RejectLog rejectLog) {
+        this.rejectLog = rejectLog;
+    }
+
+    // -1 for no checkpoints, 0 for one at the end of each phase, otherwise also every that many records
+    public void setCheckpointInterval(int records) {
+        cursor.setCheckpointInterval(records);
+    }
+
+    // A Helper writing to out with the limits, rules, pricing, payments and listeners of this one
+    public Helper withOutput(OutputSink out) {
+        Helper helper = new Helper(out);
+        helper.setLimits(limits);
+        helper.rules = rules;
+        helper.pricing = pricing;
+        helper.paymentGateway = paymentGateway;
+        helper.listener = listener;
+        helper.metrics = metrics;
+        helper.rejectLog = rejectLog;
+        return helper;
+    }
+
+    /**
+     * Moves the input to where the checkpoint was taken, after checking
+     * that the line before that point is the one the checkpoint saw. With
+     * continuePhase the checkpoint's phase reads on from there, otherwise
+     * the next phase starts there.
+     */
+    public void resume(LineSource scanner, Checkpoint checkpoint, boolean continuePhase) {
+        cursor.resume(scanner, checkpoint, continuePhase);
+    }
+
+    // Whether the phase continues from the checkpoint passed to resume
+    public boolean resumes(Phase phase) {
+        return cursor.resumes(phase);
+    }
+
     public void readCustomers(Scanner scanner, LinkedHashMap<String, Customer> customers) {
-        int numberOfCustomers = Integer.parseInt(scanner.nextLine().trim());
-        if (numberOfCustomers > 100) {
+        readCustomers(LineSource.of(scanner), customers);
+    }
+
+    public void readCustomers(LineSource scanner, LinkedHashMap<String, Customer> customers) {
+        startPhase(Phase.CUSTOMERS);
+        readCustomerSection(scanner, customers);
+        completePhase(scanner);
+    }
+
+    private void readCustomerSection(LineSource scanner, LinkedHashMap<String, Customer> customers) {
+        if (cursor.openBatch(scanner, limits.getMaxCustomers()) < 0) {
             return;
         }
-        for (int i = 0; i < numberOfCustomers; i++) {
-            String line = scanner.nextLine();
-            String[] tokens = parseLine(line);
-//            System.out.println(tokens.length);
-            if (tokens.length != 5) {
-                continue;
-            }
-            String customerId = tokens[0];
-            String name = tokens[1];
-            String email = tokens[2];
-            String address = tokens[3];
-            String customerType = tokens[4];
+        CharSequence line;
+        while ((line = cursor.nextRecord(scanner)) != null) {
+            long parseStart = metrics == null ? 0 : System.nanoTime();
+            addCustomer(tokenizer, tokenizer.tokenize(line), parseStart, customers);
+        }
+        LOGGER.debug("{} customers read", Unbox.box(customers.size()));
+        cursor.closeBatch(scanner);
+        out.flush();
+    }
 
-            if (customerId == null || customerId.isEmpty() || customers.containsKey(customerId)) {
-                print("INVALID_CUSTOMER_ID");
-                continue;
-            }
-            if (name.isEmpty() || email.isEmpty() || address.isEmpty()) {
-                continue;
-            }
-            if (!customerType.equals("Regular") && !customerType.equals("Premium")) {
-                continue;
+    /**
+     * Reads customers from a bulk export instead of the customer section of
+     * the input, with the same validation. There is no count header: the
+     * records up to the customer limit are read and the rest are ignored,
+     * as in a streamed section. No checkpoints are taken inside the file.
+     */
+    public void readCustomers(RecordReader reader, LinkedHashMap<String, Customer> customers) {
+        startPhase(Phase.CUSTOMERS);
+        int limit = limits.getMaxCustomers();
+        while (cursor.records() < limit) {
+            long parseStart = metrics == null ? 0 : System.nanoTime();
+            int fields = reader.next();
+            if (fields < 0) {
+                break;
             }
-            Customer customer;
-            if (customerType.equals("Regular")) {
-                customer = new RegularCustomer(customerId, name, email, address);
-            } else {
+            cursor.recordRead();
+            addCustomer(reader, fields, parseStart, customers);
+        }
+        out.flush();
+        completePhase(null);
+    }
+
+    private void addCustomer(RecordFields record, int fields, long parseStart,
+            LinkedHashMap<String, Customer> customers) {
+        if (fields != 5) {
+            drop(RejectReason.MALFORMED_RECORD);
+            return;
+        }
+        String customerId = record.token(0);
+        String name = record.token(1);
+        String email = record.token(2);
+        String address = record.token(3);
+        String customerType = record.token(4);
+        parsed(parseStart);
+
+        if (customerId == null || customerId.isEmpty() || customers.containsKey(customerId)) {
+            reject(RejectReason.INVALID_CUSTOMER_ID);
+            return;
+        }
+        if (name.isEmpty() || email.isEmpty() || address.isEmpty()) {
+            drop(RejectReason.INVALID_VALUE);
+            return;
+        }
+        ValidationRules.CustomerKind kind = rules.customerType(customerType);
+        if (kind == null) {
+            drop(RejectReason.INVALID_VALUE);
+            return;
+        }
+        validated();
+        Customer customer;
+        switch (kind) {
+            case PREMIUM:
                 customer = new PremiumCustomer(customerId, name, email, address);
-            }
-            customers.put(customerId, customer);
+                break;
+            default:
+                customer = new RegularCustomer(customerId, name, email, address);
         }
-//        System.out.println(customers.size());
+        customers.put(customerId, customer);
+        listener.customerAdded(customer);
+    }
+
+    public void readProducts(Scanner scanner, Inventory inventory) {
+        readProducts(LineSource.of(scanner), inventory);
+    }
+
+    public void readProducts(LineSource scanner, Inventory inventory) {
+        startPhase(Phase.PRODUCTS);
+        readProductSection(scanner, inventory);
+        completePhase(scanner);
     }
 
-    public void readProducts(Scanner scanner, LinkedHashMap<String, Product> inventory) {
-        int numberOfProducts = Integer.parseInt(scanner.nextLine().trim());
-        if (numberOfProducts > 200) {
+    private void readProductSection(LineSource scanner, Inventory inventory) {
+        if (cursor.openBatch(scanner, limits.getMaxProducts()) < 0) {
             return;
         }
-        for (int i = 0; i < numberOfProducts; i++) {
-            String line = scanner.nextLine();
-            String[] tokens = parseLine(line);
-            if (tokens.length < 6) {
-                continue;
-            }
-            String productId = tokens[0];
-            String productType = tokens[1];
-            String productName = tokens[2];
-            double price = Double.parseDouble(tokens[3]);
-            int quantity = Integer.parseInt(tokens[4]);
+        CharSequence line;
+        while ((line = cursor.nextRecord(scanner)) != null) {
+            long parseStart = metrics == null ? 0 : System.nanoTime();
+            addProduct(tokenizer, tokenizer.tokenize(line), parseStart, inventory);
+        }
+        cursor.closeBatch(scanner);
+        out.flush();
+    }
 
-            if (productId == null || productId.isEmpty() || inventory.containsKey(productId)) {
-                print("INVALID_PRODUCT_ID");
-                continue;
-            }
-            // Adjusted price constraint to allow prices up to 200,000
-            if (price <= 0 || price > 200000) {
-                continue;
-            }
-            if (quantity <= 0 || quantity > 500) {
-                continue;
+    // Reads products from a bulk export like readCustomers(RecordReader, LinkedHashMap)
+    public void readProducts(RecordReader reader, Inventory inventory) {
+        startPhase(Phase.PRODUCTS);
+        int limit = limits.getMaxProducts();
+        while (cursor.records() < limit) {
+            long parseStart = metrics == null ? 0 : System.nanoTime();
+            int fields = reader.next();
+            if (fields < 0) {
+                break;
             }
+            cursor.recordRead();
+            addProduct(reader, fields, parseStart, inventory);
+        }
+        out.flush();
+        completePhase(null);
+    }
+
+    private void addProduct(RecordFields record, int fields, long parseStart, Inventory inventory) {
+        if (fields < 6) {
+            drop(RejectReason.MALFORMED_RECORD);
+            return;
+        }
+        String productId = record.token(0);
+        String productType = record.token(1);
+        String productName = record.token(2);
+        double price = record.doubleToken(3);
+        int quantity = record.intToken(4);
+        parsed(parseStart);
+
+        if (productId == null || productId.isEmpty() || inventory.containsKey(productId)) {
+            reject(RejectReason.INVALID_PRODUCT_ID);
+            return;
+        }
+        if (!rules.isValidPrice(price)) {
+            drop(RejectReason.INVALID_VALUE);
+            return;
+        }
+        if (!rules.isValidQuantity(quantity)) {
+            drop(RejectReason.INVALID_VALUE);
+            return;
+        }
 
-            Product product;
-            if (productType.equals("Electronics")) {
-                int warranty = Integer.parseInt(tokens[5]);
-                if (warranty < 0 || warranty > 36) {
-                    print("INVALID_WARRANTY_PERIOD");
-                    continue;
+        ProductType type = rules.productType(productType);
+        if (type == null) {
+            drop(RejectReason.INVALID_VALUE);
+            return;
+        }
+        int attribute;
+        switch (type.getAttribute()) {
+            case WARRANTY:
+                attribute = record.intToken(5);
+                if (!rules.isValidWarranty(attribute)) {
+                    reject(RejectReason.INVALID_WARRANTY_PERIOD);
+                    return;
                 }
-                product = new Electronics(productId, productName, price, quantity, warranty);
-            } else if (productType.equals("Fashion")) {
-                String size = tokens[5];
-                if (!size.equals("S") && !size.equals("M") && !size.equals("L") && !size.equals("XL")
-                        && !size.equals("XXL")) {
-                    print("INVALID_SIZE");
-                    continue;
+                break;
+            case SIZE:
+                ProductStore.Size size = rules.size(record.token(5));
+                if (size == null) {
+                    reject(RejectReason.INVALID_SIZE);
+                    return;
                 }
-                product = new Fashion(productId, productName, price, quantity, size);
-            } else {
-                continue;
+                attribute = size.ordinal();
+                break;
+            default:
+                attribute = 0;
+        }
+        validated();
+        Product product = type.create(productId, productName, price, quantity, attribute);
+        if (inventory.put(productId, product)) {
+            listener.productAdded(product);
+        }
+    }
+
+    // Reads the product section like readProducts and writes the result to a snapshot file
+    public void readProducts(LineSource scanner, Inventory inventory, Path snapshot) throws IOException {
+        LineFingerprint sectionFingerprint = productSectionFingerprint();
+        List<String> messages = new ArrayList<>();
+        cursor.setFingerprint(sectionFingerprint);
+        printed = messages;
+        try {
+            readProducts(scanner, inventory);
+        } finally {
+            cursor.setFingerprint(null);
+            printed = null;
+        }
+        InventorySnapshot.write(snapshot, inventory, sectionFingerprint.value(), messages);
+    }
+
+    // Skips the product section, which has to be the one the snapshot was taken
+    // from, and prints what reading it printed back then
+    public void readProducts(LineSource scanner, InventorySnapshot snapshot) {
+        listener.phaseStarted(Phase.PRODUCTS);
+        LineFingerprint sectionFingerprint = productSectionFingerprint();
+        cursor.setFingerprint(sectionFingerprint);
+        try {
+            cursor.skipSection(scanner, limits.getMaxProducts());
+            if (sectionFingerprint.value() != snapshot.getFingerprint()) {
+                throw new IllegalStateException("Snapshot does not match the product section");
             }
-            inventory.put(productId, product);
+        } finally {
+            cursor.setFingerprint(null);
+        }
+        for (String message : snapshot.getMessages()) {
+            print(message);
+        }
+        out.flush();
+        listener.phaseCompleted(Phase.PRODUCTS);
+    }
+
+    // Reads past the section of a phase that was already done in an earlier run
+    public void skipPhase(LineSource scanner, Phase phase) {
+        switch (phase) {
+            case CUSTOMERS:
+                cursor.skipSection(scanner, limits.getMaxCustomers());
+                break;
+            case PRODUCTS:
+                cursor.skipSection(scanner, limits.getMaxProducts());
+                break;
+            case CART_ADDITIONS:
+                cursor.skipSection(scanner, Integer.MAX_VALUE);
+                break;
+            case ORDERS:
+                if (scanner.hasNextLine()) {
+                    cursor.skipSection(scanner, limits.getMaxOrders());
+                }
+                break;
+            default:
+                break;
         }
     }
 
+    // The product limits decide what readProducts keeps, so they are part of the fingerprint
+    private LineFingerprint productSectionFingerprint() {
+        LineFingerprint sectionFingerprint = new LineFingerprint();
+        sectionFingerprint.add(limits.getMaxProducts());
+        sectionFingerprint.add(limits.isStreaming() ? 1 : 0);
+        sectionFingerprint.add(rules.getFingerprint());
+        return sectionFingerprint;
+    }
+
     public void readCartAdditions(Scanner scanner, LinkedHashMap<String, Customer> customers,
-            LinkedHashMap<String, Product> inventory) {
-        int numberOfCartAdditions = Integer.parseInt(scanner.nextLine().trim());
-        for (int i = 0; i < numberOfCartAdditions; i++) {
-            String line = scanner.nextLine();
-            String[] tokens = parseLine(line);
-            if (tokens.length != 3) {
-                continue;
-            }
-            String customerId = tokens[0];
-            String productId = tokens[1];
-            int quantity = Integer.parseInt(tokens[2]);
+            Inventory inventory) {
+        readCartAdditions(LineSource.of(scanner), customers, inventory);
+    }
 
-            if (!customers.containsKey(customerId)) {
-                print("INVALID_CUSTOMER_ID");
-                continue;
-            }
-            if (!inventory.containsKey(productId)) {
-                print("INVALID_PRODUCT_ID");
+    public void readCartAdditions(LineSource scanner, LinkedHashMap<String, Customer> customers,
+            Inventory inventory) {
+        startPhase(Phase.CART_ADDITIONS);
+        readCartSection(scanner, customers, inventory);
+        completePhase(scanner);
+    }
+
+    private void readCartSection(LineSource scanner, LinkedHashMap<String, Customer> customers,
+            Inventory inventory) {
+        cursor.openBatch(scanner, Integer.MAX_VALUE);
+        if (parallelCarts != null) {
+            readCartAdditionsInParallel(scanner, customers, inventory);
+            cursor.closeBatch(scanner);
+            out.flush();
+            return;
+        }
+        CharSequence line;
+        while ((line = cursor.nextRecord(scanner)) != null) {
+            long parseStart = metrics == null ? 0 : System.nanoTime();
+            int tokens = tokenizer.tokenize(line);
+            if (tokens != 3) {
+                drop(RejectReason.MALFORMED_RECORD);
                 continue;
             }
-            if (quantity <= 0) {
-                print("INVALID_QUANTITY");
-                continue;
+            String customerId = tokenizer.token(0);
+            String productId = tokenizer.token(1);
+            int quantity = tokenizer.intToken(2);
+            if (metrics != null) {
+                metrics.record(Metrics.Operation.PARSE, System.nanoTime() - parseStart);
             }
-            Product product = inventory.get(productId);
-            if (quantity > product.getQuantity()) {
-                print("OUT_OF_STOCK");
-                continue;
+
+            String result = addToCart(customers, inventory, customerId, productId, quantity);
+            if (result != null) {
+                print(result);
             }
+        }
+        cursor.closeBatch(scanner);
+        out.flush();
+    }
+
+    // Applies one cart addition and returns the diagnostic to print, or null.
+    // Only reads Helper settings, so the parallel workers can call it too.
+    String addToCart(LinkedHashMap<String, Customer> customers, Inventory inventory,
+            String customerId, String productId, int quantity) {
+        if (metrics == null) {
+            return applyCartAddition(customers, inventory, customerId, productId, quantity);
+        }
+        long start = System.nanoTime();
+        String result = applyCartAddition(customers, inventory, customerId, productId, quantity);
+        metrics.record(Metrics.Operation.ADD_TO_CART, System.nanoTime() - start);
+        return result;
+    }
 
-            Customer customer = customers.get(customerId);
-            Order order = customer.getOrder();
-            if (order == null) {
-                order = new OnlineOrder("TEMP_ORDER_" + customerId, customerId, customer);
-                customer.setOrder(order);
+    private String applyCartAddition(LinkedHashMap<String, Customer> customers, Inventory inventory,
+            String customerId, String productId, int quantity) {
+        if (!customers.containsKey(customerId)) {
+            return rejected(RejectReason.INVALID_CUSTOMER_ID, customerId, productId, quantity);
+        }
+        if (!inventory.containsKey(productId)) {
+            return rejected(RejectReason.INVALID_PRODUCT_ID, customerId, productId, quantity);
+        }
+        if (quantity <= 0) {
+            return rejected(RejectReason.INVALID_QUANTITY, customerId, productId, quantity);
+        }
+        Product product = inventory.get(productId);
+        if (quantity > product.getQuantity()) {
+            return rejected(RejectReason.OUT_OF_STOCK, customerId, productId, quantity);
+        }
+
+        Customer customer = customers.get(customerId);
+        Order order = customer.getOrder();
+        if (order == null) {
+            order = new OnlineOrder("TEMP_ORDER_" + customerId, customerId, customer);
+            order.setCartLimit(limits.getCartLimit());
+            order.setPricing(pricing.strategyFor(customer));
+            customer.setOrder(order);
+        }
+        try {
+            order.addToCart(product, quantity);
+        } catch (IllegalArgumentException e) {
+            RejectReason reason = RejectReason.of(e.getMessage());
+            if (reason != null) {
+                rejected(reason, customerId, productId, quantity);
             }
+            return e.getMessage();
+        }
+        listener.cartAdded(customer, product, quantity);
+        return null;
+    }
+
+    private void readCartAdditionsInParallel(LineSource scanner, LinkedHashMap<String, Customer> customers,
+            Inventory inventory) {
+        String[] lines = new String[ParallelCartProcessor.CHUNK_SIZE];
+        boolean more = true;
+        while (more) {
+            int count = 0;
+            RuntimeException readError = null;
+            // Lines of a chunk are only applied once the whole chunk is read
+            cursor.deferCheckpoints(true);
             try {
-                order.addToCart(product, quantity);
-            } catch (IllegalArgumentException e) {
-                print(e.getMessage());
+                while (count < lines.length) {
+                    CharSequence line = cursor.nextRecord(scanner);
+                    if (line == null) {
+                        more = false;
+                        break;
+                    }
+                    lines[count++] = line.toString();
+                }
+            } catch (RuntimeException e) {
+                // Same as the sequential loop: whatever came before the bad line is still applied
+                readError = e;
+            } finally {
+                cursor.deferCheckpoints(false);
+            }
+            if (count == 0 && readError == null) {
+                break;
             }
+            ParallelCartProcessor.Outcome outcome = parallelCarts.process(lines, count, inventory,
+                    (customerId, productId, quantity) -> addToCart(customers, inventory, customerId, productId, quantity));
+            for (int i = 0; i < outcome.count; i++) {
+                if (outcome.messages[i] != null) {
+                    print(outcome.messages[i]);
+                }
+            }
+            if (outcome.error != null) {
+                throw outcome.error;
+            }
+            if (readError != null) {
+                throw readError;
+            }
+            cursor.checkpointIfDue(scanner);
         }
     }
 
     public void printCustomerCartDetails(LinkedHashMap<String, Customer> customers) {
+        listener.phaseStarted(Phase.CART_REPORT);
+        long reportStart = metrics == null ? 0 : System.nanoTime();
         for (String customerId : customers.keySet()) {
-            Customer customer = customers.get(customerId);
-            Order order = customer.getOrder();
-            if (order == null || order.cart.isEmpty()) {
-                continue;
-            }
-            print("Customer: " + customer.getName() + " (" + customer.getCustomerType() + ")");
-            print("Address: " + customer.getAddress());
-            print("Shopping Cart:");
-            for (Product product : order.cart) {
-                print(product.getItemId() + " " + product.getName() + " " + String.format("%.2f", product.getPrice())
-                        + " Quantity: " + product.getCartQuantity());
-            }
-            double total = order.calculateTotal();
-            if (customer instanceof PremiumCustomer) {
-                print("Total (after 10% discount): " + String.format("%.2f", total));
-            } else {
-                print("Total: " + String.format("%.2f", total));
-            }
+            printCustomerCart(customers.get(customerId));
+        }
+        out.flush();
+        if (metrics != null) {
+            metrics.phaseCompleted(Phase.CART_REPORT, System.nanoTime() - reportStart, 0);
+        }
+        cursor.passPhase(Phase.CART_REPORT);
+        listener.phaseCompleted(Phase.CART_REPORT);
+    }
+
+    // Prints the cart of one customer, nothing when it is empty
+    public boolean printCustomerCart(Customer customer) {
+        Order order = customer.getOrder();
+        if (order == null || order.cart.isEmpty()) {
+            return false;
         }
+        print("Customer: " + customer.getName() + " (" + customer.getCustomerType() + ")");
+        print("Address: " + customer.getAddress());
+        print("Shopping Cart:");
+        for (CartLine line : order.cart) {
+            out.append(line.getItemId()).append(' ').append(line.getName()).append(' ')
+                    .appendAmount(line.getPrice()).append(" Quantity: ").append(line.getQuantity())
+                    .endLine();
+        }
+        out.append(order.getPricing().getTotalLabel()).appendAmount(order.calculateTotal()).endLine();
+        return true;
     }
 
     public void readOrders(Scanner scanner, LinkedHashMap<String, Customer> customers,
-            LinkedHashMap<String, Product> inventory,
+            Inventory inventory,
+            LinkedHashMap<String, Order> orders) {
+        readOrders(LineSource.of(scanner), customers, inventory, orders);
+    }
+
+    public void readOrders(LineSource scanner, LinkedHashMap<String, Customer> customers,
+            Inventory inventory,
+            LinkedHashMap<String, Order> orders) {
+        startPhase(Phase.ORDERS);
+        readOrderSection(scanner, customers, orders);
+        completePhase(scanner);
+    }
+
+    private void readOrderSection(LineSource scanner, LinkedHashMap<String, Customer> customers,
             LinkedHashMap<String, Order> orders) {
         if (!scanner.hasNextLine()) {
             return;
         }
-        int numberOfOrders = Integer.parseInt(scanner.nextLine().trim());
-        if (numberOfOrders > 50) {
+        if (cursor.openBatch(scanner, limits.getMaxOrders()) < 0) {
             return;
         }
-        for (int i = 0; i < numberOfOrders; i++) {
-            String line = scanner.nextLine();
-            String[] tokens = parseLine(line);
-            if (tokens.length != 4) {
-                continue;
-            }
-            String orderId = tokens[0];
-            String customerId = tokens[1];
-            String orderType = tokens[2];
-            String paymentType = tokens[3];
-
-            if (!customers.containsKey(customerId)) {
-                print("INVALID_CUSTOMER_ID");
-                continue;
-            }
-            if (!orderType.equals("Online") && !orderType.equals("InStore")) {
-                print("INVALID_ORDER_TYPE");
-                continue;
+        if (orderBatch > 1 && payments == null) {
+            readOrdersInBatches(scanner, customers, orders);
+            cursor.closeBatch(scanner);
+            out.flush();
+            return;
+        }
+        try {
+            CharSequence line;
+            while ((line = cursor.nextRecord(scanner)) != null) {
+                readOrder(cursor.records() - 1, line, customers, orders);
             }
-            if (!paymentType.equals("CreditCard") && !paymentType.equals("PayPal")) {
-                print("INVALID_PAYMENT_METHOD");
-                continue;
+        } finally {
+            if (payments != null) {
+                payments.drain();
             }
+        }
+        cursor.closeBatch(scanner);
+        out.flush();
+    }
 
-            Customer customer = customers.get(customerId);
-            Order tempOrder = customer.getOrder();
-            if (tempOrder == null || tempOrder.cart.isEmpty()) {
-                print("Order cannot be processed: Cart is empty");
-                continue;
+    private void readOrdersInBatches(LineSource scanner, LinkedHashMap<String, Customer> customers,
+            LinkedHashMap<String, Order> orders) {
+        CheckoutBatch batch = new CheckoutBatch(orderBatch);
+        checkoutBatch = batch;
+        try {
+            boolean more = true;
+            while (more) {
+                // A checkpoint covers the records before it, so it waits for the batch to be reported
+                cursor.deferCheckpoints(true);
+                try {
+                    while (!batch.isFull()) {
+                        CharSequence line = cursor.nextRecord(scanner);
+                        if (line == null) {
+                            more = false;
+                            break;
+                        }
+                        readOrder(cursor.records() - 1, line, customers, orders);
+                    }
+                } finally {
+                    cursor.deferCheckpoints(false);
+                    // Whatever came before a bad line is still paid and reported
+                    batch.settle(this::paymentFor);
+                }
+                cursor.checkpointIfDue(scanner);
             }
+        } finally {
+            checkoutBatch = null;
+        }
+    }
+
+    private void readOrder(int ordinal, CharSequence line, LinkedHashMap<String, Customer> customers,
+            LinkedHashMap<String, Order> orders) {
+        long parseStart = metrics == null ? 0 : System.nanoTime();
+        int tokens = tokenizer.tokenize(line);
+        if (tokens != 4) {
+            drop(RejectReason.MALFORMED_RECORD);
+            return;
+        }
+        String orderId = tokenizer.token(0);
+        String customerId = tokenizer.token(1);
+        String orderType = tokenizer.token(2);
+        String paymentType = tokenizer.token(3);
+        parsed(parseStart);
+        checkout(ordinal, orderId, customerId, orderType, paymentType, customers, orders);
+    }
+
+    /**
+     * Turns the cart of a customer into an order and pays it, what one
+     * line of the order section does. Returns the order, or null when it
+     * was turned down; with a payment pipeline its result is reported later.
+     */
+    public Order checkout(int ordinal, String orderId, String customerId, String orderType, String paymentType,
+            LinkedHashMap<String, Customer> customers, LinkedHashMap<String, Order> orders) {
+        if (!customers.containsKey(customerId)) {
+            rejectInOrder(RejectReason.INVALID_CUSTOMER_ID);
+            return null;
+        }
+        ValidationRules.OrderKind orderKind = rules.orderType(orderType);
+        if (orderKind == null) {
+            rejectInOrder(RejectReason.INVALID_ORDER_TYPE);
+            return null;
+        }
+        ValidationRules.PaymentMethod method = rules.paymentMethod(paymentType);
+        if (method == null) {
+            rejectInOrder(RejectReason.INVALID_PAYMENT_METHOD);
+            return null;
+        }
+
+        Customer customer = customers.get(customerId);
+        Order tempOrder = customer.getOrder();
+        if (tempOrder == null || tempOrder.cart.isEmpty()) {
+            rejectInOrder(RejectReason.EMPTY_CART);
+            return null;
+        }
+        validated();
 
-            Order order;
-            if (orderType.equals("Online")) {
+        Order order;
+        switch (orderKind) {
+            case ONLINE:
                 order = new OnlineOrder(orderId, customerId, customer);
-            } else {
+                break;
+            default:
                 order = new InStoreOrder(orderId, customerId, customer);
-            }
-            order.cart = tempOrder.cart; // Transfer cart items to new order
-            customer.setOrder(order); // Update customer's order
+        }
+        order.transferCartFrom(tempOrder); // Transfer cart items to new order
+        customer.setOrder(order); // Update customer's order
+
+        double totalAmount = order.calculateTotal();
+        Boolean loggedStatus = paymentOutcomes.get(ordinal);
+        long paymentStart = metrics == null ? 0 : System.nanoTime();
+        if (loggedStatus != null) {
+            printInOrder(() -> reportOrder(ordinal, order, customer, method, loggedStatus, orders));
+        } else if (payments != null) {
+            // Measured until the result is reported, in submission order
+            payments.submit(order, paymentFor(method), totalAmount, paymentStatus -> {
+                paid(paymentStart);
+                reportOrder(ordinal, order, customer, method, paymentStatus, orders);
+            });
+        } else if (checkoutBatch != null) {
+            // Measured until the batch is paid
+            checkoutBatch.add(order, method, totalAmount, paymentStatus -> {
+                paid(paymentStart);
+                reportOrder(ordinal, order, customer, method, paymentStatus, orders);
+            });
+        } else {
+            boolean paymentStatus = order.processOrder(paymentFor(method), totalAmount);
+            paid(paymentStart);
+            reportOrder(ordinal, order, customer, method, paymentStatus, orders);
+        }
+        return order;
+    }
 
-            Payment payment;
-            if (paymentType.equals("CreditCard")) {
-                payment = new CreditCardPayment();
-            } else {
-                payment = new PayPalPayment();
-            }
-            double totalAmount = order.calculateTotal();
-            boolean paymentStatus = order.processOrder(payment, totalAmount);
+    private Payment paymentFor(ValidationRules.PaymentMethod method) {
+        if (paymentGateway != null) {
+            return paymentGateway.payment(method.name);
+        } else if (method.kind == ValidationRules.PaymentKind.CREDIT_CARD) {
+            return new CreditCardPayment();
+        } else {
+            return new PayPalPayment();
+        }
+    }
+
+    private void reportOrder(int ordinal, Order order, Customer customer, ValidationRules.PaymentMethod method,
+            boolean paymentStatus, LinkedHashMap<String, Order> orders) {
+        print("Processing Order " + order.getOrderId() + " for " + customer.getName());
+        print("Payment Method: " + method.label);
+        print("Payment Status: " + (paymentStatus ? "Successful" : "Failed"));
+
+        order.setPaymentResult(method.name, paymentStatus);
+        orders.put(order.getOrderId(), order);
+        listener.orderProcessed(ordinal, order, paymentStatus);
+    }
 
-            print("Processing Order " + orderId + " for " + customer.getName());
-            print("Payment Method: " + (paymentType.equals("CreditCard") ? "Credit Card" : "PayPal"));
-            print("Payment Status: " + (paymentStatus ? "Successful" : "Failed"));
+    // Keeps diagnostics behind the results of payments that are still in flight
+    private void rejectInOrder(RejectReason reason) {
+        drop(reason);
+        printInOrder(() -> print(reason.getMessage()));
+    }
 
-            orders.put(orderId, order);
+    private void printInOrder(Runnable action) {
+        if (payments != null) {
+            payments.then(action);
+        } else if (checkoutBatch != null) {
+            checkoutBatch.then(action);
+        } else {
+            action.run();
         }
     }
 
-    private String[] parseLine(String line) {
-        ArrayList<String> tokens = new ArrayList<>();
-        Matcher matcher = Pattern.compile("\"([^\"]*)\"|(\\S+)").matcher(line);
-        while (matcher.find()) {
-            if (matcher.group(1) != null) {
-                tokens.add(matcher.group(1));
-            } else {
-                tokens.add(matcher.group(2));
-            }
+    // Prints the reason a record was turned down
+    private void reject(RejectReason reason) {
+        drop(reason);
+        print(reason.getMessage());
+    }
+
+    // Counts and logs a rejected record, and the validation time spent on it
+    private void drop(RejectReason reason) {
+        rejectLog.rejected(cursor.phase(), cursor.records(), reason);
+        if (metrics != null) {
+            metrics.rejected(reason);
+            validated();
+        }
+    }
+
+    // Same as drop, for the diagnostics addToCart hands back to its caller
+    private String rejected(RejectReason reason, String customerId, String productId, int quantity) {
+        if (metrics != null) {
+            metrics.rejected(reason);
+        }
+        rejectLog.rejected(customerId, productId, quantity, reason);
+        return reason.getMessage();
+    }
+
+    private void parsed(long parseStart) {
+        if (metrics != null) {
+            validateStart = System.nanoTime();
+            metrics.record(Metrics.Operation.PARSE, validateStart - parseStart);
         }
-        return tokens.toArray(new String[0]);
     }
+
+    // Ends the validation timing parsed() started, a no-op when none is running
+    private void validated() {
+        if (metrics != null && validateStart != 0) {
+            metrics.record(Metrics.Operation.VALIDATE, System.nanoTime() - validateStart);
+            validateStart = 0;
+        }
+    }
+
+    private void paid(long paymentStart) {
+        if (metrics != null) {
+            metrics.record(Metrics.Operation.PROCESS_ORDER, System.nanoTime() - paymentStart);
+        }
+    }
+
+    private void startPhase(Phase started) {
+        phaseStart = metrics == null ? 0 : System.nanoTime();
+        cursor.startPhase(started);
+        // Also drops whatever the log holds of this phase after its last checkpoint
+        listener.phaseStarted(started);
+    }
+
+    private void completePhase(LineSource scanner) {
+        Phase phase = cursor.phase();
+        if (metrics != null) {
+            metrics.phaseCompleted(phase, System.nanoTime() - phaseStart, cursor.recordsThisRun());
+        }
+        cursor.completePhase(scanner);
+        listener.phaseCompleted(phase);
+    }
+
+    // Pays and prints everything read so far, before a checkpoint says it is done
+    private void settle() {
+        if (payments != null) {
+            payments.drain();
+        }
+        out.flush();
+    }
+
+    // The limits decide how the input is split into records, a checkpoint only fits the same ones
+    private long settingsFingerprint() {
+        LineFingerprint settings = new LineFingerprint();
+        settings.add(limits.getMaxCustomers());
+        settings.add(limits.getMaxProducts());
+        settings.add(limits.getMaxOrders());
+        settings.add(limits.getCartLimit());
+        settings.add(limits.isStreaming() ? 1 : 0);
+        settings.add(rules.getFingerprint());
+        return settings.value();
+    }
+
 }
 
 abstract class Order {
+    public static final int DEFAULT_CART_LIMIT = 20;
+    // Lines a cart holds before it gets an index, smaller ones are scanned
+    static final int CART_INDEX_THRESHOLD = 8;
+    // Cross-checks the cached total against a recomputation on every read
+    static boolean verifyTotals = Boolean.getBoolean("order.verifyTotals");
+
     protected String orderId;
     protected String customerId;
-    protected ArrayList<Product> cart;
+    protected ArrayList<CartLine> cart;
     protected Customer customer;
+    // Cart lines by itemId once the cart is past CART_INDEX_THRESHOLD, cart keeps the insertion order
+    private HashMap<String, CartLine> cartIndex;
+    private int cartItemCount;
+    private int cartLimit = DEFAULT_CART_LIMIT;
+    // Exact running totals, kept up to date by addToCart
+    private PricingStrategy pricing;
+    private BigDecimal subtotal = BigDecimal.ZERO;
+    private BigDecimal total = BigDecimal.ZERO;
+    // The printed and charged total, summed over the cart again on the first read after it changed
+    private double totalValue;
+    private boolean totalStale;
+    // Set once the order has been paid for, or the payment failed
+    private String paymentType;
+    private boolean paid;
 
     public Order(String orderId, String customerId, Customer customer) {
         this.orderId = orderId;
         this.customerId = customerId;
         this.customer = customer;
         this.cart = new ArrayList<>();
+        this.pricing = Pricing.DEFAULT.strategyFor(customer);
     }
 
     public String getOrderId() {
@@ -294,54 +1080,160 @@ abstract class Order {
         return customerId;
     }
 
+    public int getCartItemCount() {
+        return cartItemCount;
+    }
+
+    public int getCartLimit() {
+        return cartLimit;
+    }
+
+    public void setCartLimit(int cartLimit) {
+        if (cartLimit < 0) {
+            throw new IllegalArgumentException("Invalid value.");
+        }
+        this.cartLimit = cartLimit;
+    }
+
+    public PricingStrategy getPricing() {
+        return pricing;
+    }
+
+    // Prices the order with another strategy, only while the cart is empty
+    public void setPricing(PricingStrategy pricing) {
+        if (!cart.isEmpty()) {
+            throw new IllegalStateException("Cart of order " + orderId + " is already priced");
+        }
+        this.pricing = pricing;
+        setSubtotal(subtotal);
+    }
+
     public void addToCart(Product product, int quantity) {
         if (quantity <= 0 || quantity > product.getQuantity()) {
             throw new IllegalArgumentException("INVALID_QUANTITY");
         }
-        int totalItemsInCart = cart.stream().mapToInt(p -> p.getCartQuantity()).sum();
-        if (totalItemsInCart + quantity > 20) {
+        if (quantity > cartLimit - cartItemCount) {
             throw new IllegalArgumentException("CART_LIMIT_EXCEEDED");
         }
-        product.setQuantity(product.getQuantity() - quantity);
+        if (!product.tryReserve(quantity)) {
+            throw new IllegalArgumentException("OUT_OF_STOCK"); // taken by another thread since the check above
+        }
 
-        Product cartProduct = null;
-        for (Product p : cart) {
-            if (p.getItemId().equals(product.getItemId())) {
-                cartProduct = p;
-                break;
+        String itemId = product.getItemId();
+        double price = product.getPrice();
+        CartLine line = findLine(itemId);
+        if (line != null) {
+            line.setQuantity(line.getQuantity() + quantity);
+            price = line.getPrice();
+        } else {
+            line = new CartLine(product, itemId, price, quantity);
+            cart.add(line);
+            if (cartIndex != null) {
+                cartIndex.put(itemId, line);
+            } else if (cart.size() > CART_INDEX_THRESHOLD) {
+                cartIndex = new HashMap<>();
+                for (CartLine indexed : cart) {
+                    cartIndex.put(indexed.getItemId(), indexed);
+                }
             }
         }
-        if (cartProduct != null) {
-            cartProduct.setCartQuantity(cartProduct.getCartQuantity() + quantity);
-        } else {
-            Product newProduct;
-            if (product instanceof Electronics) {
-                Electronics e = (Electronics) product;
-                newProduct = new Electronics(e.getItemId(), e.getName(), e.getPrice(), 0, e.getWarranty());
-            } else if (product instanceof Fashion) {
-                Fashion f = (Fashion) product;
-                newProduct = new Fashion(f.getItemId(), f.getName(), f.getPrice(), 0, f.getSize());
-            } else {
-                newProduct = new Product(product.getItemId(), product.getName(), product.getPrice(), 0);
+        cartItemCount += quantity;
+        setSubtotal(subtotal.add(pricing.line(line.getType(), price, quantity)));
+    }
+
+    private CartLine findLine(String itemId) {
+        if (cartIndex != null) {
+            return cartIndex.get(itemId);
+        }
+        for (CartLine line : cart) {
+            if (line.getItemId().equals(itemId)) {
+                return line;
             }
-            newProduct.setCartQuantity(quantity);
-            cart.add(newProduct);
         }
+        return null;
     }
 
-    public double calculateTotal() {
-        double total = 0.0;
-        for (Product product : cart) {
-            double price = product.getPrice() * product.getCartQuantity();
-            if (customer instanceof PremiumCustomer) {
-                price *= 0.90; // Apply 10% discount on each item
+    // Copies the cart of another order (the customer's temporary one) into this order, the two stay independent
+    public void transferCartFrom(Order other) {
+        this.cart = new ArrayList<>(other.cart.size());
+        this.cartIndex = other.cartIndex == null ? null : new HashMap<>();
+        for (CartLine line : other.cart) {
+            CartLine copy = line.copy();
+            cart.add(copy);
+            if (cartIndex != null) {
+                cartIndex.put(copy.getItemId(), copy);
             }
-            total += price;
         }
+        this.cartItemCount = other.cartItemCount;
+        this.cartLimit = other.cartLimit;
+        this.pricing = other.pricing;
+        setSubtotal(other.subtotal);
+    }
+
+    public String getPaymentType() {
+        return paymentType;
+    }
+
+    public boolean isPaid() {
+        return paid;
+    }
+
+    public void setPaymentResult(String paymentType, boolean paid) {
+        this.paymentType = paymentType;
+        this.paid = paid;
+    }
+
+    public BigDecimal getSubtotal() {
+        return subtotal;
+    }
+
+    public BigDecimal getExactTotal() {
         return total;
     }
 
+    public double calculateTotal() {
+        if (verifyTotals) {
+            BigDecimal fresh = recalculateTotal();
+            if (fresh.compareTo(total) != 0) {
+                throw new IllegalStateException("Cached total " + total + " of order " + orderId
+                        + " differs from recalculated " + fresh);
+            }
+        }
+        if (totalStale) {
+            double sum = 0.0;
+            for (CartLine line : cart) {
+                sum += pricing.lineValue(line.getType(), line.getPrice(), line.getQuantity());
+            }
+            totalValue = pricing.totalValue(sum, subtotal, cartItemCount);
+            totalStale = false;
+        }
+        return totalValue;
+    }
+
+    // Walks the whole cart, used to check the cached total
+    public BigDecimal recalculateTotal() {
+        PricingStrategy pricing = this.pricing;
+        BigDecimal sum = BigDecimal.ZERO;
+        int items = 0;
+        for (CartLine line : cart) {
+            sum = sum.add(pricing.line(line.getType(), line.getPrice(), line.getQuantity()));
+            items += line.getQuantity();
+        }
+        return pricing.total(sum, items);
+    }
+
+    private void setSubtotal(BigDecimal subtotal) {
+        this.subtotal = subtotal;
+        this.total = pricing.total(subtotal, cartItemCount);
+        this.totalStale = true;
+    }
+
     public abstract boolean processOrder(Payment paymentMethod, double amount);
+
+    // True when processOrder only hands the amount to the payment, so a batch may charge it along with others
+    boolean paysDirectly() {
+        return false;
+    }
 }
 
 class OnlineOrder extends Order {
@@ -350,9 +1242,14 @@ class OnlineOrder extends Order {
     }
 
     @Override
-    public boolean processOrder(Payment paymentMethod, double amount) {
+    public final boolean processOrder(Payment paymentMethod, double amount) {
         return paymentMethod.processPayment(amount);
     }
+
+    @Override
+    final boolean paysDirectly() {
+        return true;
+    }
 }
 
 class InStoreOrder extends Order {
@@ -361,27 +1258,65 @@ class InStoreOrder extends Order {
     }
 
     @Override
-    public boolean processOrder(Payment paymentMethod, double amount) {
+    public final boolean processOrder(Payment paymentMethod, double amount) {
         return paymentMethod.processPayment(amount);
     }
+
+    @Override
+    final boolean paysDirectly() {
+        return true;
+    }
 }
 
 interface Payment {
     boolean processPayment(double amount);
 }
 
-class CreditCardPayment implements Payment {
+// A Payment that takes many amounts in one call
+interface BatchPayment extends Payment {
+    // Sets results[i] to whether amounts[i] was paid, for the first count amounts
+    default void processPayments(double[] amounts, int count, boolean[] results) {
+        for (int i = 0; i < count; i++) {
+            results[i] = processPayment(amounts[i]);
+        }
+    }
+}
+
+interface AsyncPayment {
+    CompletableFuture<Boolean> processPaymentAsync(double amount);
+}
+
+// Creates the Payment for a payment type ("CreditCard" or "PayPal")
+interface PaymentGateway {
+    Payment payment(String paymentType);
+}
+
+class CreditCardPayment implements BatchPayment {
     @Override
     public boolean processPayment(double amount) {
         return amount > 0;
     }
+
+    @Override
+    public void processPayments(double[] amounts, int count, boolean[] results) {
+        for (int i = 0; i < count; i++) {
+            results[i] = amounts[i] > 0;
+        }
+    }
 }
 
-class PayPalPayment implements Payment {
+class PayPalPayment implements BatchPayment {
     @Override
     public boolean processPayment(double amount) {
         return amount > 0;
     }
+
+    @Override
+    public void processPayments(double[] amounts, int count, boolean[] results) {
+        for (int i = 0; i < count; i++) {
+            results[i] = amounts[i] > 0;
+        }
+    }
 }
 
 class Customer {
@@ -452,11 +1387,20 @@ class PremiumCustomer extends Customer {
 }
 
 class Product {
+    private static final VarHandle QUANTITY;
+
+    static {
+        try {
+            QUANTITY = MethodHandles.lookup().findVarHandle(Product.class, "quantity", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     protected String itemId;
     protected String name;
     protected double price;
     protected int quantity;
-    protected int cartQuantity;
 
     public Product(String itemId, String name, double price, int quantity) {
         if (price <= 0 || quantity < 0) { // Allow quantity to be zero
@@ -466,7 +1410,10 @@ class Product {
         this.name = name;
         this.price = price;
         this.quantity = quantity;
-        this.cartQuantity = 0;
+    }
+
+    // For views that keep their data elsewhere and override the getters
+    protected Product() {
     }
 
     public String getItemId() {
@@ -482,25 +1429,69 @@ class Product {
     }
 
     public int getQuantity() {
-        return quantity;
+        return (int) QUANTITY.getVolatile(this);
     }
 
     public void setQuantity(int quantity) {
-        this.quantity = quantity;
+        QUANTITY.setVolatile(this, quantity);
     }
 
+    // Takes quantity items out of stock if that many are left, atomically
+    public boolean tryReserve(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("INVALID_QUANTITY");
+        }
+        while (true) {
+            int stock = getQuantity();
+            if (quantity > stock) {
+                return false;
+            }
+            if (QUANTITY.compareAndSet(this, stock, stock - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("INVALID_QUANTITY");
+        }
+        QUANTITY.getAndAdd(this, quantity);
+    }
+
+    public ProductType getType() {
+        return ProductType.GENERAL;
+    }
 
-    public int getCartQuantity() {
-        return cartQuantity;
+    // -1 unless the product comes with a warranty
+    public int getWarranty() {
+        return -1;
     }
 
-    public void setCartQuantity(int cartQuantity) {
-        this.cartQuantity = cartQuantity;
+    // Null unless the product comes in sizes
+    public String getSize() {
+        return null;
+    }
+
+    // The attribute of the category as the stores keep it: warranty months, size ordinal or 0
+    public int getAttribute() {
+        switch (getType().getAttribute()) {
+            case WARRANTY:
+                return getWarranty();
+            case SIZE:
+                ProductStore.Size size = ProductStore.Size.parse(getSize());
+                if (size == null) {
+                    throw new IllegalArgumentException("INVALID_SIZE");
+                }
+                return size.ordinal();
+            default:
+                return 0;
+        }
     }
 
     @Override
     public String toString() {
-        return itemId + " " + name + " " + price + " Quantity: " + cartQuantity;
+        return itemId + " " + name + " " + price;
     }
 }
 
@@ -512,10 +1503,16 @@ class Electronics extends Product {
         this.warranty = warranty;
     }
 
+    @Override
     public int getWarranty() {
         return warranty;
     }
 
+    @Override
+    public ProductType getType() {
+        return ProductType.ELECTRONICS;
+    }
+
     @Override
     public String toString() {
         return super.toString() + " (" + warranty + " months warranty)";
@@ -530,10 +1527,16 @@ class Fashion extends Product {
         this.size = size;
     }
 
+    @Override
     public String getSize() {
         return size;
     }
 
+    @Override
+    public ProductType getType() {
+        return ProductType.FASHION;
+    }
+
     @Override
     public String toString() {
         return super.toString() + " (Size: " + size + ")";
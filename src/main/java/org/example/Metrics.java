@@ -0,0 +1,163 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms Helper fills in while it runs: records
+ * and wall time per phase, rejected records by reason, and the latency of
+ * parsing and validating a record, of addToCart and of every payment.
+ * <p>
+ * Counters are LongAdders, striped per thread, so the parallel cart workers
+ * do not contend on them. Helper keeps a null Metrics when metrics are off
+ * and skips every call, clock reads included, behind that one check.
+ */
+final class Metrics {
+    enum Operation {
+        PARSE, VALIDATE, ADD_TO_CART, PROCESS_ORDER
+    }
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] QUANTILE_NAMES = {"p50", "p90", "p99", "p999"};
+    private static final Phase[] PHASES = Phase.values();
+    private static final RejectReason[] REASONS = RejectReason.values();
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final LongAdder[] rejected = new LongAdder[REASONS.length];
+    private final LongAdder[] phaseNanos = new LongAdder[PHASES.length];
+    private final LongAdder[] phaseRecords = new LongAdder[PHASES.length];
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+
+    public Metrics() {
+        for (int i = 0; i < rejected.length; i++) {
+            rejected[i] = new LongAdder();
+        }
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+            phaseRecords[i] = new LongAdder();
+        }
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    public void rejected(RejectReason reason) {
+        rejected[reason.ordinal()].increment();
+    }
+
+    // For the messages Order.addToCart throws with, anything else is not counted
+    public void rejected(String message) {
+        RejectReason reason = RejectReason.of(message);
+        if (reason != null) {
+            rejected(reason);
+        }
+    }
+
+    public long getRejected(RejectReason reason) {
+        return rejected[reason.ordinal()].sum();
+    }
+
+    public void phaseCompleted(Phase phase, long nanos, int records) {
+        phaseNanos[phase.ordinal()].add(nanos);
+        phaseRecords[phase.ordinal()].add(records);
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()].sum();
+    }
+
+    public long getPhaseRecords(Phase phase) {
+        return phaseRecords[phase.ordinal()].sum();
+    }
+
+    public void record(Operation operation, long nanos) {
+        latencies[operation.ordinal()].record(nanos);
+    }
+
+    public LatencyHistogram getLatency(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    /** Writes JSON when the file name ends in .json, Prometheus text format otherwise. */
+    public void write(Path path) throws IOException {
+        String text = path.getFileName().toString().endsWith(".json") ? toJson() : toPrometheus();
+        Files.writeString(path, text, StandardCharsets.UTF_8);
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\n  \"phases\": {");
+        for (int i = 0; i < PHASES.length; i++) {
+            json.append(i == 0 ? "\n" : ",\n").append("    \"").append(name(PHASES[i])).append("\": {\"seconds\": ")
+                    .append(seconds(phaseNanos[i].sum())).append(", \"records\": ").append(phaseRecords[i].sum())
+                    .append('}');
+        }
+        json.append("\n  },\n  \"rejected\": {");
+        for (int i = 0; i < REASONS.length; i++) {
+            json.append(i == 0 ? "\n" : ",\n").append("    \"").append(REASONS[i].name()).append("\": ")
+                    .append(rejected[i].sum());
+        }
+        json.append("\n  },\n  \"latency\": {");
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            LatencyHistogram histogram = latencies[i];
+            json.append(i == 0 ? "\n" : ",\n").append("    \"").append(name(OPERATIONS[i]))
+                    .append("\": {\"count\": ").append(histogram.getCount())
+                    .append(", \"mean_ns\": ").append(Math.round(histogram.getMean()));
+            for (int q = 0; q < QUANTILES.length; q++) {
+                json.append(", \"").append(QUANTILE_NAMES[q]).append("_ns\": ")
+                        .append(histogram.percentile(QUANTILES[q]));
+            }
+            json.append(", \"max_ns\": ").append(histogram.getMax()).append('}');
+        }
+        return json.append("\n  }\n}\n").toString();
+    }
+
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        text.append("# HELP helper_phase_seconds Wall time spent in each phase.\n")
+                .append("# TYPE helper_phase_seconds gauge\n");
+        for (int i = 0; i < PHASES.length; i++) {
+            text.append("helper_phase_seconds{phase=\"").append(name(PHASES[i])).append("\"} ")
+                    .append(seconds(phaseNanos[i].sum())).append('\n');
+        }
+        text.append("# HELP helper_records_total Input records read in each phase.\n")
+                .append("# TYPE helper_records_total counter\n");
+        for (int i = 0; i < PHASES.length; i++) {
+            text.append("helper_records_total{phase=\"").append(name(PHASES[i])).append("\"} ")
+                    .append(phaseRecords[i].sum()).append('\n');
+        }
+        text.append("# HELP helper_rejected_total Records turned down, by reason.\n")
+                .append("# TYPE helper_rejected_total counter\n");
+        for (int i = 0; i < REASONS.length; i++) {
+            text.append("helper_rejected_total{reason=\"").append(REASONS[i].name()).append("\"} ")
+                    .append(rejected[i].sum()).append('\n');
+        }
+        text.append("# HELP helper_latency_seconds Latency of the steps of handling a record.\n")
+                .append("# TYPE helper_latency_seconds summary\n");
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            LatencyHistogram histogram = latencies[i];
+            String operation = name(OPERATIONS[i]);
+            for (double quantile : QUANTILES) {
+                text.append("helper_latency_seconds{operation=\"").append(operation).append("\",quantile=\"")
+                        .append(quantile).append("\"} ").append(seconds(histogram.percentile(quantile)))
+                        .append('\n');
+            }
+            text.append("helper_latency_seconds_sum{operation=\"").append(operation).append("\"} ")
+                    .append(seconds(histogram.getSum())).append('\n');
+            text.append("helper_latency_seconds_count{operation=\"").append(operation).append("\"} ")
+                    .append(histogram.getCount()).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static String name(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+}
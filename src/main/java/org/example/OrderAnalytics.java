@@ -0,0 +1,210 @@
+package org.example;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Aggregates over processed orders: revenue per product type, discount
+ * given per customer type, payment attempts and successes per payment
+ * method and the number and revenue of online and in-store orders.
+ * <p>
+ * As a ProcessingListener it adds every order when it is reported, so the
+ * figures are current while the order section runs; an order id that
+ * comes again counts again, like the payment it makes. Revenue and
+ * discounts only count paid orders. Revenue per product type is at list
+ * price, price times quantity of the cart lines; the discount is what the
+ * pricing took off that, so the two add up to what was charged.
+ * <p>
+ * Instances merge, {@link #aggregate} rebuilds the figures over a list of
+ * orders in parallel on a fork/join pool.
+ */
+class OrderAnalytics implements ProcessingListener {
+    // Orders a fork/join leaf adds up itself
+    static final int LEAF_ORDERS = 2048;
+    private static final ValidationRules.OrderKind[] ORDER_KINDS = ValidationRules.OrderKind.values();
+
+    private BigDecimal[] revenueByType = new BigDecimal[0];
+    private final Map<String, BigDecimal> discountByCustomerType = new TreeMap<>();
+    // Attempts and successes by payment method
+    private final Map<String, long[]> payments = new TreeMap<>();
+    private final long[] ordersByKind = new long[ORDER_KINDS.length];
+    private final BigDecimal[] revenueByKind = new BigDecimal[ORDER_KINDS.length];
+
+    public OrderAnalytics() {
+        Arrays.fill(revenueByKind, BigDecimal.ZERO);
+    }
+
+    public static OrderAnalytics aggregate(List<Order> orders, ForkJoinPool pool) {
+        return pool.invoke(new Aggregation(orders, 0, orders.size()));
+    }
+
+    @Override
+    public void orderProcessed(int ordinal, Order order, boolean paid) {
+        add(order, paid);
+    }
+
+    public synchronized void add(Order order, boolean paid) {
+        ValidationRules.OrderKind kind = order instanceof InStoreOrder
+                ? ValidationRules.OrderKind.IN_STORE : ValidationRules.OrderKind.ONLINE;
+        ordersByKind[kind.ordinal()]++;
+        long[] attempts = payments.computeIfAbsent(order.getPaymentType(), method -> new long[2]);
+        attempts[0]++;
+        if (!paid) {
+            return;
+        }
+        attempts[1]++;
+        BigDecimal listPrice = BigDecimal.ZERO;
+        for (CartLine line : order.cart) {
+            BigDecimal lineTotal = BigDecimal.valueOf(line.getPrice()).multiply(BigDecimal.valueOf(line.getQuantity()));
+            addRevenue(line.getType().getId(), lineTotal);
+            listPrice = listPrice.add(lineTotal);
+        }
+        BigDecimal total = order.getExactTotal();
+        revenueByKind[kind.ordinal()] = revenueByKind[kind.ordinal()].add(total);
+        discountByCustomerType.merge(order.customer.getCustomerType(), listPrice.subtract(total), BigDecimal::add);
+    }
+
+    public synchronized void merge(OrderAnalytics other) {
+        synchronized (other) {
+            for (int id = 0; id < other.revenueByType.length; id++) {
+                if (other.revenueByType[id] != null) {
+                    addRevenue(id, other.revenueByType[id]);
+                }
+            }
+            other.discountByCustomerType.forEach((type, amount) -> discountByCustomerType.merge(type, amount,
+                    BigDecimal::add));
+            other.payments.forEach((method, counts) -> {
+                long[] attempts = payments.computeIfAbsent(method, m -> new long[2]);
+                attempts[0] += counts[0];
+                attempts[1] += counts[1];
+            });
+            for (int i = 0; i < ORDER_KINDS.length; i++) {
+                ordersByKind[i] += other.ordersByKind[i];
+                revenueByKind[i] = revenueByKind[i].add(other.revenueByKind[i]);
+            }
+        }
+    }
+
+    public synchronized BigDecimal getRevenue(ProductType type) {
+        int id = type.getId();
+        return id < revenueByType.length && revenueByType[id] != null ? revenueByType[id] : BigDecimal.ZERO;
+    }
+
+    public synchronized BigDecimal getDiscount(String customerType) {
+        return discountByCustomerType.getOrDefault(customerType, BigDecimal.ZERO);
+    }
+
+    public synchronized long getPayments(String method) {
+        long[] attempts = payments.get(method);
+        return attempts == null ? 0 : attempts[0];
+    }
+
+    public synchronized long getSuccessfulPayments(String method) {
+        long[] attempts = payments.get(method);
+        return attempts == null ? 0 : attempts[1];
+    }
+
+    // Successful share of the payments made with the method, 0 when there were none
+    public synchronized double getSuccessRate(String method) {
+        long[] attempts = payments.get(method);
+        return attempts == null || attempts[0] == 0 ? 0 : (double) attempts[1] / attempts[0];
+    }
+
+    public synchronized long getOrders(ValidationRules.OrderKind kind) {
+        return ordersByKind[kind.ordinal()];
+    }
+
+    public synchronized BigDecimal getRevenue(ValidationRules.OrderKind kind) {
+        return revenueByKind[kind.ordinal()];
+    }
+
+    public void write(Path path) throws IOException {
+        Files.writeString(path, toJson(), StandardCharsets.UTF_8);
+    }
+
+    public synchronized String toJson() {
+        StringBuilder json = new StringBuilder("{\n  \"revenue_by_product_type\": {");
+        for (int id = 0; id < ProductType.count(); id++) {
+            ProductType type = ProductType.byId(id);
+            json.append(id == 0 ? "\n" : ",\n").append("    \"").append(type.getName()).append("\": ")
+                    .append(amount(getRevenue(type)));
+        }
+        json.append("\n  },\n  \"discount_by_customer_type\": {");
+        String separator = "\n";
+        for (Map.Entry<String, BigDecimal> discount : discountByCustomerType.entrySet()) {
+            json.append(separator).append("    \"").append(discount.getKey()).append("\": ")
+                    .append(amount(discount.getValue()));
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"payments\": {");
+        separator = "\n";
+        for (Map.Entry<String, long[]> method : payments.entrySet()) {
+            long[] attempts = method.getValue();
+            json.append(separator).append("    \"").append(method.getKey()).append("\": {\"attempts\": ")
+                    .append(attempts[0]).append(", \"successful\": ").append(attempts[1])
+                    .append(", \"success_rate\": ").append(getSuccessRate(method.getKey())).append('}');
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"order_types\": {");
+        for (int i = 0; i < ORDER_KINDS.length; i++) {
+            json.append(i == 0 ? "\n" : ",\n").append("    \"").append(ValidationRules.builtIn(ORDER_KINDS[i]))
+                    .append("\": {\"orders\": ").append(ordersByKind[i]).append(", \"revenue\": ")
+                    .append(amount(revenueByKind[i])).append('}');
+        }
+        return json.append("\n  }\n}\n").toString();
+    }
+
+    private void addRevenue(int typeId, BigDecimal amount) {
+        if (typeId >= revenueByType.length) {
+            revenueByType = Arrays.copyOf(revenueByType, typeId + 1);
+        }
+        revenueByType[typeId] = revenueByType[typeId] == null ? amount : revenueByType[typeId].add(amount);
+    }
+
+    private static String amount(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    // Splits the range in halves down to LEAF_ORDERS, then merges the halves back up
+    private static final class Aggregation extends RecursiveTask<OrderAnalytics> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Order> orders;
+        private final int from;
+        private final int to;
+
+        Aggregation(List<Order> orders, int from, int to) {
+            this.orders = orders;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected OrderAnalytics compute() {
+            if (to - from <= LEAF_ORDERS) {
+                OrderAnalytics analytics = new OrderAnalytics();
+                for (int i = from; i < to; i++) {
+                    Order order = orders.get(i);
+                    analytics.add(order, order.isPaid());
+                }
+                return analytics;
+            }
+            int middle = (from + to) >>> 1;
+            Aggregation right = new Aggregation(orders, middle, to);
+            right.fork();
+            OrderAnalytics left = new Aggregation(orders, from, middle).compute();
+            left.merge(right.join());
+            return left;
+        }
+    }
+}
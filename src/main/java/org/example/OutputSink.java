@@ -0,0 +1,162 @@
+package org.example;
+
+import java.io.PrintStream;
+
+/**
+ * Where Helper writes its output lines. A line is built with the append
+ * methods and finished with {@link #endLine()}.
+ */
+abstract class OutputSink {
+    static final int DEFAULT_FLUSH_THRESHOLD = 8 * 1024;
+
+    public abstract OutputSink append(CharSequence text);
+
+    public abstract OutputSink append(char c);
+
+    public abstract OutputSink append(int value);
+
+    /** Appends an amount the way String.format("%.2f", amount) prints it. */
+    public abstract OutputSink appendAmount(double amount);
+
+    public abstract void endLine();
+
+    public void println(String message) {
+        append(message);
+        endLine();
+    }
+
+    public abstract void flush();
+
+    /** Every line goes straight to the stream, like PrintStream.println. */
+    public static OutputSink direct(PrintStream out) {
+        return new DirectOutputSink(out);
+    }
+
+    /** Lines are collected and written in blocks, see {@link BufferedOutputSink}. */
+    public static OutputSink buffered(PrintStream out) {
+        return new BufferedOutputSink(out, DEFAULT_FLUSH_THRESHOLD);
+    }
+}
+
+class DirectOutputSink extends OutputSink {
+    private final PrintStream out;
+    private final StringBuilder line = new StringBuilder();
+
+    public DirectOutputSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public OutputSink append(CharSequence text) {
+        line.append(text);
+        return this;
+    }
+
+    @Override
+    public OutputSink append(char c) {
+        line.append(c);
+        return this;
+    }
+
+    @Override
+    public OutputSink append(int value) {
+        line.append(value);
+        return this;
+    }
+
+    @Override
+    public OutputSink appendAmount(double amount) {
+        CurrencyFormat.append(line, amount);
+        return this;
+    }
+
+    @Override
+    public void endLine() {
+        out.println(line);
+        line.setLength(0);
+    }
+
+    @Override
+    public void println(String message) {
+        if (line.length() > 0) {
+            super.println(message);
+            return;
+        }
+        out.println(message);
+    }
+
+    @Override
+    public void flush() {
+        out.flush();
+    }
+}
+
+/**
+ * Appends lines to one reusable StringBuilder and only hands it to the
+ * stream once it grows past the threshold or on an explicit flush, so an
+ * autoflushing stream like System.out is written once per block instead
+ * of once per line.
+ */
+class BufferedOutputSink extends OutputSink {
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final PrintStream out;
+    private final int threshold;
+    private final StringBuilder buffer;
+
+    public BufferedOutputSink(PrintStream out, int threshold) {
+        this.out = out;
+        this.threshold = threshold;
+        this.buffer = new StringBuilder(threshold + 256);
+    }
+
+    @Override
+    public OutputSink append(CharSequence text) {
+        buffer.append(text);
+        return this;
+    }
+
+    @Override
+    public OutputSink append(char c) {
+        buffer.append(c);
+        return this;
+    }
+
+    @Override
+    public OutputSink append(int value) {
+        buffer.append(value);
+        return this;
+    }
+
+    @Override
+    public OutputSink appendAmount(double amount) {
+        CurrencyFormat.append(buffer, amount);
+        return this;
+    }
+
+    @Override
+    public void endLine() {
+        buffer.append(LINE_SEPARATOR);
+        if (buffer.length() >= threshold) {
+            drain();
+        }
+    }
+
+    @Override
+    public void flush() {
+        drain();
+        out.flush();
+    }
+
+    int pending() {
+        return buffer.length();
+    }
+
+    private void drain() {
+        if (buffer.length() == 0) {
+            return;
+        }
+        out.print(buffer);
+        buffer.setLength(0);
+    }
+}
@@ -0,0 +1,192 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Applies a chunk of cart addition lines with a pool of workers.
+ * <p>
+ * The lines are tokenized in contiguous slices, then every record goes to
+ * the worker that owns its customer, so the additions of one customer keep
+ * their input order. Workers only share product stock. When the chunk asks
+ * for more of some product than is left, the outcome would depend on which
+ * worker gets there first, so such a chunk is applied in input order on the
+ * calling thread instead. Either way the result for every line is exactly
+ * what the sequential loop would produce, and the messages come back indexed
+ * by line so they can be printed in input order.
+ */
+class ParallelCartProcessor implements AutoCloseable {
+    static final int CHUNK_SIZE = 4096;
+
+    private static final byte SKIP = 0;
+    private static final byte RECORD = 1;
+
+    interface CartAddition {
+        String apply(String customerId, String productId, int quantity);
+    }
+
+    static final class Outcome {
+        final String[] messages = new String[CHUNK_SIZE];
+        // Lines that were applied, messages past it are not valid
+        int count;
+        // Parse error of line count, if any
+        RuntimeException error;
+    }
+
+    private final int workers;
+    private final ExecutorService pool;
+    private final LineTokenizer[] tokenizers;
+    private final String[] customerIds = new String[CHUNK_SIZE];
+    private final String[] productIds = new String[CHUNK_SIZE];
+    private final int[] quantities = new int[CHUNK_SIZE];
+    private final byte[] states = new byte[CHUNK_SIZE];
+    private final int[] shards = new int[CHUNK_SIZE];
+    private final int[] errorAt;
+    private final RuntimeException[] errors;
+    private final Outcome outcome = new Outcome();
+
+    public ParallelCartProcessor(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Invalid value.");
+        }
+        this.workers = workers;
+        this.pool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "cart-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.tokenizers = new LineTokenizer[workers];
+        for (int i = 0; i < workers; i++) {
+            tokenizers[i] = new LineTokenizer();
+        }
+        this.errorAt = new int[workers];
+        this.errors = new RuntimeException[workers];
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public Outcome process(String[] lines, int count, Inventory inventory, CartAddition action) {
+        if (count > CHUNK_SIZE) {
+            throw new IllegalArgumentException("Chunk too large: " + count);
+        }
+        int limit = parse(lines, count);
+        Arrays.fill(outcome.messages, 0, limit, null);
+        if (isContended(limit, inventory)) {
+            for (int i = 0; i < limit; i++) {
+                apply(i, action);
+            }
+        } else {
+            List<Callable<Void>> tasks = new ArrayList<>(workers);
+            for (int w = 0; w < workers; w++) {
+                int shard = w;
+                tasks.add(() -> {
+                    for (int i = 0; i < limit; i++) {
+                        if (shards[i] == shard) {
+                            apply(i, action);
+                        }
+                    }
+                    return null;
+                });
+            }
+            runAll(tasks);
+        }
+        outcome.count = limit;
+        return outcome;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // Tokenizes the chunk, returns the index of the first bad line or count
+    private int parse(String[] lines, int count) {
+        int slice = (count + workers - 1) / workers;
+        List<Callable<Void>> tasks = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            int worker = w;
+            int from = Math.min(count, w * slice);
+            int to = Math.min(count, from + slice);
+            errorAt[w] = to;
+            errors[w] = null;
+            tasks.add(() -> {
+                LineTokenizer tokenizer = tokenizers[worker];
+                for (int i = from; i < to; i++) {
+                    states[i] = SKIP;
+                    if (tokenizer.tokenize(lines[i]) != 3) {
+                        continue;
+                    }
+                    try {
+                        quantities[i] = tokenizer.intToken(2);
+                    } catch (RuntimeException e) {
+                        errorAt[worker] = i;
+                        errors[worker] = e;
+                        return null;
+                    }
+                    customerIds[i] = tokenizer.token(0);
+                    productIds[i] = tokenizer.token(1);
+                    shards[i] = (customerIds[i].hashCode() & Integer.MAX_VALUE) % workers;
+                    states[i] = RECORD;
+                }
+                return null;
+            });
+        }
+        runAll(tasks);
+        outcome.error = null;
+        for (int w = 0; w < workers; w++) {
+            if (errors[w] != null) {
+                outcome.error = errors[w];
+                return errorAt[w];
+            }
+        }
+        return count;
+    }
+
+    // Whether the records ask for more of any product than is in stock
+    private boolean isContended(int limit, Inventory inventory) {
+        HashMap<String, long[]> demand = new HashMap<>();
+        for (int i = 0; i < limit; i++) {
+            if (states[i] == RECORD && quantities[i] > 0) {
+                demand.computeIfAbsent(productIds[i], id -> new long[1])[0] += quantities[i];
+            }
+        }
+        for (var entry : demand.entrySet()) {
+            Product product = inventory.get(entry.getKey());
+            if (product != null && entry.getValue()[0] > product.getQuantity()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void apply(int i, CartAddition action) {
+        if (states[i] == RECORD) {
+            outcome.messages[i] = action.apply(customerIds[i], productIds[i], quantities[i]);
+        }
+    }
+
+    private void runAll(List<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.example;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps up to maxInFlight payments running at once while reporting their
+ * results in submission order. Results and plain output callbacks queue up
+ * behind the oldest unfinished payment and run on the submitting thread;
+ * submitting into a full window waits for the oldest payment first. A
+ * payment that takes longer than the timeout, or fails, counts as failed.
+ */
+class PaymentPipeline implements AutoCloseable {
+    private final int maxInFlight;
+    private final long timeoutMillis;
+    private final ExecutorService executor;
+    private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+    private int inFlight;
+
+    public PaymentPipeline(int maxInFlight, long timeoutMillis) {
+        if (maxInFlight < 1 || timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Invalid value.");
+        }
+        this.maxInFlight = maxInFlight;
+        this.timeoutMillis = timeoutMillis;
+        this.executor = VirtualThreads.newExecutor("payment", maxInFlight);
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void submit(Order order, Payment payment, double amount, Consumer<Boolean> onResult) {
+        while (inFlight >= maxInFlight) {
+            completeHead();
+        }
+        CompletableFuture<Boolean> result;
+        if (payment instanceof AsyncPayment) {
+            result = ((AsyncPayment) payment).processPaymentAsync(amount);
+        } else {
+            result = CompletableFuture.supplyAsync(() -> order.processOrder(payment, amount), executor);
+        }
+        pending.add(new Entry(result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS), onResult, null));
+        inFlight++;
+        completeDone();
+    }
+
+    // Runs the callback once everything submitted before it has been reported
+    public void then(Runnable callback) {
+        if (pending.isEmpty()) {
+            callback.run();
+        } else {
+            pending.add(new Entry(null, null, callback));
+        }
+    }
+
+    // Reports every outstanding payment, waiting for them as needed
+    public void drain() {
+        while (!pending.isEmpty()) {
+            completeHead();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private void completeDone() {
+        while (!pending.isEmpty() && (pending.peek().result == null || pending.peek().result.isDone())) {
+            completeHead();
+        }
+    }
+
+    private void completeHead() {
+        Entry entry = pending.poll();
+        if (entry.result == null) {
+            entry.callback.run();
+            return;
+        }
+        boolean status;
+        try {
+            status = entry.result.get();
+        } catch (ExecutionException e) {
+            status = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = false;
+        }
+        inFlight--;
+        entry.onResult.accept(status);
+        // Output queued behind this payment can go now too
+        while (!pending.isEmpty() && pending.peek().result == null) {
+            pending.poll().callback.run();
+        }
+    }
+
+    private static final class Entry {
+        final CompletableFuture<Boolean> result;
+        final Consumer<Boolean> onResult;
+        final Runnable callback;
+
+        Entry(CompletableFuture<Boolean> result, Consumer<Boolean> onResult, Runnable callback) {
+            this.result = result;
+            this.onResult = onResult;
+            this.callback = callback;
+        }
+    }
+}
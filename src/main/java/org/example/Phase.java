@@ -0,0 +1,13 @@
+package org.example;
+
+/**
+ * The steps of a run, in the order Main performs them. All but the cart
+ * report read a section of the input.
+ */
+enum Phase {
+    CUSTOMERS,
+    PRODUCTS,
+    CART_ADDITIONS,
+    CART_REPORT,
+    ORDERS
+}
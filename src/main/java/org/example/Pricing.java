@@ -0,0 +1,34 @@
+package org.example;
+
+import java.math.BigDecimal;
+
+/**
+ * Which PricingStrategy an order of a customer is priced with. DEFAULT is
+ * what the tool has always done: full price for regular customers and 10%
+ * off every item for premium ones.
+ */
+final class Pricing {
+    static final Pricing DEFAULT = new Pricing(PricingStrategy.STANDARD,
+            PricingStrategy.STANDARD.withOrderDiscount(new BigDecimal("0.10"))
+                    .withTotalLabel("Total (after 10% discount): "));
+
+    private final PricingStrategy regular;
+    private final PricingStrategy premium;
+
+    public Pricing(PricingStrategy regular, PricingStrategy premium) {
+        this.regular = regular;
+        this.premium = premium;
+    }
+
+    public PricingStrategy strategyFor(Customer customer) {
+        return customer instanceof PremiumCustomer ? premium : regular;
+    }
+
+    public PricingStrategy getRegular() {
+        return regular;
+    }
+
+    public PricingStrategy getPremium() {
+        return premium;
+    }
+}
@@ -0,0 +1,178 @@
+package org.example;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * How an order is priced. Every cart line gets the discount of its product
+ * category; the sum of the lines then gets the order discount, the volume
+ * discount once the cart holds enough items and the discount of the
+ * highest spending tier the sum reaches, one after the other. A discount
+ * is a rate off: 0.10 takes 10% off.
+ * <p>
+ * Strategies differ only in their data, the class is final, so the per-line
+ * call in Order is one monomorphic method the JIT inlines whatever mix of
+ * strategies a run prices with. Each order resolves its strategy once,
+ * through {@link Pricing}, when it is created.
+ * <p>
+ * The exact amounts are what totals are checked against. The amount that is
+ * printed and charged is still the double sum it always was: every line with
+ * its category and order discounts applied, added up in cart order.
+ */
+final class PricingStrategy {
+    static final PricingStrategy STANDARD = new PricingStrategy("Total: ", new BigDecimal[0], null, 0, null,
+            new BigDecimal[0], new BigDecimal[0]);
+
+    private final String totalLabel;
+    // Factors by ProductType id, null for no discount
+    private final BigDecimal[] categoryFactors;
+    private final BigDecimal orderFactor;
+    private final int volumeItems;
+    private final BigDecimal volumeFactor;
+    // Ascending spending thresholds and their factors
+    private final BigDecimal[] tierThresholds;
+    private final BigDecimal[] tierFactors;
+    // The same factors as doubles, 1.0 for no discount
+    private final double[] categoryValues;
+    private final double orderValue;
+    private final double volumeValue;
+
+    private PricingStrategy(String totalLabel, BigDecimal[] categoryFactors, BigDecimal orderFactor, int volumeItems,
+            BigDecimal volumeFactor, BigDecimal[] tierThresholds, BigDecimal[] tierFactors) {
+        this.totalLabel = totalLabel;
+        this.categoryFactors = categoryFactors;
+        this.orderFactor = orderFactor;
+        this.volumeItems = volumeItems;
+        this.volumeFactor = volumeFactor;
+        this.tierThresholds = tierThresholds;
+        this.tierFactors = tierFactors;
+        this.categoryValues = new double[categoryFactors.length];
+        for (int i = 0; i < categoryFactors.length; i++) {
+            categoryValues[i] = value(categoryFactors[i]);
+        }
+        this.orderValue = value(orderFactor);
+        this.volumeValue = value(volumeFactor);
+    }
+
+    // Exact amount of a cart line
+    public BigDecimal line(ProductType type, double price, int quantity) {
+        BigDecimal amount = BigDecimal.valueOf(price).multiply(BigDecimal.valueOf(quantity));
+        int id = type.getId();
+        if (id < categoryFactors.length && categoryFactors[id] != null) {
+            amount = amount.multiply(categoryFactors[id]);
+        }
+        return amount;
+    }
+
+    // Exact total of an order from the sum of its lines and its number of items
+    public BigDecimal total(BigDecimal lines, int items) {
+        BigDecimal total = lines;
+        if (orderFactor != null) {
+            total = total.multiply(orderFactor);
+        }
+        if (volumeFactor != null && items >= volumeItems) {
+            total = total.multiply(volumeFactor);
+        }
+        for (int i = tierThresholds.length - 1; i >= 0; i--) {
+            if (lines.compareTo(tierThresholds[i]) >= 0) {
+                total = total.multiply(tierFactors[i]);
+                break;
+            }
+        }
+        return total;
+    }
+
+    // Amount of a cart line as a double, with the order discount applied to the line
+    public double lineValue(ProductType type, double price, int quantity) {
+        double amount = price * quantity;
+        int id = type.getId();
+        if (id < categoryValues.length && categoryFactors[id] != null) {
+            amount *= categoryValues[id];
+        }
+        if (orderFactor != null) {
+            amount *= orderValue;
+        }
+        return amount;
+    }
+
+    // Double total from the sum of lineValue; the tier is picked by the exact sum of the lines
+    public double totalValue(double lineValues, BigDecimal lines, int items) {
+        double total = lineValues;
+        if (volumeFactor != null && items >= volumeItems) {
+            total *= volumeValue;
+        }
+        for (int i = tierThresholds.length - 1; i >= 0; i--) {
+            if (lines.compareTo(tierThresholds[i]) >= 0) {
+                total *= tierFactors[i].doubleValue();
+                break;
+            }
+        }
+        return total;
+    }
+
+    // What the cart report prints in front of the total
+    public String getTotalLabel() {
+        return totalLabel;
+    }
+
+    public PricingStrategy withTotalLabel(String totalLabel) {
+        return new PricingStrategy(totalLabel, categoryFactors, orderFactor, volumeItems, volumeFactor,
+                tierThresholds, tierFactors);
+    }
+
+    public PricingStrategy withOrderDiscount(BigDecimal rate) {
+        return new PricingStrategy(totalLabel, categoryFactors, factor(rate), volumeItems, volumeFactor,
+                tierThresholds, tierFactors);
+    }
+
+    public PricingStrategy withCategoryDiscount(ProductType type, BigDecimal rate) {
+        BigDecimal[] factors = Arrays.copyOf(categoryFactors, Math.max(categoryFactors.length, type.getId() + 1));
+        factors[type.getId()] = factor(rate);
+        return new PricingStrategy(totalLabel, factors, orderFactor, volumeItems, volumeFactor, tierThresholds,
+                tierFactors);
+    }
+
+    // Applies once the cart holds at least items items
+    public PricingStrategy withVolumeDiscount(int items, BigDecimal rate) {
+        if (items < 1) {
+            throw new IllegalArgumentException("Invalid value.");
+        }
+        return new PricingStrategy(totalLabel, categoryFactors, orderFactor, items, factor(rate), tierThresholds,
+                tierFactors);
+    }
+
+    // Applies when the lines add up to at least threshold and no higher tier is reached
+    public PricingStrategy withTier(BigDecimal threshold, BigDecimal rate) {
+        if (threshold.signum() < 0) {
+            throw new IllegalArgumentException("Invalid value.");
+        }
+        int position = 0;
+        while (position < tierThresholds.length && tierThresholds[position].compareTo(threshold) < 0) {
+            position++;
+        }
+        boolean replace = position < tierThresholds.length && tierThresholds[position].compareTo(threshold) == 0;
+        int length = tierThresholds.length + (replace ? 0 : 1);
+        BigDecimal[] thresholds = new BigDecimal[length];
+        BigDecimal[] factors = new BigDecimal[length];
+        System.arraycopy(tierThresholds, 0, thresholds, 0, position);
+        System.arraycopy(tierFactors, 0, factors, 0, position);
+        thresholds[position] = threshold;
+        factors[position] = factor(rate);
+        int rest = position + (replace ? 1 : 0);
+        System.arraycopy(tierThresholds, rest, thresholds, position + 1, tierThresholds.length - rest);
+        System.arraycopy(tierFactors, rest, factors, position + 1, tierThresholds.length - rest);
+        return new PricingStrategy(totalLabel, categoryFactors, orderFactor, volumeItems, volumeFactor, thresholds,
+                factors);
+    }
+
+    private static double value(BigDecimal factor) {
+        return factor == null ? 1.0 : factor.doubleValue();
+    }
+
+    private static BigDecimal factor(BigDecimal rate) {
+        if (rate.signum() < 0 || rate.compareTo(BigDecimal.ONE) > 0) {
+            throw new IllegalArgumentException("Invalid value.");
+        }
+        return BigDecimal.ONE.subtract(rate);
+    }
+}
@@ -0,0 +1,89 @@
+package org.example;
+
+/**
+ * Told about every change Helper makes to the customers, the inventory and
+ * the orders, after the change is made. Cart additions can be reported
+ * from several threads at once when the cart phase runs in parallel; all
+ * other calls come from the thread running the phase.
+ */
+interface ProcessingListener {
+    ProcessingListener NONE = new ProcessingListener() {
+    };
+
+    // Tells first, then second
+    static ProcessingListener both(ProcessingListener first, ProcessingListener second) {
+        if (first == NONE) {
+            return second;
+        }
+        if (second == NONE) {
+            return first;
+        }
+        return new ProcessingListener() {
+            @Override
+            public void customerAdded(Customer customer) {
+                first.customerAdded(customer);
+                second.customerAdded(customer);
+            }
+
+            @Override
+            public void productAdded(Product product) {
+                first.productAdded(product);
+                second.productAdded(product);
+            }
+
+            @Override
+            public void cartAdded(Customer customer, Product product, int quantity) {
+                first.cartAdded(customer, product, quantity);
+                second.cartAdded(customer, product, quantity);
+            }
+
+            @Override
+            public void orderProcessed(int ordinal, Order order, boolean paid) {
+                first.orderProcessed(ordinal, order, paid);
+                second.orderProcessed(ordinal, order, paid);
+            }
+
+            @Override
+            public void checkpointReached(Checkpoint checkpoint) {
+                first.checkpointReached(checkpoint);
+                second.checkpointReached(checkpoint);
+            }
+
+            @Override
+            public void phaseStarted(Phase phase) {
+                first.phaseStarted(phase);
+                second.phaseStarted(phase);
+            }
+
+            @Override
+            public void phaseCompleted(Phase phase) {
+                first.phaseCompleted(phase);
+                second.phaseCompleted(phase);
+            }
+        };
+    }
+
+    default void customerAdded(Customer customer) {
+    }
+
+    default void productAdded(Product product) {
+    }
+
+    // Stock for the quantity has been taken from the product
+    default void cartAdded(Customer customer, Product product, int quantity) {
+    }
+
+    // ordinal is the position of the order record in its section, starting at 0
+    default void orderProcessed(int ordinal, Order order, boolean paid) {
+    }
+
+    // Everything before the checkpoint's position in the input has been applied and reported
+    default void checkpointReached(Checkpoint checkpoint) {
+    }
+
+    default void phaseStarted(Phase phase) {
+    }
+
+    default void phaseCompleted(Phase phase) {
+    }
+}
@@ -0,0 +1,192 @@
+package org.example;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Column store for very large catalogs. Every product is a dense int index
+ * into primitive columns (price, stock, warranty, size ordinal, type), so a
+ * SKU costs a few dozen bytes plus its id and name strings instead of a
+ * Product object and a map entry. Ids are found through an open addressing
+ * table of indexes and are interned: the catalog keeps one String per id,
+ * and every view of the product returns that instance from getItemId, so
+ * cart lines and indexes built from views share it instead of holding
+ * copies parsed from the input.
+ * <p>
+ * Columns are split in fixed pages that never move once allocated, so stock
+ * can be reserved from any thread while products are still being added.
+ * Existing callers see a product through {@link #view(int)}.
+ */
+final class ProductCatalog implements WritableProductStore {
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final VarHandle STOCK = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private String[][] ids = new String[0][];
+    private String[][] names = new String[0][];
+    private double[][] prices = new double[0][];
+    private int[][] stock = new int[0][];
+    // ProductType ids
+    private byte[][] types = new byte[0][];
+    // Warranty months for Electronics, size ordinal for Fashion
+    private byte[][] attributes = new byte[0][];
+
+    // Index + 1 per slot, 0 when empty
+    private volatile int[] slots = new int[16];
+    private volatile int size;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int indexOf(String id) {
+        int count = size;
+        int[] table = slots;
+        int mask = table.length - 1;
+        for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            int index = entry - 1;
+            if (index < count && id.equals(ids[index >>> PAGE_BITS][index & PAGE_MASK])) {
+                return index;
+            }
+        }
+    }
+
+    @Override
+    public synchronized int add(String id, String name, double price, int quantity, ProductType type, int attribute) {
+        if (price <= 0 || quantity < 0 || attribute < 0 || attribute > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid value.");
+        }
+        if (indexOf(id) >= 0) {
+            return -1;
+        }
+        int index = size;
+        int page = index >>> PAGE_BITS;
+        if (page == ids.length) {
+            addPage();
+        }
+        int offset = index & PAGE_MASK;
+        ids[page][offset] = id;
+        names[page][offset] = name;
+        prices[page][offset] = price;
+        stock[page][offset] = quantity;
+        types[page][offset] = (byte) type.getId();
+        attributes[page][offset] = (byte) attribute;
+        if ((index + 1) * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        int[] table = slots;
+        int mask = table.length - 1;
+        int slot = hash(id) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = index + 1;
+        size = index + 1;
+        return index;
+    }
+
+    @Override
+    public String id(int index) {
+        return ids[index >>> PAGE_BITS][index & PAGE_MASK];
+    }
+
+    @Override
+    public String name(int index) {
+        return names[index >>> PAGE_BITS][index & PAGE_MASK];
+    }
+
+    @Override
+    public double price(int index) {
+        return prices[index >>> PAGE_BITS][index & PAGE_MASK];
+    }
+
+    @Override
+    public ProductType type(int index) {
+        return ProductType.byId(types[index >>> PAGE_BITS][index & PAGE_MASK]);
+    }
+
+    @Override
+    public int stock(int index) {
+        return (int) STOCK.getVolatile(stock[index >>> PAGE_BITS], index & PAGE_MASK);
+    }
+
+    @Override
+    public void setStock(int index, int quantity) {
+        STOCK.setVolatile(stock[index >>> PAGE_BITS], index & PAGE_MASK, quantity);
+    }
+
+    @Override
+    public boolean tryReserve(int index, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("INVALID_QUANTITY");
+        }
+        int[] page = stock[index >>> PAGE_BITS];
+        int offset = index & PAGE_MASK;
+        while (true) {
+            int left = (int) STOCK.getVolatile(page, offset);
+            if (quantity > left) {
+                return false;
+            }
+            if (STOCK.compareAndSet(page, offset, left, left - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void release(int index, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("INVALID_QUANTITY");
+        }
+        STOCK.getAndAdd(stock[index >>> PAGE_BITS], index & PAGE_MASK, quantity);
+    }
+
+    @Override
+    public int attribute(int index) {
+        return attributes[index >>> PAGE_BITS][index & PAGE_MASK];
+    }
+
+    // Readers may still hold the old outer arrays, the pages themselves are shared
+    private void addPage() {
+        int pages = ids.length + 1;
+        ids = Arrays.copyOf(ids, pages);
+        names = Arrays.copyOf(names, pages);
+        prices = Arrays.copyOf(prices, pages);
+        stock = Arrays.copyOf(stock, pages);
+        types = Arrays.copyOf(types, pages);
+        attributes = Arrays.copyOf(attributes, pages);
+        int page = pages - 1;
+        ids[page] = new String[PAGE_SIZE];
+        names[page] = new String[PAGE_SIZE];
+        prices[page] = new double[PAGE_SIZE];
+        stock[page] = new int[PAGE_SIZE];
+        types[page] = new byte[PAGE_SIZE];
+        attributes[page] = new byte[PAGE_SIZE];
+    }
+
+    private void rehash(int capacity) {
+        int[] table = new int[capacity];
+        int mask = capacity - 1;
+        for (int index = 0; index < size; index++) {
+            int slot = hash(id(index)) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = index + 1;
+        }
+        slots = table;
+    }
+
+    private static int hash(String id) {
+        int h = id.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
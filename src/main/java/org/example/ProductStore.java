@@ -0,0 +1,146 @@
+package org.example;
+
+/**
+ * Products kept outside of Product objects, addressed by a dense index.
+ * Stock changes follow the same rules as on Product: a reservation takes
+ * the whole quantity or nothing and is safe from any thread. A store
+ * products can be added to is a {@link WritableProductStore}.
+ */
+interface ProductStore {
+    enum Size {
+        S, M, L, XL, XXL;
+
+        private static final Size[] VALUES = values();
+
+        // Null unless the text is one of the sizes Fashion accepts
+        static Size parse(String text) {
+            for (Size size : VALUES) {
+                if (size.name().equals(text)) {
+                    return size;
+                }
+            }
+            return null;
+        }
+
+        static Size of(int ordinal) {
+            return VALUES[ordinal];
+        }
+    }
+
+    int size();
+
+    // Index of the product or -1
+    int indexOf(String id);
+
+    String id(int index);
+
+    String name(int index);
+
+    double price(int index);
+
+    ProductType type(int index);
+
+    // What Product.getAttribute returned: warranty months, size ordinal or 0
+    int attribute(int index);
+
+    int stock(int index);
+
+    void setStock(int index, int quantity);
+
+    // Same contract as Product.tryReserve
+    boolean tryReserve(int index, int quantity);
+
+    void release(int index, int quantity);
+
+    default boolean contains(String id) {
+        return indexOf(id) >= 0;
+    }
+
+    default int warranty(int index) {
+        return type(index).getAttribute() == ProductType.Attribute.WARRANTY ? attribute(index) : -1;
+    }
+
+    default Size fashionSize(int index) {
+        return type(index).getAttribute() == ProductType.Attribute.SIZE ? Size.of(attribute(index)) : null;
+    }
+
+    default Product view(int index) {
+        return new CatalogProduct(this, index);
+    }
+}
+
+/**
+ * Flyweight Product over one row of a {@link ProductStore}. Only the store
+ * and the index are kept; everything else is read from the store, and stock
+ * changes go straight to it.
+ */
+class CatalogProduct extends Product {
+    private final ProductStore store;
+    private final int index;
+
+    CatalogProduct(ProductStore store, int index) {
+        this.store = store;
+        this.index = index;
+    }
+
+    @Override
+    public ProductType getType() {
+        return store.type(index);
+    }
+
+    @Override
+    public String getItemId() {
+        return store.id(index);
+    }
+
+    @Override
+    public String getName() {
+        return store.name(index);
+    }
+
+    @Override
+    public double getPrice() {
+        return store.price(index);
+    }
+
+    @Override
+    public int getQuantity() {
+        return store.stock(index);
+    }
+
+    @Override
+    public void setQuantity(int quantity) {
+        store.setStock(index, quantity);
+    }
+
+    @Override
+    public boolean tryReserve(int quantity) {
+        return store.tryReserve(index, quantity);
+    }
+
+    @Override
+    public void release(int quantity) {
+        store.release(index, quantity);
+    }
+
+    @Override
+    public int getWarranty() {
+        return store.warranty(index);
+    }
+
+    @Override
+    public String getSize() {
+        ProductStore.Size size = store.fashionSize(index);
+        return size == null ? null : size.name();
+    }
+
+    @Override
+    public int getAttribute() {
+        return store.attribute(index);
+    }
+
+    @Override
+    public String toString() {
+        return getType().create(getItemId(), getName(), getPrice(), 0, getAttribute()).toString();
+    }
+}
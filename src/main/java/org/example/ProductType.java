@@ -0,0 +1,103 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Registry of product categories. Every category gets a small dense id,
+ * so per-category settings such as the discounts of a PricingStrategy are
+ * array lookups, and the stores keep a product's category as that id in a
+ * byte. GENERAL is a plain Product, ELECTRONICS and FASHION the two built-in
+ * subclasses; a new Product subclass registers its category here with the
+ * attribute it keeps and how to create one, and returns it from
+ * {@link Product#getType()}.
+ */
+final class ProductType {
+    // Ids have to fit the byte the stores keep them in
+    static final int MAX_TYPES = Byte.MAX_VALUE + 1;
+
+    // The one value besides name and price a category keeps, stored as a small int
+    enum Attribute {
+        NONE, WARRANTY, SIZE
+    }
+
+    // Creates a product of the category from what the stores keep of it
+    interface Factory {
+        Product create(String itemId, String name, double price, int quantity, int attribute);
+    }
+
+    // Replaced as a whole on register, so byId reads it without a lock
+    private static volatile ProductType[] types = new ProductType[0];
+
+    static final ProductType GENERAL = register("General", Attribute.NONE,
+            (itemId, name, price, quantity, attribute) -> new Product(itemId, name, price, quantity));
+    static final ProductType ELECTRONICS = register("Electronics", Attribute.WARRANTY, Electronics::new);
+    static final ProductType FASHION = register("Fashion", Attribute.SIZE,
+            (itemId, name, price, quantity, attribute) -> new Fashion(itemId, name, price, quantity,
+                    ProductStore.Size.of(attribute).name()));
+
+    private final String name;
+    private final int id;
+    private final Attribute attribute;
+    private final Factory factory;
+
+    private ProductType(String name, int id, Attribute attribute, Factory factory) {
+        this.name = name;
+        this.id = id;
+        this.attribute = attribute;
+        this.factory = factory;
+    }
+
+    public static synchronized ProductType register(String name, Attribute attribute, Factory factory) {
+        if (of(name) != null) {
+            throw new IllegalArgumentException("Product type " + name + " is already registered");
+        }
+        if (types.length == MAX_TYPES) {
+            throw new IllegalStateException("No more than " + MAX_TYPES + " product types");
+        }
+        ProductType type = new ProductType(name, types.length, attribute, factory);
+        ProductType[] registered = Arrays.copyOf(types, types.length + 1);
+        registered[type.id] = type;
+        types = registered;
+        return type;
+    }
+
+    // Null when no category has the name
+    public static ProductType of(String name) {
+        for (ProductType type : types) {
+            if (type.name.equals(name)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    public static ProductType byId(int id) {
+        return types[id];
+    }
+
+    public static int count() {
+        return types.length;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Attribute getAttribute() {
+        return attribute;
+    }
+
+    // A product of this category; attribute is what Product.getAttribute returns for it
+    public Product create(String itemId, String name, double price, int quantity, int attribute) {
+        return factory.create(itemId, name, price, quantity, attribute);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,14 @@
+package org.example;
+
+/**
+ * The fields of the record at hand, by position. Helper validates a
+ * customer or product through this, whether the fields came from a text
+ * line or a {@link RecordReader}.
+ */
+interface RecordFields {
+    String token(int index);
+
+    int intToken(int index);
+
+    double doubleToken(int index);
+}
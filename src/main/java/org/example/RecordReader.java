@@ -0,0 +1,27 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Reads a bulk export of customers or products one record at a time,
+ * without the count header of the text format. The fields are only valid
+ * until the next call to {@link #next()}.
+ */
+interface RecordReader extends RecordFields, Closeable {
+    // Moves to the next record and returns its number of fields, -1 at the end of the input
+    int next();
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    // CSV for a .csv file, the binary record format otherwise
+    static RecordReader open(Path path) throws IOException {
+        if (path.getFileName().toString().endsWith(".csv")) {
+            return CsvRecordReader.open(path);
+        }
+        return BinaryRecordReader.open(path);
+    }
+}
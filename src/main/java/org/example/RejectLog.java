@@ -0,0 +1,103 @@
+package org.example;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Logs rejected records with where they were found, at DEBUG: their
+ * diagnostics are already on stdout, so a default run does not repeat them
+ * on stderr. Only the first perSecond rejects of every second are logged,
+ * the others are counted and the count is logged once the next second
+ * starts, so a feed that is mostly bad costs a counter increment per
+ * record rather than a log line.
+ * <p>
+ * Messages are parameterized, with ints boxed through Unbox, so logging a
+ * reject allocates nothing; the loggers are asynchronous and the calling
+ * thread does not wait for the line to be written.
+ */
+final class RejectLog {
+    static final RejectLog NONE = new RejectLog(null, 0, System::nanoTime);
+
+    private static final Logger LOGGER = LogManager.getLogger("org.example.reject");
+    private static final long SECOND = 1_000_000_000L;
+
+    private final Logger logger;
+    private final int perSecond;
+    private final LongSupplier clock;
+    private final AtomicLong second = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicInteger logged = new AtomicInteger();
+    private final LongAdder suppressed = new LongAdder();
+
+    // 0 logs every reject
+    public RejectLog(int perSecond) {
+        this(LOGGER, perSecond, System::nanoTime);
+    }
+
+    RejectLog(Logger logger, int perSecond, LongSupplier clock) {
+        if (perSecond < 0) {
+            throw new IllegalArgumentException("Invalid value.");
+        }
+        this.logger = logger;
+        this.perSecond = perSecond;
+        this.clock = clock;
+    }
+
+    public void rejected(Phase phase, int record, RejectReason reason) {
+        if (enabled() && admit()) {
+            logger.debug("{} record {} rejected: {}", phase, Unbox.box(record), reason);
+        }
+    }
+
+    // Cart additions are applied by the parallel workers out of input order, so they are logged by content
+    public void rejected(String customerId, String productId, int quantity, RejectReason reason) {
+        if (enabled() && admit()) {
+            logger.debug("Cart addition {} {} {} rejected: {}", customerId, productId, Unbox.box(quantity), reason);
+        }
+    }
+
+    // Logs the rejects of the current second that were only counted
+    public void close() {
+        if (logger != null) {
+            report();
+        }
+    }
+
+    private boolean enabled() {
+        return logger != null && logger.isDebugEnabled();
+    }
+
+    // Whether this reject is one of the first perSecond of its second
+    boolean admit() {
+        if (perSecond == 0) {
+            return true;
+        }
+        long now = clock.getAsLong() / SECOND;
+        long current = second.get();
+        if (now != current && second.compareAndSet(current, now)) {
+            logged.set(0);
+            report();
+        }
+        if (logged.incrementAndGet() <= perSecond) {
+            return true;
+        }
+        suppressed.increment();
+        return false;
+    }
+
+    long getSuppressed() {
+        return suppressed.sum();
+    }
+
+    private void report() {
+        long count = suppressed.sumThenReset();
+        if (count > 0) {
+            logger.debug("{} more rejects were not logged", Unbox.box(count));
+        }
+    }
+}
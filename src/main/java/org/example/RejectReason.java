@@ -0,0 +1,49 @@
+package org.example;
+
+/**
+ * Why Helper turned a record down. Most reasons are printed as their name;
+ * MALFORMED_RECORD and INVALID_VALUE cover the records the tool has always
+ * dropped without a message and are only counted.
+ */
+enum RejectReason {
+    INVALID_CUSTOMER_ID,
+    INVALID_PRODUCT_ID,
+    INVALID_WARRANTY_PERIOD,
+    INVALID_SIZE,
+    INVALID_QUANTITY,
+    OUT_OF_STOCK,
+    CART_LIMIT_EXCEEDED,
+    INVALID_ORDER_TYPE,
+    INVALID_PAYMENT_METHOD,
+    EMPTY_CART("Order cannot be processed: Cart is empty"),
+    // Wrong number of fields
+    MALFORMED_RECORD,
+    // Out of range price, quantity, type or an empty field
+    INVALID_VALUE;
+
+    private static final RejectReason[] VALUES = values();
+
+    private final String message;
+
+    RejectReason() {
+        this.message = name();
+    }
+
+    RejectReason(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    // Null unless the message is one Helper prints
+    static RejectReason of(String message) {
+        for (RejectReason reason : VALUES) {
+            if (reason.message.equals(message)) {
+                return reason;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,162 @@
+package org.example;
+
+/**
+ * Command line options of Main:
+ * <pre>
+ * Main [--mmap] [--unbounded] [--streaming] [--cart-limit=N] [--verify-totals]
+ *      [--cart-workers=N] [--payments-in-flight=N] [--payment-timeout-ms=N]
+ *      [--simulated-gateway-ms=N] [--order-batch=N] [--columnar-catalog] [--snapshot=FILE]
+ *      [--snapshot-write-back] [--wal=FILE] [--wal-group-us=N] [--wal-compact-bytes=N]
+ *      [--checkpoint-every=N] [--metrics=FILE] [--reject-log-rate=N]
+ *      [--customers=FILE] [--products=FILE] [--rules=FILE] [--analytics=FILE] [--serve=PORT]
+ *      [input-file]
+ * </pre>
+ * Input is read from stdin when no file is given. With --snapshot the
+ * inventory is taken from the snapshot file if it exists, otherwise the
+ * product section is read and the snapshot written. With --wal every
+ * change is logged, and a run over an existing log first recovers its
+ * state and skips the phases the log has finished; it cannot be combined
+ * with --snapshot. The log also holds checkpoints, taken at the end of every
+ * phase and every --checkpoint-every records (0 for phase ends only), so a
+ * run continues at the input line where the last one stopped, including
+ * lines appended to a streamed feed since. With --metrics the counters and
+ * latency histograms of the run are written to FILE at the end, as JSON if
+ * the name ends in .json and in Prometheus text format otherwise.
+ * <p>
+ * stdout carries the output of the run, the diagnostic line of every
+ * rejected record included. Everything else is logged through log4j2 to
+ * stderr. Rejected records are also logged, at DEBUG (-Dlog.level=debug);
+ * --reject-log-rate then logs the first N rejects of every second and
+ * counts the rest (0 logs them all).
+ * <p>
+ * --customers and --products read that phase from a bulk export instead,
+ * CSV if the name ends in .csv and the binary record format otherwise; the
+ * input then leaves out that section. They cannot be combined with --wal,
+ * nor --products with --snapshot.
+ * <p>
+ * --rules overrides the accepted customer, product and order values and
+ * the product ranges of validation.properties with the ones in FILE.
+ * <p>
+ * --order-batch checks out N orders before paying them together, one call
+ * per payment method; the output is the same as paying each order as it is
+ * read. It cannot be combined with --payments-in-flight above 1.
+ * <p>
+ * --analytics writes revenue, discount, payment and order type figures of
+ * the processed orders to FILE as JSON at the end, see {@link OrderAnalytics}.
+ * <p>
+ * --serve keeps running after the input is processed and serves carts and
+ * checkouts of the loaded customers and inventory over HTTP on localhost,
+ * see {@link ShopServer}; PORT 0 picks a free port. It cannot be combined
+ * with --wal.
+ */
+class RunOptions {
+    String inputPath;
+    boolean mapped;
+    IngestLimits limits = IngestLimits.DEFAULT;
+    boolean streaming;
+    int cartLimit = Order.DEFAULT_CART_LIMIT;
+    boolean verifyTotals;
+    int cartWorkers = 1;
+    int paymentsInFlight = 1;
+    long paymentTimeoutMillis = 30_000;
+    long simulatedGatewayMillis = -1;
+    int orderBatch = 1;
+    boolean columnarCatalog;
+    String snapshotPath;
+    boolean snapshotWriteBack;
+    String walPath;
+    long walGroupMicros;
+    long walCompactBytes = WriteAheadLog.DEFAULT_COMPACT_BYTES;
+    int checkpointEvery = 10_000;
+    String metricsPath;
+    int rejectLogRate = 100;
+    String customersPath;
+    String productsPath;
+    String rulesPath;
+    String analyticsPath;
+    // -1 for a batch run
+    int servePort = -1;
+
+    public static RunOptions parse(String[] args) {
+        RunOptions options = new RunOptions();
+        for (String arg : args) {
+            if (arg.equals("--mmap")) {
+                options.mapped = true;
+            } else if (arg.equals("--unbounded")) {
+                options.limits = IngestLimits.UNBOUNDED;
+            } else if (arg.equals("--streaming")) {
+                options.streaming = true;
+            } else if (arg.equals("--columnar-catalog")) {
+                options.columnarCatalog = true;
+            } else if (arg.equals("--snapshot-write-back")) {
+                options.snapshotWriteBack = true;
+            } else if (arg.startsWith("--snapshot=")) {
+                options.snapshotPath = value(arg);
+            } else if (arg.startsWith("--wal=")) {
+                options.walPath = value(arg);
+            } else if (arg.startsWith("--wal-group-us=")) {
+                options.walGroupMicros = Long.parseLong(value(arg));
+            } else if (arg.startsWith("--wal-compact-bytes=")) {
+                options.walCompactBytes = Long.parseLong(value(arg));
+            } else if (arg.startsWith("--checkpoint-every=")) {
+                options.checkpointEvery = Integer.parseInt(value(arg));
+            } else if (arg.startsWith("--metrics=")) {
+                options.metricsPath = value(arg);
+            } else if (arg.startsWith("--customers=")) {
+                options.customersPath = value(arg);
+            } else if (arg.startsWith("--products=")) {
+                options.productsPath = value(arg);
+            } else if (arg.startsWith("--rules=")) {
+                options.rulesPath = value(arg);
+            } else if (arg.startsWith("--analytics=")) {
+                options.analyticsPath = value(arg);
+            } else if (arg.startsWith("--serve=")) {
+                options.servePort = Integer.parseInt(value(arg));
+            } else if (arg.startsWith("--reject-log-rate=")) {
+                options.rejectLogRate = Integer.parseInt(value(arg));
+            } else if (arg.equals("--verify-totals")) {
+                options.verifyTotals = true;
+            } else if (arg.startsWith("--cart-limit=")) {
+                options.cartLimit = Integer.parseInt(value(arg));
+            } else if (arg.startsWith("--cart-workers=")) {
+                options.cartWorkers = Integer.parseInt(value(arg));
+            } else if (arg.startsWith("--payments-in-flight=")) {
+                options.paymentsInFlight = Integer.parseInt(value(arg));
+            } else if (arg.startsWith("--payment-timeout-ms=")) {
+                options.paymentTimeoutMillis = Long.parseLong(value(arg));
+            } else if (arg.startsWith("--order-batch=")) {
+                options.orderBatch = Integer.parseInt(value(arg));
+            } else if (arg.startsWith("--simulated-gateway-ms=")) {
+                options.simulatedGatewayMillis = Long.parseLong(value(arg));
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            } else {
+                options.inputPath = arg;
+            }
+        }
+        if (options.walPath != null && options.snapshotPath != null) {
+            throw new IllegalArgumentException("--wal cannot be combined with --snapshot");
+        }
+        if (options.walPath != null && (options.customersPath != null || options.productsPath != null)) {
+            throw new IllegalArgumentException("--wal cannot be combined with --customers or --products");
+        }
+        if (options.walPath != null && options.servePort >= 0) {
+            throw new IllegalArgumentException("--wal cannot be combined with --serve");
+        }
+        if (options.orderBatch > 1 && options.paymentsInFlight > 1) {
+            throw new IllegalArgumentException("--order-batch cannot be combined with --payments-in-flight");
+        }
+        if (options.snapshotPath != null && options.productsPath != null) {
+            throw new IllegalArgumentException("--snapshot cannot be combined with --products");
+        }
+        return options;
+    }
+
+    public IngestLimits effectiveLimits() {
+        return limits.streaming(streaming).withCartLimit(cartLimit);
+    }
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+}
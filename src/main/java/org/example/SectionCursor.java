@@ -0,0 +1,277 @@
+package org.example;
+
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Where Helper is in its input: the phase being read, the count of its
+ * section and how many of the section's records have been consumed. The
+ * read loops only ask for the next record; the cursor reads the count
+ * header, ends a streamed section at its blank line, feeds what it reads
+ * to the snapshot fingerprint and takes a checkpoint every interval
+ * records, except while the caller holds records it has not applied yet.
+ * <p>
+ * A checkpoint settles first, so the output and state it covers are
+ * complete, and is then handed to the consumer given at construction.
+ */
+final class SectionCursor {
+    private final Runnable settle;
+    private final LongSupplier settings;
+    private final Consumer<Checkpoint> reached;
+    private boolean streaming;
+    // -1 for no checkpoints, 0 for one at the end of each phase, otherwise also every that many records
+    private int checkpointInterval = -1;
+    // Set while a section is read for an inventory snapshot
+    private LineFingerprint fingerprint;
+    private Checkpoint lastCheckpoint;
+    // Set until the phase it was taken in picks up from it
+    private Checkpoint resumePoint;
+    // Null while a section is skipped
+    private Phase phase;
+    private int sectionCount;
+    private int sectionRecords;
+    private boolean sectionOpen;
+    private boolean sectionEnded;
+    private boolean resumingSection;
+    private int checkpointedRecords;
+    private boolean checkpointsDeferred;
+    private int phaseStartRecords;
+
+    /**
+     * settle applies and prints whatever was read before a checkpoint,
+     * settings fingerprints the limits and rules the input is read with.
+     */
+    SectionCursor(Runnable settle, LongSupplier settings, Consumer<Checkpoint> reached) {
+        this.settle = settle;
+        this.settings = settings;
+        this.reached = reached;
+    }
+
+    void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    void setCheckpointInterval(int records) {
+        this.checkpointInterval = records;
+    }
+
+    // Null stops fingerprinting
+    void setFingerprint(LineFingerprint fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Moves the input to where the checkpoint was taken, after checking
+     * that the line before that point is the one the checkpoint saw. With
+     * continuePhase the checkpoint's phase reads on from there, otherwise
+     * the next phase starts there.
+     */
+    void resume(LineSource scanner, Checkpoint checkpoint, boolean continuePhase) {
+        if (checkpoint.getSettings() != settings.getAsLong()) {
+            throw new IllegalStateException("Checkpoint was taken with other limits");
+        }
+        if (!(scanner instanceof ChannelLineSource)) {
+            throw new IllegalStateException("Resuming from a checkpoint needs input with byte offsets");
+        }
+        ChannelLineSource source = (ChannelLineSource) scanner;
+        if (checkpoint.getLineStart() >= 0) {
+            source.seek(checkpoint.getLineStart());
+            if (!source.hasNextLine() || lineHash(source.nextLine()) != checkpoint.getLineHash()
+                    || source.lineEnd() != checkpoint.getLineEnd()) {
+                throw new IllegalStateException("Input does not match the checkpoint");
+            }
+        }
+        lastCheckpoint = checkpoint;
+        resumePoint = continuePhase ? checkpoint : null;
+    }
+
+    boolean resumes(Phase phase) {
+        return resumePoint != null && resumePoint.getPhase() == phase;
+    }
+
+    // The phase being read, null between phases
+    Phase phase() {
+        return phase;
+    }
+
+    // Records of the section consumed so far, including those of an earlier run when resuming
+    int records() {
+        return sectionRecords;
+    }
+
+    // Records consumed since the phase started in this run
+    int recordsThisRun() {
+        return sectionRecords - phaseStartRecords;
+    }
+
+    void startPhase(Phase started) {
+        phase = started;
+        sectionCount = 0;
+        sectionRecords = 0;
+        checkpointedRecords = 0;
+        sectionOpen = streaming;
+        if (resumePoint != null && resumePoint.getPhase() == started) {
+            sectionCount = resumePoint.getCount();
+            sectionRecords = resumePoint.getRecords();
+            checkpointedRecords = sectionRecords;
+            resumingSection = true;
+            resumePoint = null;
+        }
+        phaseStartRecords = sectionRecords;
+    }
+
+    void completePhase(LineSource scanner) {
+        checkpoint(scanner);
+        phase = null;
+        resumingSection = false;
+    }
+
+    // Moves the last checkpoint past a phase that reads no input
+    void passPhase(Phase passed) {
+        if (checkpointInterval >= 0 && lastCheckpoint != null) {
+            lastCheckpoint = lastCheckpoint.endOf(passed);
+            reached.accept(lastCheckpoint);
+        }
+    }
+
+    // Number of records to read for the next section, -1 when its count is over the limit
+    int openBatch(LineSource scanner, int limit) {
+        sectionEnded = false;
+        if (resumingSection) {
+            // The header and the records before the checkpoint were read by an earlier run
+            resumingSection = false;
+            sectionCount = streaming ? limit : sectionCount;
+            return sectionCount;
+        }
+        sectionRecords = 0;
+        checkpointedRecords = 0;
+        if (streaming) {
+            sectionCount = limit;
+            return limit;
+        }
+        CharSequence header = scanner.nextLine();
+        if (fingerprint != null) {
+            fingerprint.add(header);
+        }
+        int count = parseCount(header);
+        sectionCount = count > limit ? -1 : count;
+        return sectionCount;
+    }
+
+    // Next record of the section, null once all of them have been read or a streamed section has ended
+    CharSequence nextRecord(LineSource scanner) {
+        if (sectionRecords >= sectionCount) {
+            return null;
+        }
+        return read(scanner);
+    }
+
+    // Skips what is left of a streamed section that went over its limit
+    void closeBatch(LineSource scanner) {
+        if (streaming) {
+            while (read(scanner) != null) {
+                // ignored
+            }
+        }
+    }
+
+    // Consumes the same lines reading the section would
+    void skipSection(LineSource scanner, int limit) {
+        openBatch(scanner, limit);
+        while (nextRecord(scanner) != null) {
+            // ignored
+        }
+        closeBatch(scanner);
+    }
+
+    // While deferred nextRecord takes no checkpoints, the caller takes the due one once it applied its records
+    void deferCheckpoints(boolean deferred) {
+        this.checkpointsDeferred = deferred;
+    }
+
+    void checkpointIfDue(LineSource scanner) {
+        if (checkpointDue()) {
+            checkpoint(scanner);
+        }
+    }
+
+    private CharSequence read(LineSource scanner) {
+        if (checkpointDue() && !checkpointsDeferred) {
+            checkpoint(scanner);
+        }
+        if (!streaming) {
+            sectionRecords++;
+            return fingerprinted(scanner.nextLine());
+        }
+        if (sectionEnded || !scanner.hasNextLine()) {
+            sectionEnded = true;
+            return null;
+        }
+        CharSequence line = scanner.nextLine();
+        if (isBlank(line)) {
+            sectionEnded = true;
+            sectionOpen = false;
+            return null;
+        }
+        sectionRecords++;
+        return fingerprinted(line);
+    }
+
+    // Counts a record the caller read from elsewhere, a bulk export
+    void recordRead() {
+        sectionRecords++;
+    }
+
+    private CharSequence fingerprinted(CharSequence line) {
+        if (fingerprint != null) {
+            fingerprint.add(line);
+        }
+        return line;
+    }
+
+    private boolean checkpointDue() {
+        return checkpointInterval > 0 && phase != null && sectionRecords - checkpointedRecords >= checkpointInterval;
+    }
+
+    // Tells the consumer that the input up to the last line read has been applied and printed
+    private void checkpoint(LineSource scanner) {
+        if (checkpointInterval < 0 || phase == null || !(scanner instanceof ChannelLineSource)) {
+            return;
+        }
+        settle.run();
+        ChannelLineSource source = (ChannelLineSource) scanner;
+        CharSequence line = source.lastLine();
+        lastCheckpoint = new Checkpoint(phase, sectionCount, sectionRecords, sectionOpen, source.lineStart(),
+                source.lineEnd(), line == null ? 0 : lineHash(line), settings.getAsLong(), 0);
+        checkpointedRecords = sectionRecords;
+        reached.accept(lastCheckpoint);
+    }
+
+    private static long lineHash(CharSequence line) {
+        LineFingerprint hash = new LineFingerprint();
+        hash.add(line);
+        return hash.value();
+    }
+
+    private static boolean isBlank(CharSequence line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Integer.parseInt(line.trim()) without the intermediate Strings
+    private static int parseCount(CharSequence line) {
+        int start = 0;
+        int end = line.length();
+        while (start < end && line.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return Integer.parseInt(line, start, end, 10);
+    }
+}
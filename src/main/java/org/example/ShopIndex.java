@@ -0,0 +1,90 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Secondary indexes over the customers, carts and orders: customers by
+ * type and by email, the customers whose cart holds a product and the
+ * orders by payment type. Created over the current state, then kept up to
+ * date as a ProcessingListener of the Helper that changes it.
+ * <p>
+ * Queries return copies in the order the entries were indexed. All
+ * methods are synchronized, cart additions can come from the parallel
+ * cart workers.
+ */
+class ShopIndex implements ProcessingListener {
+    private final Map<String, List<Customer>> customersByType = new HashMap<>();
+    // The first customer with an email, like the customer ids
+    private final Map<String, Customer> customersByEmail = new HashMap<>();
+    private final Map<String, Map<String, Customer>> cartsByProduct = new HashMap<>();
+    // An order id that comes again replaces the order, as in the orders map
+    private final Map<String, Order> ordersById = new HashMap<>();
+    private final Map<String, Map<String, Order>> ordersByPayment = new HashMap<>();
+
+    public ShopIndex(Map<String, Customer> customers, Map<String, Order> orders) {
+        for (Customer customer : customers.values()) {
+            customerAdded(customer);
+            Order order = customer.getOrder();
+            if (order != null) {
+                for (CartLine line : order.cart) {
+                    cartAdded(customer, line.getProduct(), line.getQuantity());
+                }
+            }
+        }
+        for (Order order : orders.values()) {
+            orderProcessed(0, order, order.isPaid());
+        }
+    }
+
+    public synchronized List<Customer> customersOfType(String customerType) {
+        return copy(customersByType.get(customerType));
+    }
+
+    // Null when no customer has the email
+    public synchronized Customer customerByEmail(String email) {
+        return customersByEmail.get(email);
+    }
+
+    public synchronized List<Customer> cartsHolding(String productId) {
+        Map<String, Customer> carts = cartsByProduct.get(productId);
+        return copy(carts == null ? null : carts.values());
+    }
+
+    // Paid and failed orders, filter on Order.isPaid for the ones that went through
+    public synchronized List<Order> ordersPaidWith(String paymentType) {
+        Map<String, Order> paid = ordersByPayment.get(paymentType);
+        return copy(paid == null ? null : paid.values());
+    }
+
+    @Override
+    public synchronized void customerAdded(Customer customer) {
+        customersByType.computeIfAbsent(customer.getCustomerType(), type -> new ArrayList<>()).add(customer);
+        customersByEmail.putIfAbsent(customer.getEmail(), customer);
+    }
+
+    @Override
+    public synchronized void cartAdded(Customer customer, Product product, int quantity) {
+        cartsByProduct.computeIfAbsent(product.getItemId(), id -> new LinkedHashMap<>())
+                .putIfAbsent(customer.getCustomerId(), customer);
+    }
+
+    @Override
+    public synchronized void orderProcessed(int ordinal, Order order, boolean paid) {
+        Order replaced = ordersById.put(order.getOrderId(), order);
+        if (replaced != null) {
+            ordersByPayment.get(replaced.getPaymentType()).remove(replaced.getOrderId());
+        }
+        ordersByPayment.computeIfAbsent(order.getPaymentType(), type -> new LinkedHashMap<>())
+                .put(order.getOrderId(), order);
+    }
+
+    private static <T> List<T> copy(Collection<T> values) {
+        return values == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(values));
+    }
+}
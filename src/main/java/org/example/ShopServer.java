@@ -0,0 +1,247 @@
+package org.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Service mode: keeps the customers, inventory and orders of a run in
+ * memory and serves them over HTTP on the loopback interface.
+ * <pre>
+ * POST /cart/add?customer=C001&amp;product=P001&amp;quantity=2
+ * GET  /cart?customer=C001
+ * POST /checkout?order=O001&amp;customer=C001&amp;type=Online&amp;payment=CreditCard
+ * GET  /customers?type=Premium  or  /customers?email=john@example.com
+ * GET  /carts?product=P001
+ * GET  /orders?payment=PayPal
+ * </pre>
+ * The first three answer with the text/plain output the batch run prints
+ * for the same record: 200 when the record was applied, 400 with the
+ * diagnostic when it was turned down and 404 for a cart-view of an unknown
+ * customer. The queries are answered from a {@link ShopIndex}, one line
+ * per match: "id name (type)" for a customer, "id customerId total
+ * Successful|Failed" for an order.
+ * <p>
+ * Requests are handled on virtual threads where the JDK has them. The state
+ * changes themselves are in-memory and short, they run one at a time under
+ * a lock, the way Helper applies records in a batch run.
+ */
+class ShopServer implements AutoCloseable {
+    private static final Logger LOGGER = LogManager.getLogger(ShopServer.class);
+    // Handler threads on JDKs without virtual threads
+    private static final int PLATFORM_THREADS = 32;
+
+    static {
+        // The server writes headers and body separately; with Nagle on, the body waits
+        // for the delayed ACK of the headers, some 40 ms on Linux. Read when the server
+        // implementation loads, so it has to be set before the first HttpServer.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final LinkedHashMap<String, Customer> customers;
+    private final Inventory inventory;
+    private final LinkedHashMap<String, Order> orders;
+    // A ReentrantLock and not synchronized, virtual threads do not pin on it
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final Helper helper;
+    private final ShopIndex index;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    // Checkouts of the service are numbered on from the orders of the batch run
+    private int ordinal;
+
+    public ShopServer(Helper settings, LinkedHashMap<String, Customer> customers, Inventory inventory,
+            LinkedHashMap<String, Order> orders, int port) throws IOException {
+        this.customers = customers;
+        this.inventory = inventory;
+        this.orders = orders;
+        this.ordinal = orders.size();
+        this.helper = settings.withOutput(OutputSink.direct(new PrintStream(output, true, StandardCharsets.UTF_8)));
+        this.index = new ShopIndex(customers, orders);
+        helper.setListener(ProcessingListener.both(helper.getListener(), index));
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = VirtualThreads.newExecutor("http", PLATFORM_THREADS);
+        server.setExecutor(executor);
+        server.createContext("/cart/add", exchange -> handle(exchange, "POST", this::addToCart));
+        server.createContext("/cart", exchange -> handle(exchange, "GET", this::viewCart));
+        server.createContext("/checkout", exchange -> handle(exchange, "POST", this::checkout));
+        server.createContext("/customers", exchange -> handle(exchange, "GET", this::findCustomers));
+        server.createContext("/carts", exchange -> handle(exchange, "GET", this::findCarts));
+        server.createContext("/orders", exchange -> handle(exchange, "GET", this::findOrders));
+        server.start();
+        LOGGER.info("Serving {} customers and {} products on port {}", Unbox.box(customers.size()),
+                Unbox.box(inventory.size()), Unbox.box(getPort()));
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Blocks until close is called
+    public void await() throws InterruptedException {
+        stopped.await();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        stopped.countDown();
+    }
+
+    private int addToCart(Map<String, String> query) {
+        String result = helper.addToCart(customers, inventory, required(query, "customer"),
+                required(query, "product"), Integer.parseInt(required(query, "quantity")));
+        if (result != null) {
+            helper.print(result);
+            return 400;
+        }
+        return 200;
+    }
+
+    private int viewCart(Map<String, String> query) {
+        Customer customer = customers.get(required(query, "customer"));
+        if (customer == null) {
+            helper.print(RejectReason.INVALID_CUSTOMER_ID.getMessage());
+            return 404;
+        }
+        helper.printCustomerCart(customer);
+        return 200;
+    }
+
+    private int checkout(Map<String, String> query) {
+        Order order = helper.checkout(ordinal++, required(query, "order"), required(query, "customer"),
+                required(query, "type"), required(query, "payment"), customers, orders);
+        return order == null ? 400 : 200;
+    }
+
+    private int findCustomers(Map<String, String> query) {
+        String email = query.get("email");
+        if (email != null) {
+            Customer customer = index.customerByEmail(email);
+            if (customer == null) {
+                return 404;
+            }
+            printCustomer(customer);
+        } else {
+            for (Customer customer : index.customersOfType(required(query, "type"))) {
+                printCustomer(customer);
+            }
+        }
+        return 200;
+    }
+
+    private int findCarts(Map<String, String> query) {
+        for (Customer customer : index.cartsHolding(required(query, "product"))) {
+            printCustomer(customer);
+        }
+        return 200;
+    }
+
+    private int findOrders(Map<String, String> query) {
+        for (Order order : index.ordersPaidWith(required(query, "payment"))) {
+            helper.print(order.getOrderId() + " " + order.getCustomerId() + " "
+                    + CurrencyFormat.format(order.calculateTotal()) + " " + (order.isPaid() ? "Successful" : "Failed"));
+        }
+        return 200;
+    }
+
+    private void printCustomer(Customer customer) {
+        helper.print(customer.getCustomerId() + " " + customer.getName() + " (" + customer.getCustomerType() + ")");
+    }
+
+    private void handle(HttpExchange exchange, String method, Operation operation) throws IOException {
+        try (exchange) {
+            // Parameters come in the query; an unread body can make the server drop the kept-alive connection
+            exchange.getRequestBody().readAllBytes();
+            if (!exchange.getRequestMethod().equals(method)) {
+                exchange.getResponseHeaders().set("Allow", method);
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            int status;
+            byte[] body;
+            lock.lock();
+            try {
+                output.reset();
+                try {
+                    status = operation.apply(parse(exchange.getRequestURI().getRawQuery()));
+                } catch (IllegalArgumentException e) {
+                    // Missing or unparsable parameters, like a malformed input line
+                    output.reset();
+                    status = 400;
+                    helper.print("Invalid request.");
+                } catch (RuntimeException e) {
+                    LOGGER.error("Request {} failed", exchange.getRequestURI(), e);
+                    output.reset();
+                    status = 500;
+                }
+                helper.flush();
+                body = output.toByteArray();
+            } finally {
+                lock.unlock();
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            if (body.length > 0) {
+                try (OutputStream response = exchange.getResponseBody()) {
+                    response.write(body);
+                }
+            }
+        }
+    }
+
+    private static Map<String, String> parse(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing parameter " + name);
+        }
+        return value;
+    }
+
+    private interface Operation {
+        int apply(Map<String, String> query);
+    }
+}
@@ -0,0 +1,74 @@
+package org.example;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for a payment gateway. Every payment completes after the
+ * configured latency (plus up to jitter) and succeeds when the amount is
+ * positive, like CreditCardPayment and PayPalPayment. Waiting is done with
+ * a timer, so many payments can be in flight without holding threads.
+ */
+class SimulatedGateway implements PaymentGateway, AutoCloseable {
+    private final long latencyMicros;
+    private final long jitterMicros;
+    private final ScheduledExecutorService timer;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    public SimulatedGateway(long latencyMicros, long jitterMicros) {
+        if (latencyMicros < 0 || jitterMicros < 0) {
+            throw new IllegalArgumentException("Invalid value.");
+        }
+        this.latencyMicros = latencyMicros;
+        this.jitterMicros = jitterMicros;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "simulated-gateway");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Payment payment(String paymentType) {
+        return new SimulatedPayment();
+    }
+
+    public CompletableFuture<Boolean> authorize(double amount) {
+        int now = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(now, Math::max);
+        long delay = latencyMicros + (jitterMicros > 0 ? ThreadLocalRandom.current().nextLong(jitterMicros + 1) : 0);
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        timer.schedule(() -> {
+            inFlight.decrementAndGet();
+            result.complete(amount > 0);
+        }, delay, TimeUnit.MICROSECONDS);
+        return result;
+    }
+
+    // Highest number of payments that were in flight at the same time
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    private class SimulatedPayment implements Payment, AsyncPayment {
+        @Override
+        public boolean processPayment(double amount) {
+            return authorize(amount).join();
+        }
+
+        @Override
+        public CompletableFuture<Boolean> processPaymentAsync(double amount) {
+            return authorize(amount);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * The values and ranges Helper accepts for customers, products and
+ * orders, read from properties (see validation.properties for the keys).
+ * <p>
+ * The rules are compiled once: every enumeration becomes a small
+ * open-addressing table from the input token to the built-in kind it is
+ * handled as, so Helper looks a token up once and switches on the enum,
+ * and the numeric bounds are plain int and double fields. Product types
+ * resolve to the registered {@link ProductType} of the name instead.
+ * <p>
+ * Sizes and warranties are stored in a byte by the snapshot, the log and
+ * the columnar catalog, so the sizes are a choice among ProductStore.Size
+ * and warranties stay within 0 to 127.
+ */
+final class ValidationRules {
+    enum CustomerKind {
+        REGULAR, PREMIUM
+    }
+
+    enum OrderKind {
+        ONLINE, IN_STORE
+    }
+
+    enum PaymentKind {
+        CREDIT_CARD, PAY_PAL
+    }
+
+    // A payment method of the input, what it is printed as and which payment handles it
+    static final class PaymentMethod {
+        final String name;
+        final String label;
+        final PaymentKind kind;
+
+        PaymentMethod(String name, String label, PaymentKind kind) {
+            this.name = name;
+            this.label = label;
+            this.kind = kind;
+        }
+    }
+
+    private static final Properties DEFAULTS = defaults();
+    static final ValidationRules DEFAULT = new ValidationRules(DEFAULTS);
+
+    private final Vocabulary<CustomerKind> customerTypes;
+    private final Vocabulary<OrderKind> orderTypes;
+    private final Vocabulary<PaymentMethod> paymentMethods;
+    private final Vocabulary<ProductType> productTypes;
+    private final Vocabulary<ProductStore.Size> sizes;
+    private final double priceAbove;
+    private final double priceMax;
+    private final int quantityMin;
+    private final int quantityMax;
+    private final int warrantyMin;
+    private final int warrantyMax;
+    private final long fingerprint;
+
+    private ValidationRules(Properties properties) {
+        customerTypes = kinds(properties, "customer.types", "customer.type.", CustomerKind.class);
+        orderTypes = kinds(properties, "order.types", "order.type.", OrderKind.class);
+        String[] typeList = list(properties, "product.types");
+        productTypes = new Vocabulary<>(typeList.length);
+        for (String value : typeList) {
+            String registered = properties.getProperty("product.type." + value, value).trim();
+            ProductType type = ProductType.of(registered);
+            if (type == null) {
+                throw new IllegalArgumentException("Unknown kind for product.type." + value + ": " + registered);
+            }
+            productTypes.put(value, type);
+        }
+        Vocabulary<PaymentKind> paymentKinds = kinds(properties, "payment.methods", "payment.method.",
+                PaymentKind.class);
+        String[] methods = list(properties, "payment.methods");
+        paymentMethods = new Vocabulary<>(methods.length);
+        for (String method : methods) {
+            String label = properties.getProperty("payment.method." + method + ".label", method);
+            paymentMethods.put(method, new PaymentMethod(method, label, paymentKinds.get(method)));
+        }
+        String[] sizeList = list(properties, "product.sizes");
+        sizes = new Vocabulary<>(sizeList.length);
+        for (String size : sizeList) {
+            ProductStore.Size stored = ProductStore.Size.parse(size);
+            if (stored == null) {
+                throw new IllegalArgumentException("Unknown size in product.sizes: " + size);
+            }
+            sizes.put(size, stored);
+        }
+        priceAbove = Double.parseDouble(required(properties, "product.price.above"));
+        priceMax = Double.parseDouble(required(properties, "product.price.max"));
+        quantityMin = Integer.parseInt(required(properties, "product.quantity.min"));
+        quantityMax = Integer.parseInt(required(properties, "product.quantity.max"));
+        warrantyMin = Integer.parseInt(required(properties, "product.warranty.min"));
+        warrantyMax = Integer.parseInt(required(properties, "product.warranty.max"));
+        if (warrantyMin < 0 || warrantyMax > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("product.warranty must be within 0 and " + Byte.MAX_VALUE);
+        }
+        LineFingerprint hash = new LineFingerprint();
+        for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+            hash.add(key);
+            hash.add(properties.getProperty(key));
+        }
+        fingerprint = hash.value();
+    }
+
+    // The defaults with what the file sets on top
+    public static ValidationRules load(Path path) throws IOException {
+        Properties properties = new Properties();
+        properties.putAll(DEFAULTS);
+        try (Reader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(in);
+        }
+        return new ValidationRules(properties);
+    }
+
+    public CustomerKind customerType(String value) {
+        return customerTypes.get(value);
+    }
+
+    public OrderKind orderType(String value) {
+        return orderTypes.get(value);
+    }
+
+    public PaymentMethod paymentMethod(String value) {
+        return paymentMethods.get(value);
+    }
+
+    public ProductType productType(String value) {
+        return productTypes.get(value);
+    }
+
+    // Null when the value is not one of the sizes
+    public ProductStore.Size size(String value) {
+        return sizes.get(value);
+    }
+
+    public boolean isValidPrice(double price) {
+        return price > priceAbove && price <= priceMax;
+    }
+
+    public boolean isValidQuantity(int quantity) {
+        return quantity >= quantityMin && quantity <= quantityMax;
+    }
+
+    public boolean isValidWarranty(int warranty) {
+        return warranty >= warrantyMin && warranty <= warrantyMax;
+    }
+
+    // Changes whenever any rule does, so results kept from other rules are not reused
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    private static <K extends Enum<K>> Vocabulary<K> kinds(Properties properties, String listKey, String prefix,
+            Class<K> type) {
+        String[] values = list(properties, listKey);
+        Vocabulary<K> vocabulary = new Vocabulary<>(values.length);
+        for (String value : values) {
+            String builtIn = properties.getProperty(prefix + value, value).trim();
+            K kind = null;
+            for (K candidate : type.getEnumConstants()) {
+                if (builtIn(candidate).equals(builtIn)) {
+                    kind = candidate;
+                }
+            }
+            if (kind == null) {
+                throw new IllegalArgumentException("Unknown kind for " + prefix + value + ": " + builtIn);
+            }
+            vocabulary.put(value, kind);
+        }
+        return vocabulary;
+    }
+
+    // The input value a kind stands for: IN_STORE is "InStore"
+    static String builtIn(Enum<?> kind) {
+        StringBuilder name = new StringBuilder();
+        for (String part : kind.name().split("_")) {
+            name.append(part.charAt(0)).append(part.substring(1).toLowerCase(Locale.ROOT));
+        }
+        return name.toString();
+    }
+
+    private static String[] list(Properties properties, String key) {
+        String[] values = required(properties, key).split(",");
+        for (int i = 0; i < values.length; i++) {
+            values[i] = values[i].trim();
+        }
+        return values;
+    }
+
+    private static String required(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing rule: " + key);
+        }
+        return value.trim();
+    }
+
+    private static Properties defaults() {
+        Properties properties = new Properties();
+        try (InputStream in = ValidationRules.class.getResourceAsStream("/validation.properties")) {
+            if (in == null) {
+                throw new IllegalStateException("validation.properties is missing");
+            }
+            properties.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return properties;
+    }
+
+    /**
+     * Fixed set of strings mapped to values, in a linear-probing table at
+     * most a quarter full, so a lookup is one hash, usually one equals.
+     */
+    static final class Vocabulary<V> {
+        private final String[] keys;
+        private final Object[] values;
+        private final int mask;
+
+        Vocabulary(int size) {
+            int capacity = Integer.highestOneBit(Math.max(1, size) * 4 - 1) << 1;
+            keys = new String[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+        }
+
+        void put(String key, V value) {
+            int i = slot(key);
+            while (keys[i] != null && !keys[i].equals(key)) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(String key) {
+            int i = slot(key);
+            String candidate;
+            while ((candidate = keys[i]) != null) {
+                if (candidate.equals(key)) {
+                    return (V) values[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        private int slot(String key) {
+            int h = key.hashCode();
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.example;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for blocking work. On a JDK with virtual threads every task
+ * gets its own virtual thread; on older JDKs (the build targets 17) a pool
+ * of daemon platform threads is used instead.
+ */
+final class VirtualThreads {
+    private VirtualThreads() {
+    }
+
+    public static ExecutorService newExecutor(String name, int platformThreads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(platformThreads, runnable -> {
+                Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.example;
+
+/**
+ * A {@link ProductStore} that products can be added to. Products are only
+ * ever added, an index stays valid for the life of the store.
+ */
+interface WritableProductStore extends ProductStore {
+    /** Adds a product, returns its index or -1 if the id is taken. */
+    int add(String id, String name, double price, int quantity, ProductType type, int attribute);
+
+    /** Adds a copy of the product, returns its index or -1 if the id is taken. */
+    default int add(Product product) {
+        return add(product.getItemId(), product.getName(), product.getPrice(), product.getQuantity(),
+                product.getType(), product.getAttribute());
+    }
+}
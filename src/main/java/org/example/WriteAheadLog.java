@@ -0,0 +1,723 @@
+package org.example;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of every change Helper makes: customers and products as
+ * they are added, cart additions (which take stock), order outcomes and
+ * the end of each phase. Replaying the log rebuilds the customers, the
+ * inventory and the orders after a crash.
+ * <p>
+ * Records are framed as length, CRC32 and payload. Appends only copy the
+ * record into a buffer; a flusher thread writes whatever has collected
+ * and forces it to disk, so everything appended while one fsync runs goes
+ * out with the next one (group commit). The group window makes the
+ * flusher wait a little longer for more records before it syncs. The end
+ * of a phase waits until the whole log is on disk.
+ * <p>
+ * Recovery works per phase: a phase whose end marker made it to disk is
+ * skipped on the next run, the changes of an unfinished phase are dropped
+ * and the phase is done again. Payment outcomes of an unfinished orders
+ * phase are kept so those orders are not charged twice. A checkpoint
+ * record commits the changes of its phase so far, together with where in
+ * the input they end, so a run can resume the phase there instead of
+ * starting it over. Once the log outgrows the compaction threshold it is
+ * rewritten at the end of a phase as the shortest log giving the same
+ * state.
+ */
+class WriteAheadLog implements ProcessingListener, AutoCloseable {
+    static final long DEFAULT_COMPACT_BYTES = 64L * 1024 * 1024;
+
+    private static final byte CUSTOMER = 1;
+    private static final byte PRODUCT = 2;
+    private static final byte CART = 3;
+    private static final byte ORDER = 4;
+    private static final byte PHASE_END = 5;
+    private static final byte PHASE_START = 6;
+    private static final byte CHECKPOINT = 7;
+
+    private static final int FRAME_HEADER = 8;
+    private static final int MAX_RECORD = 1 << 20;
+
+    private final Path path;
+    private final LinkedHashMap<String, Customer> customers;
+    private final Inventory inventory;
+    private final LinkedHashMap<String, Order> orders;
+    private final long groupWindowNanos;
+    private final long compactBytes;
+    private final Recovery recovery;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition recordsPending = lock.newCondition();
+    private final Condition recordsDurable = lock.newCondition();
+    private final RecordEncoder encoder = new RecordEncoder();
+    private final Thread flusher;
+    private FileChannel channel;
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer flushing = ByteBuffer.allocate(64 * 1024);
+    private long appended;
+    private long durable;
+    private long syncs;
+    private boolean closed;
+    private IOException failure;
+    private Phase completed;
+    private Checkpoint checkpoint;
+    // Cart quantities taken from stock, part of the state fingerprint
+    private final LongAdder reserved = new LongAdder();
+
+    private WriteAheadLog(Path path, Recovery recovery, LinkedHashMap<String, Customer> customers,
+            Inventory inventory, LinkedHashMap<String, Order> orders, long groupWindowMicros, long compactBytes)
+            throws IOException {
+        this.path = path;
+        this.customers = customers;
+        this.inventory = inventory;
+        this.orders = orders;
+        this.groupWindowNanos = groupWindowMicros * 1000;
+        this.compactBytes = compactBytes;
+        this.recovery = recovery;
+        this.completed = recovery.getCompletedPhase();
+        this.checkpoint = recovery.getCheckpoint();
+        this.reserved.add(reservedQuantity(customers));
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.channel.truncate(recovery.getValidBytes());
+        this.channel.position(recovery.getValidBytes());
+        this.flusher = new Thread(this::flushLoop, "wal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Replays the log at path into the given, empty, collections and opens
+     * it for appending. A torn record at the end is cut off. Carts are
+     * priced with pricing, which has to be the Pricing of the Helper that
+     * wrote the log.
+     */
+    public static WriteAheadLog open(Path path, LinkedHashMap<String, Customer> customers, Inventory inventory,
+            LinkedHashMap<String, Order> orders, int cartLimit, Pricing pricing, long groupWindowMicros,
+            long compactBytes) throws IOException {
+        Recovery recovery = replay(path, customers, inventory, orders, cartLimit, pricing);
+        return new WriteAheadLog(path, recovery, customers, inventory, orders, groupWindowMicros, compactBytes);
+    }
+
+    public Recovery getRecovery() {
+        return recovery;
+    }
+
+    public static Recovery replay(Path path, LinkedHashMap<String, Customer> customers, Inventory inventory,
+            LinkedHashMap<String, Order> orders, int cartLimit, Pricing pricing) throws IOException {
+        Recovery recovery = new Recovery();
+        if (!Files.exists(path)) {
+            return recovery;
+        }
+        List<byte[]> phaseRecords = new ArrayList<>();
+        long offset = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            CRC32 crc = new CRC32();
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break; // torn write at the end
+                }
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                offset += FRAME_HEADER + length;
+                if (payload[0] == PHASE_START) {
+                    // The earlier attempt at this phase did not finish, its changes since
+                    // the last checkpoint are redone
+                    keepPayments(phaseRecords, recovery);
+                    phaseRecords.clear();
+                } else if (payload[0] == PHASE_END || payload[0] == CHECKPOINT) {
+                    for (byte[] record : phaseRecords) {
+                        apply(record, customers, inventory, orders, cartLimit, pricing);
+                    }
+                    recovery.records += phaseRecords.size();
+                    phaseRecords.clear();
+                    if (payload[0] == CHECKPOINT) {
+                        recovery.checkpoint = decodeCheckpoint(payload);
+                    } else {
+                        recovery.completed = Phase.values()[payload[1]];
+                        if (recovery.checkpoint != null && recovery.checkpoint.getPhase() != recovery.completed) {
+                            recovery.checkpoint = null; // the phase ended without telling where
+                        }
+                    }
+                } else {
+                    phaseRecords.add(payload);
+                }
+            }
+        }
+        keepPayments(phaseRecords, recovery);
+        recovery.validBytes = offset;
+        if (recovery.checkpoint != null && recovery.checkpoint.getState()
+                != stateFingerprint(customers.size(), inventory.size(), reservedQuantity(customers), orders.size())) {
+            throw new IllegalStateException("Log does not match its last checkpoint");
+        }
+        return recovery;
+    }
+
+    private static Checkpoint decodeCheckpoint(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, 1, record.length - 1));
+        return new Checkpoint(Phase.values()[in.readByte()], in.readInt(), in.readInt(), in.readBoolean(),
+                in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readLong());
+    }
+
+    /** Hash of the size of the state, checkpoints carry it to tell a log that does not fit them. */
+    static long stateFingerprint(int customers, int products, long reserved, int orders) {
+        LineFingerprint fingerprint = new LineFingerprint();
+        fingerprint.add(customers);
+        fingerprint.add(products);
+        fingerprint.add(reserved);
+        fingerprint.add(orders);
+        return fingerprint.value();
+    }
+
+    private static long reservedQuantity(LinkedHashMap<String, Customer> customers) {
+        long quantity = 0;
+        for (Customer customer : customers.values()) {
+            if (customer.getOrder() != null) {
+                quantity += customer.getOrder().getCartItemCount();
+            }
+        }
+        return quantity;
+    }
+
+    // Payments made in an unfinished orders phase must not be made again
+    private static void keepPayments(List<byte[]> records, Recovery recovery) throws IOException {
+        for (byte[] record : records) {
+            if (record[0] == ORDER) {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, 1, record.length - 1));
+                int ordinal = in.readInt();
+                in.readUTF();
+                in.readUTF();
+                in.readBoolean();
+                in.readUTF();
+                recovery.paymentOutcomes.put(ordinal, in.readBoolean());
+            }
+        }
+    }
+
+    private static void apply(byte[] record, LinkedHashMap<String, Customer> customers, Inventory inventory,
+            LinkedHashMap<String, Order> orders, int cartLimit, Pricing pricing) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, 1, record.length - 1));
+        switch (record[0]) {
+            case CUSTOMER: {
+                String id = in.readUTF();
+                String name = in.readUTF();
+                String email = in.readUTF();
+                String address = in.readUTF();
+                Customer customer = in.readBoolean() ? new PremiumCustomer(id, name, email, address)
+                        : new RegularCustomer(id, name, email, address);
+                customers.put(id, customer);
+                break;
+            }
+            case PRODUCT: {
+                String id = in.readUTF();
+                String name = in.readUTF();
+                double price = in.readDouble();
+                int quantity = in.readInt();
+                ProductType type = ProductType.byId(in.readByte());
+                int attribute = in.readByte();
+                Product product = type.create(id, name, price, quantity, attribute);
+                inventory.put(id, product);
+                break;
+            }
+            case CART: {
+                String customerId = in.readUTF();
+                String productId = in.readUTF();
+                int quantity = in.readInt();
+                Customer customer = customers.get(customerId);
+                Order order = customer.getOrder();
+                if (order == null) {
+                    order = new OnlineOrder("TEMP_ORDER_" + customerId, customerId, customer);
+                    order.setCartLimit(cartLimit);
+                    order.setPricing(pricing.strategyFor(customer));
+                    customer.setOrder(order);
+                }
+                order.addToCart(inventory.get(productId), quantity);
+                break;
+            }
+            case ORDER: {
+                in.readInt();
+                String orderId = in.readUTF();
+                String customerId = in.readUTF();
+                boolean online = in.readBoolean();
+                String paymentType = in.readUTF();
+                boolean paid = in.readBoolean();
+                Customer customer = customers.get(customerId);
+                Order order = online ? new OnlineOrder(orderId, customerId, customer)
+                        : new InStoreOrder(orderId, customerId, customer);
+                order.transferCartFrom(customer.getOrder());
+                customer.setOrder(order);
+                order.setPaymentResult(paymentType, paid);
+                orders.put(orderId, order);
+                break;
+            }
+            default:
+                throw new IOException("Unknown log record " + record[0]);
+        }
+    }
+
+    @Override
+    public void customerAdded(Customer customer) {
+        append(encoder.customer(customer));
+    }
+
+    @Override
+    public void productAdded(Product product) {
+        append(encoder.product(product, product.getQuantity()));
+    }
+
+    @Override
+    public void cartAdded(Customer customer, Product product, int quantity) {
+        reserved.add(quantity);
+        append(encoder.cart(customer.getCustomerId(), product.getItemId(), quantity));
+    }
+
+    @Override
+    public void orderProcessed(int ordinal, Order order, boolean paid) {
+        append(encoder.order(ordinal, order));
+    }
+
+    @Override
+    public void phaseStarted(Phase phase) {
+        append(encoder.phase(PHASE_START, phase));
+    }
+
+    // Waits for the checkpoint to be on disk, output up to it has been flushed already
+    @Override
+    public void checkpointReached(Checkpoint checkpoint) {
+        Checkpoint withState = checkpoint.withState(stateFingerprint(customers.size(), inventory.size(),
+                reserved.sum(), orders.size()));
+        sync(append(encoder.checkpoint(withState)));
+        this.checkpoint = withState;
+    }
+
+    @Override
+    public void phaseCompleted(Phase phase) {
+        sync(append(encoder.phase(PHASE_END, phase)));
+        completed = phase;
+        try {
+            if (channel.size() > compactBytes) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Phase getCompletedPhase() {
+        return completed;
+    }
+
+    // Last checkpoint written or recovered, null if there is none
+    public Checkpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    public long getAppendedCount() {
+        lock.lock();
+        try {
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Number of fsyncs so far, appended records divided by this is the group size
+    public long getSyncCount() {
+        lock.lock();
+        try {
+            return syncs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Adds an encoded record and returns its sequence number. */
+    long append(RecordEncoder.Frame frame) {
+        lock.lock();
+        try {
+            checkOpen();
+            if (pending.remaining() < frame.length()) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2,
+                        pending.position() + frame.length()));
+                pending.flip();
+                bigger.put(pending);
+                pending = bigger;
+            }
+            boolean wasEmpty = pending.position() == 0;
+            frame.writeTo(pending);
+            appended++;
+            if (wasEmpty) {
+                recordsPending.signal();
+            }
+            return appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Blocks until the record with the sequence number is on disk. */
+    public void sync(long sequence) {
+        lock.lock();
+        try {
+            while (durable < sequence) {
+                checkOpen();
+                recordsDurable.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void sync() {
+        sync(getAppendedCount());
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        lock.lock();
+        try {
+            closed = true;
+            recordsPending.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private void checkOpen() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            long batchEnd;
+            FileChannel target;
+            lock.lock();
+            try {
+                while (pending.position() == 0 && !closed) {
+                    recordsPending.awaitUninterruptibly();
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+                // Give other appenders a chance to join this group
+                long left = groupWindowNanos;
+                while (left > 0 && !closed) {
+                    left = recordsPending.awaitNanos(left);
+                }
+                ByteBuffer swap = flushing;
+                flushing = pending;
+                pending = swap;
+                pending.clear();
+                batchEnd = appended;
+                target = channel;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                flushing.flip();
+                while (flushing.hasRemaining()) {
+                    target.write(flushing);
+                }
+                flushing.clear();
+                target.force(false);
+            } catch (IOException e) {
+                lock.lock();
+                try {
+                    failure = e;
+                    recordsDurable.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            lock.lock();
+            try {
+                durable = batchEnd;
+                syncs++;
+                recordsDurable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Rewrites the log as the current state; only called between phases with nothing pending
+    private void compact() throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".compact");
+        RecordEncoder compactEncoder = new RecordEncoder();
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            for (Customer customer : customers.values()) {
+                buffer = put(out, buffer, compactEncoder.customer(customer));
+            }
+            buffer = put(out, buffer, compactEncoder.phase(PHASE_END, Phase.CUSTOMERS));
+            if (completed.compareTo(Phase.PRODUCTS) >= 0) {
+                // Products go back to their stock before the carts, the cart records take it again
+                Map<String, Integer> reserved = new HashMap<>();
+                for (Customer customer : customers.values()) {
+                    if (customer.getOrder() != null) {
+                        for (CartLine line : customer.getOrder().cart) {
+                            reserved.merge(line.getItemId(), line.getQuantity(), Integer::sum);
+                        }
+                    }
+                }
+                for (Product product : inventory.values()) {
+                    int stock = product.getQuantity() + reserved.getOrDefault(product.getItemId(), 0);
+                    buffer = put(out, buffer, compactEncoder.product(product, stock));
+                }
+                buffer = put(out, buffer, compactEncoder.phase(PHASE_END, Phase.PRODUCTS));
+            }
+            if (completed.compareTo(Phase.CART_ADDITIONS) >= 0) {
+                for (Customer customer : customers.values()) {
+                    if (customer.getOrder() != null) {
+                        for (CartLine line : customer.getOrder().cart) {
+                            buffer = put(out, buffer, compactEncoder.cart(customer.getCustomerId(),
+                                    line.getItemId(), line.getQuantity()));
+                        }
+                    }
+                }
+                buffer = put(out, buffer, compactEncoder.phase(PHASE_END, Phase.CART_ADDITIONS));
+            }
+            if (completed.compareTo(Phase.CART_REPORT) >= 0) {
+                buffer = put(out, buffer, compactEncoder.phase(PHASE_END, Phase.CART_REPORT));
+            }
+            if (completed.compareTo(Phase.ORDERS) >= 0) {
+                for (Order order : orders.values()) {
+                    buffer = put(out, buffer, compactEncoder.order(-1, order));
+                }
+                buffer = put(out, buffer, compactEncoder.phase(PHASE_END, Phase.ORDERS));
+            }
+            if (checkpoint != null && checkpoint.getPhase() == completed) {
+                buffer = put(out, buffer, compactEncoder.checkpoint(checkpoint));
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        lock.lock();
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel.close();
+            channel = FileChannel.open(path, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static ByteBuffer put(FileChannel out, ByteBuffer buffer, RecordEncoder.Frame frame) throws IOException {
+        if (buffer.remaining() < frame.length()) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+            if (buffer.capacity() < frame.length()) {
+                buffer = ByteBuffer.allocate(frame.length());
+            }
+        }
+        frame.writeTo(buffer);
+        return buffer;
+    }
+
+    /** What replaying a log found. */
+    static final class Recovery {
+        private Phase completed;
+        private Checkpoint checkpoint;
+        private long validBytes;
+        private int records;
+        private final Map<Integer, Boolean> paymentOutcomes = new HashMap<>();
+
+        // Last phase that finished, null if none did
+        public Phase getCompletedPhase() {
+            return completed;
+        }
+
+        public boolean isCompleted(Phase phase) {
+            return completed != null && completed.compareTo(phase) >= 0;
+        }
+
+        // Where the last run got to in its input, null without checkpoints
+        public Checkpoint getCheckpoint() {
+            return checkpoint;
+        }
+
+        public long getValidBytes() {
+            return validBytes;
+        }
+
+        public int getRecords() {
+            return records;
+        }
+
+        // Payments of the unfinished orders phase by order ordinal
+        public Map<Integer, Boolean> getPaymentOutcomes() {
+            return Collections.unmodifiableMap(paymentOutcomes);
+        }
+    }
+
+    /**
+     * Serializes records into a reused buffer and returns each one as its
+     * own frame, so encoding can happen outside of the log lock.
+     */
+    static final class RecordEncoder {
+        private final Buffer bytes = new Buffer();
+        private final DataOutputStream data = new DataOutputStream(bytes);
+        private final CRC32 crc = new CRC32();
+
+        Frame customer(Customer customer) {
+            return encode(CUSTOMER, out -> {
+                out.writeUTF(customer.getCustomerId());
+                out.writeUTF(customer.getName());
+                out.writeUTF(customer.getEmail());
+                out.writeUTF(customer.getAddress());
+                out.writeBoolean(customer instanceof PremiumCustomer);
+            });
+        }
+
+        Frame product(Product product, int stock) {
+            return encode(PRODUCT, out -> {
+                out.writeUTF(product.getItemId());
+                out.writeUTF(product.getName());
+                out.writeDouble(product.getPrice());
+                out.writeInt(stock);
+                out.writeByte(product.getType().getId());
+                out.writeByte(product.getAttribute());
+            });
+        }
+
+        Frame cart(String customerId, String productId, int quantity) {
+            return encode(CART, out -> {
+                out.writeUTF(customerId);
+                out.writeUTF(productId);
+                out.writeInt(quantity);
+            });
+        }
+
+        Frame order(int ordinal, Order order) {
+            return encode(ORDER, out -> {
+                out.writeInt(ordinal);
+                out.writeUTF(order.getOrderId());
+                out.writeUTF(order.getCustomerId());
+                out.writeBoolean(order instanceof OnlineOrder);
+                out.writeUTF(order.getPaymentType());
+                out.writeBoolean(order.isPaid());
+            });
+        }
+
+        Frame checkpoint(Checkpoint checkpoint) {
+            return encode(CHECKPOINT, out -> {
+                out.writeByte(checkpoint.getPhase().ordinal());
+                out.writeInt(checkpoint.getCount());
+                out.writeInt(checkpoint.getRecords());
+                out.writeBoolean(checkpoint.isOpen());
+                out.writeLong(checkpoint.getLineStart());
+                out.writeLong(checkpoint.getLineEnd());
+                out.writeLong(checkpoint.getLineHash());
+                out.writeLong(checkpoint.getSettings());
+                out.writeLong(checkpoint.getState());
+            });
+        }
+
+        Frame phase(byte marker, Phase phase) {
+            return encode(marker, out -> out.writeByte(phase.ordinal()));
+        }
+
+        private Frame encode(byte type, Body body) {
+            synchronized (this) {
+                bytes.reset();
+                try {
+                    data.writeByte(type);
+                    body.write(data);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                crc.reset();
+                crc.update(bytes.array(), 0, bytes.size());
+                return new Frame(bytes.toByteArray(), (int) crc.getValue());
+            }
+        }
+
+        interface Body {
+            void write(DataOutputStream out) throws IOException;
+        }
+
+        static final class Frame {
+            private final byte[] payload;
+            private final int checksum;
+
+            Frame(byte[] payload, int checksum) {
+                this.payload = payload;
+                this.checksum = checksum;
+            }
+
+            int length() {
+                return FRAME_HEADER + payload.length;
+            }
+
+            void writeTo(ByteBuffer buffer) {
+                buffer.putInt(payload.length).putInt(checksum).put(payload);
+            }
+        }
+
+        private static final class Buffer extends ByteArrayOutputStream {
+            byte[] array() {
+                return buf;
+            }
+        }
+    }
+}
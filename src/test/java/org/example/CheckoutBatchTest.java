@@ -0,0 +1,112 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckoutBatchTest {
+
+    private static final String INPUT = "3\n" +
+            "C001 John john@example.com \"123 Street\" Regular\n" +
+            "C002 Alice alice@example.com \"456 Avenue\" Premium\n" +
+            "C003 Bob bob@example.com \"789 Road\" Regular\n" +
+            "1\n" +
+            "P001 Electronics Phone 500.00 10 12\n" +
+            "2\n" +
+            "C001 P001 2\n" +
+            "C002 P001 1\n" +
+            "7\n" +
+            "O001 C001 Online CreditCard\n" +
+            "O002 C009 Online CreditCard\n" +
+            "O003 C002 InStore PayPal\n" +
+            "O004 C003 Online PayPal\n" +
+            "O005 C002 Online Bitcoin\n" +
+            "O006 C001 InStore PayPal\n" +
+            "O007 C002 Online CreditCard\n";
+
+    @Test
+    void settle_paysEachMethodOnce_andReportsInOrder() {
+        Customer customer = new RegularCustomer("C001", "John", "john@example.com", "123 Street");
+        Order order = new OnlineOrder("O001", "C001", customer);
+        ValidationRules.PaymentMethod card = ValidationRules.DEFAULT.paymentMethod("CreditCard");
+        ValidationRules.PaymentMethod payPal = ValidationRules.DEFAULT.paymentMethod("PayPal");
+        List<String> reported = new ArrayList<>();
+        List<Integer> calls = new ArrayList<>();
+        CheckoutBatch batch = new CheckoutBatch(8);
+        for (int i = 0; i < 7; i++) {
+            int n = i;
+            if (i == 3) {
+                batch.then(() -> reported.add("diagnostic"));
+            }
+            batch.add(order, i % 2 == 0 ? card : payPal, i == 4 ? 0.0 : 10.0, status -> reported.add(n + " " + status));
+        }
+        assertTrue(batch.isFull());
+        batch.settle(method -> new CountingPayment(calls));
+
+        assertEquals(List.of("0 true", "1 true", "2 true", "diagnostic", "3 true", "4 false", "5 true", "6 true"),
+                reported);
+        assertEquals(List.of(4, 3), calls);
+        assertFalse(batch.isFull());
+    }
+
+    @Test
+    void settle_paysOrdersWithTheirOwnProcessOrderOneByOne() {
+        Customer customer = new RegularCustomer("C001", "John", "john@example.com", "123 Street");
+        Order refusing = new Order("O001", "C001", customer) {
+            @Override
+            public boolean processOrder(Payment paymentMethod, double amount) {
+                return false;
+            }
+        };
+        Order online = new OnlineOrder("O002", "C001", customer);
+        ValidationRules.PaymentMethod card = ValidationRules.DEFAULT.paymentMethod("CreditCard");
+        List<String> reported = new ArrayList<>();
+        List<Integer> calls = new ArrayList<>();
+        CheckoutBatch batch = new CheckoutBatch(4);
+        batch.add(refusing, card, 10.0, status -> reported.add("O001 " + status));
+        batch.add(online, card, 10.0, status -> reported.add("O002 " + status));
+        batch.add(online, card, 10.0, status -> reported.add("O003 " + status));
+        batch.settle(method -> new CountingPayment(calls));
+
+        assertEquals(List.of("O001 false", "O002 true", "O003 true"), reported);
+        assertEquals(List.of(2), calls);
+    }
+
+    @Test
+    void readOrders_batchedOutputMatchesOneByOne() {
+        String expected = run(INPUT, 1);
+        for (int batch : new int[]{2, 3, 100}) {
+            assertEquals(expected, run(INPUT, batch), "batch of " + batch);
+        }
+    }
+
+    private static String run(String input, int batch) {
+        PipelineRunner runner = new PipelineRunner();
+        runner.helper().setOrderBatch(batch);
+        return runner.run(input) + " " + runner.orders.keySet();
+    }
+
+    private static final class CountingPayment implements BatchPayment {
+        private final List<Integer> calls;
+
+        CountingPayment(List<Integer> calls) {
+            this.calls = calls;
+        }
+
+        @Override
+        public boolean processPayment(double amount) {
+            throw new AssertionError("paid one by one");
+        }
+
+        @Override
+        public void processPayments(double[] amounts, int count, boolean[] results) {
+            calls.add(count);
+            for (int i = 0; i < count; i++) {
+                results[i] = amounts[i] > 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointTest {
+
+    private static final String FEED = "3\n" +
+            "C001 John john@example.com \"123 Street\" Regular\n" +
+            "C002 Jane jane@example.com \"9 Road\" Premium\r\n" +
+            "C003 Priya priya@example.com \"456 Street\" Regular\n" +
+            "3\n" +
+            "P001 Electronics Phone 500.00 10 12\n" +
+            "P002 Fashion T-Shirt 20.00 50 M\n" +
+            "P003 Fashion Hat 15.50 5 L\n" +
+            "5\n" +
+            "C001 P001 2\n" +
+            "C002 P002 3\n" +
+            "C003 P003 5\n" +
+            "C002 P001 1\n" +
+            "C001 P003 1\n" +
+            "4\n" +
+            "O001 C001 Online CreditCard\n" +
+            "O002 C002 InStore PayPal\n" +
+            "O003 C003 Online PayPal\n" +
+            "O004 C002 Online CreditCard\n";
+
+    private static final String STREAMED_FEED = "C001 John john@example.com \"123 Street\" Regular\n" +
+            "C002 Jane jane@example.com \"9 Road\" Premium\n" +
+            "\n" +
+            "P001 Electronics Phone 500.00 10 12\n" +
+            "P002 Fashion T-Shirt 20.00 50 M\n" +
+            "\n" +
+            "C001 P001 2\n" +
+            "C002 P002 3\n" +
+            "\n" +
+            "O001 C001 Online CreditCard\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void crashAfterACheckpoint_resumesAtTheNextRecord() throws IOException {
+        Path input = write("feed.txt", FEED);
+        Path complete = dir.resolve("complete.wal");
+        String expected = run(input, complete, "--checkpoint-every=1");
+
+        byte[] log = Files.readAllBytes(complete);
+        List<Integer> cuts = checkpointEnds(log);
+        assertTrue(cuts.size() > 10, "checkpoints: " + cuts.size());
+        List<Integer> resumedLengths = new ArrayList<>();
+        for (int cut : cuts) {
+            Path crashed = dir.resolve("crashed-" + cut + ".wal");
+            Files.write(crashed, Arrays.copyOf(log, cut));
+            String resumed = run(input, crashed, "--checkpoint-every=1");
+            assertTrue(expected.endsWith(resumed), "log cut at " + cut + ":\n" + resumed);
+            assertEquals(state(complete), state(crashed), "log cut at " + cut);
+            resumedLengths.add(resumed.length());
+        }
+        // Every later checkpoint leaves less to print
+        for (int i = 1; i < resumedLengths.size(); i++) {
+            assertTrue(resumedLengths.get(i) <= resumedLengths.get(i - 1), resumedLengths.toString());
+        }
+        assertEquals(expected.length(), resumedLengths.get(0));
+        assertEquals(0, resumedLengths.get(resumedLengths.size() - 1));
+        assertTrue(resumedLengths.stream().anyMatch(length -> length > 0 && length < expected.length()),
+                resumedLengths.toString());
+    }
+
+    @Test
+    void linesAppendedToAStreamedFeed_areTheOnlyOnesRead() throws IOException {
+        Path input = write("stream.txt", STREAMED_FEED);
+        Path wal = dir.resolve("stream.wal");
+        String first = run(input, wal, "--streaming");
+        assertTrue(first.contains("Processing Order O001 for John"), first);
+
+        assertEquals("", run(input, wal, "--streaming"));
+
+        Files.writeString(input, "O002 C002 InStore PayPal\n", StandardOpenOption.APPEND);
+        String second = run(input, wal, "--streaming");
+        assertEquals("Processing Order O002 for Jane" + System.lineSeparator()
+                + "Payment Method: PayPal" + System.lineSeparator()
+                + "Payment Status: Successful" + System.lineSeparator(), second);
+
+        LinkedHashMap<String, Order> orders = new LinkedHashMap<>();
+        WriteAheadLog.replay(wal, new LinkedHashMap<>(), new Inventory(), orders, Order.DEFAULT_CART_LIMIT,
+                Pricing.DEFAULT);
+        assertEquals(List.of("O001", "O002"), new ArrayList<>(orders.keySet()));
+    }
+
+    @Test
+    void changedInput_isNotResumed() throws IOException {
+        Path input = write("feed.txt", FEED);
+        Path wal = dir.resolve("changed.wal");
+        run(input, wal, "--checkpoint-every=1");
+
+        write("feed.txt", FEED.replace("O004 C002", "O005 C002"));
+        assertThrows(IllegalStateException.class, () -> run(input, wal, "--checkpoint-every=1"));
+    }
+
+    @Test
+    void otherLimits_areNotResumed() throws IOException {
+        Path input = write("feed.txt", FEED);
+        Path wal = dir.resolve("limits.wal");
+        run(input, wal, "--checkpoint-every=1");
+
+        assertThrows(IllegalStateException.class, () -> run(input, wal, "--cart-limit=5"));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(dir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    private static String run(Path input, Path wal, String... args) throws IOException {
+        String[] all = Arrays.copyOf(args, args.length + 1);
+        all[args.length] = "--wal=" + wal;
+        try (ChannelLineSource source = ChannelLineSource.open(input, StandardCharsets.UTF_8)) {
+            return PipelineRunner.runMain(source, all);
+        }
+    }
+
+    private static String state(Path wal) throws IOException {
+        LinkedHashMap<String, Customer> customers = new LinkedHashMap<>();
+        Inventory inventory = new Inventory();
+        LinkedHashMap<String, Order> orders = new LinkedHashMap<>();
+        WriteAheadLog.replay(wal, customers, inventory, orders, Order.DEFAULT_CART_LIMIT, Pricing.DEFAULT);
+        StringBuilder sb = new StringBuilder();
+        for (Customer customer : customers.values()) {
+            sb.append(customer.getCustomerId()).append(customer.getOrder() == null ? "" : customer.getOrder().cart)
+                    .append('\n');
+        }
+        for (Product product : inventory.values()) {
+            sb.append(product.getItemId()).append(" stock ").append(product.getQuantity()).append('\n');
+        }
+        for (Order order : orders.values()) {
+            sb.append(order.getOrderId()).append(order.isPaid()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    // Offsets just past every checkpoint record of the log
+    private static List<Integer> checkpointEnds(byte[] log) {
+        List<Integer> ends = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.wrap(log);
+        int offset = 0;
+        while (offset < log.length) {
+            int length = buffer.getInt(offset);
+            boolean checkpoint = log[offset + 8] == 7;
+            offset += 8 + length;
+            if (checkpoint) {
+                ends.add(offset);
+            }
+        }
+        return ends;
+    }
+}
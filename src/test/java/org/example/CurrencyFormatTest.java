@@ -0,0 +1,65 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CurrencyFormatTest {
+
+    private static void assertSameAsFormat(double value) {
+        assertEquals(String.format("%.2f", value), CurrencyFormat.format(value), () -> "value " + value);
+    }
+
+    @Test
+    void format_plainValues() {
+        assertEquals("500.00", CurrencyFormat.format(500.0));
+        assertEquals("0.10", CurrencyFormat.format(0.1));
+        assertEquals("1000.00", CurrencyFormat.format(1000.0));
+        assertEquals("54.00", CurrencyFormat.format(60.0 * 0.9));
+    }
+
+    @Test
+    void format_halfUpBoundaries() {
+        double[] values = {0.125, 1.005, 0.045, 2.675, 1.115, 0.05 * 0.9, 10.005, 1000.125, 0.285, 0.005,
+                0.015, 99999.995, 4.35 * 0.9, 19.99 * 3 * 0.9};
+        for (double value : values) {
+            assertSameAsFormat(value);
+        }
+    }
+
+    @Test
+    void format_specialValues() {
+        double[] values = {0.0, -0.0, -1.005, -3.5, 1e13, 1e20, Double.MAX_VALUE, Double.MIN_VALUE,
+                Double.NaN, Double.POSITIVE_INFINITY};
+        for (double value : values) {
+            assertSameAsFormat(value);
+        }
+    }
+
+    @Test
+    void format_matchesStringFormatOnCartAmounts() {
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            double price = (1 + random.nextInt(20_000_000)) / 100.0;
+            int quantity = 1 + random.nextInt(20);
+            assertSameAsFormat(price);
+            assertSameAsFormat(price * quantity);
+            assertSameAsFormat(price * quantity * 0.90);
+            assertSameAsFormat(random.nextDouble() * 1000);
+        }
+    }
+
+    @Test
+    void format_otherLocaleFallsBack() {
+        Locale original = Locale.getDefault(Locale.Category.FORMAT);
+        try {
+            Locale.setDefault(Locale.Category.FORMAT, Locale.GERMANY);
+            assertEquals(String.format("%.2f", 1234.5), CurrencyFormat.format(1234.5));
+        } finally {
+            Locale.setDefault(Locale.Category.FORMAT, original);
+        }
+    }
+}
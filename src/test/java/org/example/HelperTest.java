@@ -16,7 +16,7 @@ class HelperTest {
     private PrintStream mockOut;
     private ByteArrayOutputStream outputStream;
     private LinkedHashMap<String, Customer> customers;
-    private LinkedHashMap<String, Product> inventory;
+    private Inventory inventory;
     private LinkedHashMap<String, Order> orders;
 
     @BeforeEach
@@ -26,7 +26,7 @@ class HelperTest {
         helper = new Helper(mockOut);
 
         customers = new LinkedHashMap<>();
-        inventory = new LinkedHashMap<>();
+        inventory = new Inventory();
         orders = new LinkedHashMap<>();
     }
 
@@ -207,7 +207,7 @@ class HelperTest {
         Order order = customer.getOrder();
         assertNotNull(order);
         assertEquals(1, order.cart.size());
-        assertEquals(5, order.cart.get(0).getCartQuantity());
+        assertEquals(5, order.cart.get(0).getQuantity());
     }
 
     @Test
@@ -380,4 +380,118 @@ class HelperTest {
 
         assertTrue(outputStream.toString().contains("Order cannot be processed: Cart is empty"));
     }
+
+    private static String customerLines(int count) {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            input.append("C").append(i).append(" Name").append(i).append(" c").append(i)
+                    .append("@example.com \"1 Street\" Regular\n");
+        }
+        return input.toString();
+    }
+
+    @Test
+    void readCustomers_defaultLimitDropsBatch() {
+        Scanner scanner = new Scanner("101\n" + customerLines(101));
+        helper.readCustomers(scanner, customers);
+
+        assertEquals(0, customers.size());
+    }
+
+    @Test
+    void readCustomers_unboundedLimits() {
+        helper.setLimits(IngestLimits.UNBOUNDED);
+        Scanner scanner = new Scanner("150\n" + customerLines(150));
+        helper.readCustomers(scanner, customers);
+
+        assertEquals(150, customers.size());
+    }
+
+    @Test
+    void readProducts_customLimit() {
+        helper.setLimits(new IngestLimits(100, 1, 50, false));
+        Scanner scanner = new Scanner("2\n" +
+                "P001 Electronics Phone 500.00 10 12\n" +
+                "P002 Fashion T-Shirt 20.00 50 M");
+        helper.readProducts(scanner, inventory);
+
+        assertEquals(0, inventory.size());
+    }
+
+    @Test
+    void streaming_sectionsEndAtBlankLine() {
+        helper.setLimits(IngestLimits.UNBOUNDED.streaming(true));
+        Scanner scanner = new Scanner(
+                "C001 John john@example.com \"123 Street\" Regular\n" +
+                "C002 Alice alice@example.com \"456 Avenue\" Premium\n" +
+                "\n" +
+                "P001 Electronics Phone 500.00 10 12\n" +
+                "\n" +
+                "C001 P001 2\n" +
+                "C003 P001 1\n" +
+                "\n" +
+                "O001 C001 Online CreditCard");
+
+        helper.readCustomers(scanner, customers);
+        helper.readProducts(scanner, inventory);
+        helper.readCartAdditions(scanner, customers, inventory);
+        helper.readOrders(scanner, customers, inventory, orders);
+
+        assertEquals(2, customers.size());
+        assertEquals(1, inventory.size());
+        assertEquals(8, inventory.get("P001").getQuantity());
+        assertTrue(orders.containsKey("O001"));
+        assertEquals("INVALID_CUSTOMER_ID\n" +
+                "Processing Order O001 for John\n" +
+                "Payment Method: Credit Card\n" +
+                "Payment Status: Successful\n", outputStream.toString());
+    }
+
+    @Test
+    void streaming_recordsPastLimitAreSkipped() {
+        helper.setLimits(new IngestLimits(1, 200, 50, true));
+        Scanner scanner = new Scanner(customerLines(3) + "\n" +
+                "P001 Electronics Phone 500.00 10 12\n");
+
+        helper.readCustomers(scanner, customers);
+        helper.readProducts(scanner, inventory);
+
+        assertEquals(1, customers.size());
+        assertEquals(1, inventory.size());
+    }
+
+    @Test
+    void readCartAdditions_mergesLinesAndCountsItems() {
+        helper.readCustomers(new Scanner("1\n" +
+                "C001 John john@example.com \"123 Street\" Regular"), customers);
+        helper.readProducts(new Scanner("2\n" +
+                "P001 Electronics Phone 500.00 10 12\n" +
+                "P002 Fashion T-Shirt 20.00 50 M"), inventory);
+        helper.readCartAdditions(new Scanner("4\n" +
+                "C001 P002 3\n" +
+                "C001 P001 5\n" +
+                "C001 P002 4\n" +
+                "C001 P002 9"), customers, inventory);
+
+        Order order = customers.get("C001").getOrder();
+        assertEquals(2, order.cart.size());
+        assertEquals("P002", order.cart.get(0).getItemId());
+        assertEquals(7, order.cart.get(0).getQuantity());
+        assertEquals(12, order.getCartItemCount());
+        assertTrue(outputStream.toString().contains("CART_LIMIT_EXCEEDED"));
+    }
+
+    @Test
+    void readCartAdditions_b2bCartLimit() {
+        helper.setLimits(IngestLimits.DEFAULT.withCartLimit(100));
+        helper.readCustomers(new Scanner("1\n" +
+                "C001 John john@example.com \"123 Street\" Regular"), customers);
+        helper.readProducts(new Scanner("1\n" +
+                "P002 Fashion T-Shirt 20.00 50 M"), inventory);
+        helper.readCartAdditions(new Scanner("1\n" +
+                "C001 P002 45"), customers, inventory);
+
+        assertEquals(45, customers.get("C001").getOrder().getCartItemCount());
+        assertEquals("", outputStream.toString());
+    }
 }
@@ -0,0 +1,94 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventorySnapshotTest {
+
+    private static final String PRODUCTS = "4\n" +
+            "P001 Electronics Phone 500.00 10 12\n" +
+            "P002 Fashion \"T-Shirt ☃\" 20.00 50 M\n" +
+            "P003 Fashion Hat 15.50 5 XS\n" +
+            "P004 Electronics Laptop 1200.00 3 24\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void write_thenOpen_servesTheSameProducts() throws IOException {
+        Path file = dir.resolve("inventory.snap");
+        Inventory inventory = new Inventory();
+        Helper helper = new Helper(new PrintStream(new ByteArrayOutputStream()));
+        helper.readProducts(LineSource.of(new Scanner(PRODUCTS)), inventory, file);
+
+        try (InventorySnapshot snapshot = InventorySnapshot.open(file, false)) {
+            assertEquals(3, snapshot.size());
+            assertEquals(List.of("INVALID_SIZE"), snapshot.getMessages());
+            int index = snapshot.indexOf("P002");
+            assertEquals("T-Shirt ☃", snapshot.name(index));
+            assertEquals(ProductStore.Size.M, snapshot.fashionSize(index));
+            assertEquals(-1, snapshot.indexOf("P003"));
+            assertEquals(-1, snapshot.indexOf("P00"));
+
+            Inventory mapped = Inventory.readOnly(snapshot);
+            Product laptop = mapped.get("P004");
+            assertEquals("Laptop", laptop.getName());
+            assertEquals(1200.00, laptop.getPrice());
+            assertEquals(3, laptop.getQuantity());
+            assertSame(ProductType.ELECTRONICS, laptop.getType());
+            assertEquals(24, laptop.getWarranty());
+            assertThrows(UnsupportedOperationException.class,
+                    () -> mapped.put("P005", new Electronics("P005", "Tablet", 300.00, 5, 12)));
+        }
+    }
+
+    @Test
+    void stockChanges_reachTheFileOnlyWithWriteBack() throws IOException {
+        Path file = dir.resolve("inventory.snap");
+        Inventory inventory = new Inventory();
+        inventory.put("P001", new Electronics("P001", "Phone", 500.00, 10, 12));
+        InventorySnapshot.write(file, inventory, 1L, List.of());
+
+        try (InventorySnapshot snapshot = InventorySnapshot.open(file, false)) {
+            assertTrue(snapshot.tryReserve(0, 4));
+            assertEquals(6, snapshot.stock(0));
+        }
+        try (InventorySnapshot snapshot = InventorySnapshot.open(file, true)) {
+            assertEquals(10, snapshot.stock(0));
+            assertTrue(snapshot.tryReserve(0, 7));
+            assertFalse(snapshot.tryReserve(0, 4));
+        }
+        try (InventorySnapshot snapshot = InventorySnapshot.open(file, false)) {
+            assertEquals(3, snapshot.stock(0));
+        }
+    }
+
+    @Test
+    void readProducts_fromSnapshotPrintsTheSameAndChecksTheSection() throws IOException {
+        Path file = dir.resolve("inventory.snap");
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        new Helper(new PrintStream(first)).readProducts(LineSource.of(new Scanner(PRODUCTS)), new Inventory(), file);
+
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        try (InventorySnapshot snapshot = InventorySnapshot.open(file, false)) {
+            LineSource source = LineSource.of(new Scanner(PRODUCTS + "next\n"));
+            new Helper(new PrintStream(second)).readProducts(source, snapshot);
+            assertEquals("next", source.nextLine().toString());
+
+            Helper helper = new Helper(new PrintStream(new ByteArrayOutputStream()));
+            String changed = PRODUCTS.replace("P004 Electronics Laptop 1200.00 3", "P004 Electronics Laptop 1200.00 4");
+            assertThrows(IllegalStateException.class,
+                    () -> helper.readProducts(LineSource.of(new Scanner(changed)), snapshot));
+        }
+        assertEquals(first.toString(), second.toString());
+    }
+}
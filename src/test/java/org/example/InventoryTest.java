@@ -0,0 +1,137 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    void put_keepsFirstProductAndInsertionOrder() {
+        Inventory inventory = new Inventory();
+        assertTrue(inventory.put("P002", new Fashion("P002", "T-Shirt", 20.00, 50, "M")));
+        assertTrue(inventory.put("P001", new Electronics("P001", "Phone", 500.00, 10, 12)));
+        assertFalse(inventory.put("P002", new Fashion("P002", "Hat", 5.00, 1, "S")));
+
+        assertEquals(2, inventory.size());
+        assertEquals("T-Shirt", inventory.get("P002").getName());
+        assertEquals("P002", inventory.values().get(0).getItemId());
+    }
+
+    @Test
+    void reserve_takesAllOrNothing() {
+        Inventory inventory = new Inventory();
+        inventory.put("P001", new Electronics("P001", "Phone", 500.00, 10, 12));
+
+        assertTrue(inventory.reserve("P001", 7));
+        assertFalse(inventory.reserve("P001", 4));
+        assertEquals(3, inventory.get("P001").getQuantity());
+        inventory.release("P001", 2);
+        assertEquals(5, inventory.get("P001").getQuantity());
+        assertFalse(inventory.reserve("P999", 1));
+    }
+
+    @Test
+    void reserve_neverOversellsUnderContention() throws Exception {
+        Inventory inventory = new Inventory();
+        int stock = 100_000;
+        inventory.put("P001", new Electronics("P001", "Phone", 500.00, stock, 12));
+        Product product = inventory.get("P001");
+
+        AtomicBoolean negativeSeen = new AtomicBoolean();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread watcher = new Thread(() -> {
+            while (running.get()) {
+                if (product.getQuantity() < 0) {
+                    negativeSeen.set(true);
+                }
+            }
+        });
+        watcher.start();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> reserved = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            reserved.add(pool.submit(() -> {
+                start.await();
+                long taken = 0;
+                int failures = 0;
+                while (failures < 1000) {
+                    int quantity = 1 + ThreadLocalRandom.current().nextInt(7);
+                    if (inventory.reserve("P001", quantity)) {
+                        taken += quantity;
+                        if (quantity % 3 == 0) {
+                            inventory.release("P001", 1);
+                            taken--;
+                        }
+                    } else {
+                        failures++;
+                    }
+                }
+                return taken;
+            }));
+        }
+        start.countDown();
+        long total = 0;
+        for (Future<Long> future : reserved) {
+            total += future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        running.set(false);
+        watcher.join();
+
+        assertFalse(negativeSeen.get());
+        assertTrue(product.getQuantity() >= 0);
+        assertEquals(stock, total + product.getQuantity());
+    }
+
+    @Test
+    void addToCart_concurrentOrdersNeverOversell() throws Exception {
+        Inventory inventory = new Inventory();
+        int stock = 5_000;
+        inventory.put("P001", new Fashion("P001", "T-Shirt", 20.00, stock, "M"));
+        Product product = inventory.get("P001");
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Order>> orders = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Customer customer = new RegularCustomer("C" + t, "Name", "mail@example.com", "Street");
+            orders.add(pool.submit(() -> {
+                Order order = new OnlineOrder("O" + customer.getCustomerId(), customer.getCustomerId(), customer);
+                order.setCartLimit(Integer.MAX_VALUE);
+                start.await();
+                for (int i = 0; i < 10_000; i++) {
+                    try {
+                        order.addToCart(product, 1 + ThreadLocalRandom.current().nextInt(3));
+                    } catch (IllegalArgumentException e) {
+                        assertTrue(e.getMessage().equals("OUT_OF_STOCK") || e.getMessage().equals("INVALID_QUANTITY"));
+                    }
+                }
+                return order;
+            }));
+        }
+        start.countDown();
+        int inCarts = 0;
+        for (Future<Order> future : orders) {
+            inCarts += future.get(60, TimeUnit.SECONDS).getCartItemCount();
+        }
+        pool.shutdown();
+
+        assertEquals(0, product.getQuantity());
+        assertEquals(stock, inCarts);
+    }
+}
@@ -0,0 +1,75 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void buckets_coverEveryValueOnceWithinSixPercent() {
+        long previousHighest = -1;
+        for (int index = 0; index < LatencyHistogram.BUCKETS; index++) {
+            long highest = LatencyHistogram.highestValue(index);
+            long lowest = previousHighest + 1;
+            assertEquals(index, LatencyHistogram.index(lowest));
+            assertEquals(index, LatencyHistogram.index(highest));
+            assertTrue(highest - lowest <= Math.max(0, lowest / 16), "bucket " + index);
+            previousHighest = highest;
+        }
+        assertEquals((1L << 40) - 1, previousHighest);
+    }
+
+    @Test
+    void percentile_isTheBucketOfTheRank() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(500_500, histogram.getMean(), 0.001);
+        assertEquals(500_000, histogram.percentile(0.5), 500_000 / 16.0);
+        assertEquals(990_000, histogram.percentile(0.99), 990_000 / 16.0);
+        assertEquals(1_000_000, histogram.percentile(1.0));
+        assertTrue(histogram.percentile(0.5) >= 500_000);
+    }
+
+    @Test
+    void record_clampsAndIsThreadSafe() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, histogram.percentile(0.5));
+        assertEquals((1L << 40) - 1, histogram.getMax());
+
+        LatencyHistogram shared = new LatencyHistogram();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            long seed = t;
+            pool.execute(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 10_000; i++) {
+                    shared.record(random.nextInt(1_000_000));
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(40_000, shared.getCount());
+        assertEquals(shared.getMax(), shared.percentile(1.0));
+    }
+
+    @Test
+    void emptyHistogram_reportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(0.99));
+        assertEquals(0, histogram.getMean());
+        assertThrows(IllegalArgumentException.class, () -> histogram.percentile(1.5));
+    }
+}
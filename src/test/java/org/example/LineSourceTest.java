@@ -0,0 +1,152 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineSourceTest {
+
+    private static final String FEED = "3\n" +
+            "C001 John john@example.com \"123 Street\" Regular\r\n" +
+            "C002 Zoë zoe@example.com \"Straße 9\" Premium\n" +
+            "C001 Priya priya@example.com \"456 Street\" Regular\n" +
+            "3\n" +
+            "P001 Electronics Phone 500.00 10 12\n" +
+            "P002 Fashion \"T-Shirt ☃\" 20.00 50 M\n" +
+            "P003 Fashion Hat 15.50 5 XS\n" +
+            "4\n" +
+            "C001 P001 2\n" +
+            "C002 P002 3\n" +
+            "C003 P002 1\n" +
+            "C002 P001 25\n" +
+            "2\n" +
+            "O001 C001 Online CreditCard\n" +
+            "O002 C002 InStore PayPal\n";
+
+    @TempDir
+    Path tempDir;
+
+    private static List<String> scannerLines(String input) {
+        List<String> lines = new ArrayList<>();
+        Scanner scanner = new Scanner(input);
+        while (scanner.hasNextLine()) {
+            lines.add(scanner.nextLine());
+        }
+        return lines;
+    }
+
+    private static List<String> sourceLines(LineSource source) {
+        List<String> lines = new ArrayList<>();
+        while (source.hasNextLine()) {
+            lines.add(source.nextLine().toString());
+        }
+        assertThrows(NoSuchElementException.class, source::nextLine);
+        return lines;
+    }
+
+    private static LineSource channelSource(String input, int bufferSize) {
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        return ChannelLineSource.of(Channels.newChannel(new ByteArrayInputStream(bytes)), bufferSize,
+                StandardCharsets.UTF_8);
+    }
+
+    private static String runPipeline(LineSource source) {
+        return new PipelineRunner().run(source);
+    }
+
+    @Test
+    void nextLine_splitsLikeScanner() {
+        String[] inputs = {
+                "", "\n", "a", "a\n", "a\r\nb", "a\r\n", "a\r", "a\r\r\nb\n\n", "\r\n\r\n",
+                "x y z\u0085w", "é\nü\r\n☃", "one\ntwo\nthree without newline",
+                "long " + "x".repeat(300) + "\nshort"
+        };
+        for (String input : inputs) {
+            for (int bufferSize : new int[]{1, 2, 3, 5, 64, 8192}) {
+                assertEquals(scannerLines(input), sourceLines(channelSource(input, bufferSize)),
+                        "input [" + input + "] buffer " + bufferSize);
+            }
+        }
+    }
+
+    @Test
+    void nextLine_latin1NextLineIsALineBreak() {
+        byte[] bytes = {'a', (byte) 0x85, 'b', (byte) 0xE9};
+        LineSource source = ChannelLineSource.of(Channels.newChannel(new ByteArrayInputStream(bytes)), 2,
+                StandardCharsets.ISO_8859_1);
+        assertEquals(List.of("a", "bé"), sourceLines(source));
+    }
+
+    @Test
+    void position_countsConsumedBytes() {
+        ChannelLineSource source = (ChannelLineSource) channelSource("ab\r\né\n", 3);
+        source.nextLine();
+        assertEquals(3, source.position());
+        source.nextLine();
+        assertEquals(7, source.position());
+    }
+
+    @Test
+    void seek_continuesAtTheLineStart() throws IOException {
+        String input = "first\r\nsecond\nthird line\nlast";
+        ChannelLineSource stream = (ChannelLineSource) channelSource(input, 4);
+        stream.seek(14);
+        assertEquals("third line", stream.nextLine().toString());
+        assertEquals(14, stream.lineStart());
+        assertEquals(25, stream.lineEnd());
+        assertThrows(IllegalStateException.class, () -> stream.seek(0));
+
+        Path file = tempDir.resolve("seek.txt");
+        Files.writeString(file, input, StandardCharsets.UTF_8);
+        try (ChannelLineSource source = ChannelLineSource.open(file, StandardCharsets.UTF_8);
+             ChannelLineSource mapped = ChannelLineSource.mapped(file, 8, StandardCharsets.UTF_8)) {
+            for (ChannelLineSource seekable : List.of(source, mapped)) {
+                assertEquals(List.of("first", "second", "third line", "last"), sourceLines(seekable));
+                seekable.seek(7);
+                assertEquals(List.of("second", "third line", "last"), sourceLines(seekable));
+            }
+        }
+    }
+
+    @Test
+    void pipeline_outputMatchesScanner() throws IOException {
+        String expected = runPipeline(LineSource.of(new Scanner(FEED)));
+        assertTrue(expected.contains("Total (after 10% discount): 54.00"));
+
+        assertEquals(expected, runPipeline(channelSource(FEED, 4)));
+        assertEquals(expected, runPipeline(channelSource(FEED, ChannelLineSource.DEFAULT_BUFFER_SIZE)));
+
+        Path file = tempDir.resolve("feed.txt");
+        Files.writeString(file, FEED, StandardCharsets.UTF_8);
+        try (LineSource source = ChannelLineSource.open(file, StandardCharsets.UTF_8)) {
+            assertEquals(expected, runPipeline(source));
+        }
+        try (LineSource source = ChannelLineSource.mapped(file, 16, StandardCharsets.UTF_8)) {
+            assertEquals(expected, runPipeline(source));
+        }
+        try (LineSource source = ChannelLineSource.mapped(file, StandardCharsets.UTF_8)) {
+            assertEquals(expected, runPipeline(source));
+        }
+    }
+
+    @Test
+    void supports_onlyAsciiCompatibleCharsets() {
+        assertTrue(ChannelLineSource.supports(StandardCharsets.UTF_8));
+        assertFalse(ChannelLineSource.supports(StandardCharsets.UTF_16));
+        assertThrows(IllegalArgumentException.class,
+                () -> ChannelLineSource.of(System.in, Charset.forName("UTF-16LE")));
+    }
+}
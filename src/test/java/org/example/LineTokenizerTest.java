@@ -0,0 +1,81 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineTokenizerTest {
+
+    private static final Pattern TOKEN = Pattern.compile("\"([^\"]*)\"|(\\S+)");
+
+    private final LineTokenizer tokenizer = new LineTokenizer();
+
+    // The regex based parser the tokenizer replaced
+    private static String[] regexTokens(String line) {
+        ArrayList<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(line);
+        while (matcher.find()) {
+            tokens.add(matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    private void assertSameAsRegex(String line) {
+        tokenizer.tokenize(line);
+        assertArrayEquals(regexTokens(line), tokenizer.toArray(), () -> "line: [" + line + "]");
+    }
+
+    @Test
+    void tokenize_customerLine() {
+        assertEquals(5, tokenizer.tokenize("C001 John john@example.com \"123 Street\" Regular"));
+        assertEquals("C001", tokenizer.token(0));
+        assertEquals("123 Street", tokenizer.token(3));
+        assertEquals("Regular", tokenizer.token(4));
+    }
+
+    @Test
+    void tokenize_numericTokens() {
+        assertEquals(6, tokenizer.tokenize("P001 Electronics Phone 500.00 10 -1"));
+        assertEquals(500.00, tokenizer.doubleToken(3));
+        assertEquals(10, tokenizer.intToken(4));
+        assertEquals(-1, tokenizer.intToken(5));
+        assertThrows(NumberFormatException.class, () -> tokenizer.intToken(1));
+    }
+
+    @Test
+    void tokenize_reusesBufferAcrossLines() {
+        tokenizer.tokenize("a b c d e f g h i j k l");
+        assertEquals(2, tokenizer.tokenize("x y"));
+        assertThrows(IndexOutOfBoundsException.class, () -> tokenizer.token(2));
+    }
+
+    @Test
+    void tokenize_quotingEdgeCases() {
+        String[] lines = {
+                "", "   ", "\"\"", "\"", "\"abc", "ab\"c d\"", "\"a\"b", "x \"a b\" \"c",
+                "\"unterminated with spaces", "\t tab\tseparated\u000Bvt\fff\r",
+                "a b", "\"\" \"\" x", "\"a\"\"b\"", "quote\"in\"middle more"
+        };
+        for (String line : lines) {
+            assertSameAsRegex(line);
+        }
+    }
+
+    @Test
+    void tokenize_matchesRegexOnRandomLines() {
+        Random random = new Random(42);
+        char[] alphabet = {'a', 'B', '1', '.', '-', '"', '"', ' ', ' ', '\t', '\r', '\f', '\u00A0', ' '};
+        for (int n = 0; n < 5000; n++) {
+            char[] chars = new char[random.nextInt(24)];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = alphabet[random.nextInt(alphabet.length)];
+            }
+            assertSameAsRegex(new String(chars));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    private static final String FEED = "4\n" +
+            "C001 John john@example.com \"123 Street\" Regular\n" +
+            "C002 Jane jane@example.com \"9 Road\" Premium\n" +
+            "C001 Again again@example.com \"1 Lane\" Regular\n" +
+            "C003 too few\n" +
+            "5\n" +
+            "P001 Electronics Phone 500.00 10 12\n" +
+            "P002 Fashion T-Shirt 20.00 50 M\n" +
+            "P003 Fashion Hat 15.50 5 XS\n" +
+            "P004 Electronics Radio 80.00 5 48\n" +
+            "P005 Toys Ball 2.00 5 0\n" +
+            "4\n" +
+            "C001 P001 2\n" +
+            "C002 P002 60\n" +
+            "C009 P002 1\n" +
+            "C002 P002 1\n" +
+            "3\n" +
+            "O001 C001 Online CreditCard\n" +
+            "O002 C002 Online Bitcoin\n" +
+            "O003 C002 InStore PayPal\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void helper_countsRejectsAndTimesEveryStep() {
+        Metrics metrics = new Metrics();
+        String withMetrics = run(metrics);
+
+        assertEquals(run(null), withMetrics);
+        assertEquals(2, metrics.getRejected(RejectReason.INVALID_CUSTOMER_ID));
+        assertEquals(1, metrics.getRejected(RejectReason.INVALID_SIZE));
+        assertEquals(1, metrics.getRejected(RejectReason.INVALID_WARRANTY_PERIOD));
+        assertEquals(1, metrics.getRejected(RejectReason.OUT_OF_STOCK));
+        assertEquals(1, metrics.getRejected(RejectReason.INVALID_PAYMENT_METHOD));
+        assertEquals(1, metrics.getRejected(RejectReason.MALFORMED_RECORD));
+        assertEquals(1, metrics.getRejected(RejectReason.INVALID_VALUE));
+
+        assertEquals(4, metrics.getPhaseRecords(Phase.CUSTOMERS));
+        assertEquals(3, metrics.getPhaseRecords(Phase.ORDERS));
+        assertTrue(metrics.getPhaseNanos(Phase.PRODUCTS) > 0);
+        assertEquals(15, metrics.getLatency(Metrics.Operation.PARSE).getCount());
+        assertEquals(4, metrics.getLatency(Metrics.Operation.ADD_TO_CART).getCount());
+        assertEquals(2, metrics.getLatency(Metrics.Operation.PROCESS_ORDER).getCount());
+    }
+
+    @Test
+    void write_picksTheFormatByFileName() throws IOException {
+        Metrics metrics = new Metrics();
+        metrics.rejected(RejectReason.OUT_OF_STOCK);
+        metrics.rejected("CART_LIMIT_EXCEEDED");
+        metrics.rejected("not a reason");
+        metrics.record(Metrics.Operation.PARSE, 1500);
+        metrics.phaseCompleted(Phase.ORDERS, 2_000_000_000L, 7);
+
+        Path json = dir.resolve("metrics.json");
+        metrics.write(json);
+        String text = Files.readString(json, StandardCharsets.UTF_8);
+        assertTrue(text.contains("\"OUT_OF_STOCK\": 1"), text);
+        assertTrue(text.contains("\"CART_LIMIT_EXCEEDED\": 1"), text);
+        assertTrue(text.contains("\"orders\": {\"seconds\": 2.000000000, \"records\": 7}"), text);
+        assertTrue(text.contains("\"parse\": {\"count\": 1, \"mean_ns\": 1500"), text);
+
+        Path prometheus = dir.resolve("metrics.prom");
+        metrics.write(prometheus);
+        text = Files.readString(prometheus, StandardCharsets.UTF_8);
+        assertTrue(text.contains("# TYPE helper_rejected_total counter\n"), text);
+        assertTrue(text.contains("helper_rejected_total{reason=\"OUT_OF_STOCK\"} 1\n"), text);
+        assertTrue(text.contains("helper_latency_seconds_count{operation=\"parse\"} 1\n"), text);
+        assertTrue(text.contains("helper_latency_seconds{operation=\"parse\",quantile=\"0.99\"} 0.000001"), text);
+    }
+
+    private static String run(Metrics metrics) {
+        PipelineRunner runner = new PipelineRunner();
+        runner.helper().setMetrics(metrics);
+        return runner.run(FEED);
+    }
+}
@@ -0,0 +1,74 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderAnalyticsTest {
+
+    @Test
+    void ordersAreAddedUpAsTheyAreProcessed() {
+        OrderAnalytics analytics = new OrderAnalytics();
+        Helper helper = new Helper(new PrintStream(new ByteArrayOutputStream()));
+        helper.setListener(analytics);
+        LinkedHashMap<String, Customer> customers = new LinkedHashMap<>();
+        Inventory inventory = new Inventory();
+        LinkedHashMap<String, Order> orders = new LinkedHashMap<>();
+        helper.readCustomers(new Scanner("3\n" +
+                "C001 John john@example.com \"123 Street\" Regular\n" +
+                "C002 Jane jane@example.com \"9 Road\" Premium\n" +
+                "C003 Zoe zoe@example.com \"1 Lane\" Premium\n"), customers);
+        helper.readProducts(new Scanner("2\n" +
+                "P001 Electronics Phone 500.00 10 12\n" +
+                "P002 Fashion T-Shirt 20.00 50 M\n"), inventory);
+        helper.readCartAdditions(new Scanner("3\nC001 P001 1\nC002 P002 3\nC002 P001 1\n"), customers, inventory);
+        helper.readOrders(new Scanner("3\n" +
+                "O001 C001 Online PayPal\n" +
+                "O002 C002 InStore CreditCard\n" +
+                "O003 C003 Online PayPal\n"), customers, inventory, orders);
+
+        assertEquals(0, new BigDecimal("1000").compareTo(analytics.getRevenue(ProductType.ELECTRONICS)));
+        assertEquals(0, new BigDecimal("60").compareTo(analytics.getRevenue(ProductType.FASHION)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(analytics.getRevenue(ProductType.GENERAL)));
+        assertEquals(0, new BigDecimal("56").compareTo(analytics.getDiscount("Premium")));
+        assertEquals(0, BigDecimal.ZERO.compareTo(analytics.getDiscount("Regular")));
+        // O003 has an empty cart and is turned down before it is paid
+        assertEquals(1, analytics.getPayments("PayPal"));
+        assertEquals(1.0, analytics.getSuccessRate("CreditCard"));
+        assertEquals(0.0, analytics.getSuccessRate("Bitcoin"));
+        assertEquals(1, analytics.getOrders(ValidationRules.OrderKind.IN_STORE));
+        assertEquals(0, new BigDecimal("504").compareTo(analytics.getRevenue(ValidationRules.OrderKind.IN_STORE)));
+    }
+
+    @Test
+    void parallelAggregation_matchesAddingOneByOne() {
+        Customer regular = new RegularCustomer("C001", "John", "john@example.com", "1 Street");
+        Customer premium = new PremiumCustomer("C002", "Jane", "jane@example.com", "2 Road");
+        Product phone = new Electronics("P001", "Phone", 499.99, Integer.MAX_VALUE, 12);
+        Product shirt = new Fashion("P002", "T-Shirt", 19.95, Integer.MAX_VALUE, "M");
+        List<Order> orders = new ArrayList<>();
+        OrderAnalytics sequential = new OrderAnalytics();
+        for (int i = 0; i < 3 * OrderAnalytics.LEAF_ORDERS + 17; i++) {
+            Customer customer = i % 3 == 0 ? premium : regular;
+            Order order = i % 2 == 0 ? new OnlineOrder("O" + i, customer.getCustomerId(), customer)
+                    : new InStoreOrder("O" + i, customer.getCustomerId(), customer);
+            order.addToCart(i % 5 == 0 ? phone : shirt, 1 + i % 4);
+            order.setPaymentResult(i % 7 == 0 ? "PayPal" : "CreditCard", i % 11 != 0);
+            orders.add(order);
+            sequential.add(order, order.isPaid());
+        }
+
+        OrderAnalytics parallel = OrderAnalytics.aggregate(orders, new ForkJoinPool(4));
+        assertEquals(sequential.toJson(), parallel.toJson());
+        assertEquals(0, sequential.getDiscount("Premium").compareTo(parallel.getDiscount("Premium")));
+    }
+}
@@ -0,0 +1,142 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderTest {
+
+    private final Customer regular = new RegularCustomer("C001", "John", "john@example.com", "123 Street");
+    private final Customer premium = new PremiumCustomer("C002", "Alice", "alice@example.com", "456 Avenue");
+
+    @AfterEach
+    void tearDown() {
+        Order.verifyTotals = false;
+    }
+
+    @Test
+    void calculateTotal_keptUpToDateByAddToCart() {
+        Order order = new OnlineOrder("O001", "C001", regular);
+        Product phone = new Electronics("P001", "Phone", 500.00, 10, 12);
+        Product shirt = new Fashion("P002", "T-Shirt", 19.99, 50, "M");
+
+        assertEquals(0.0, order.calculateTotal());
+        order.addToCart(phone, 2);
+        order.addToCart(shirt, 3);
+        order.addToCart(phone, 1);
+
+        assertEquals(new BigDecimal("1559.97"), order.getSubtotal().stripTrailingZeros());
+        assertEquals(1559.97, order.calculateTotal());
+    }
+
+    @Test
+    void calculateTotal_premiumDiscount() {
+        Order order = new OnlineOrder("O002", "C002", premium);
+        order.addToCart(new Fashion("P002", "T-Shirt", 20.00, 50, "M"), 3);
+
+        assertEquals(54.00, order.calculateTotal());
+        assertEquals("54.00", CurrencyFormat.format(order.calculateTotal()));
+    }
+
+    @Test
+    void calculateTotal_isTheDoubleSumOfTheLines() {
+        Order order = new OnlineOrder("O007", "C002", premium);
+        order.addToCart(new Fashion("P001", "Pen", 1.65, 10, "M"), 1);
+
+        assertEquals(0, new BigDecimal("1.485").compareTo(order.getExactTotal()));
+        assertEquals(1.65 * 0.90, order.calculateTotal());
+        assertEquals("1.48", CurrencyFormat.format(order.calculateTotal()));
+    }
+
+    @Test
+    void transferCartFrom_carriesTotals() {
+        Order temp = new OnlineOrder("TEMP_ORDER_C002", "C002", premium);
+        temp.addToCart(new Electronics("P001", "Phone", 500.00, 10, 12), 2);
+
+        Order order = new InStoreOrder("O003", "C002", premium);
+        order.transferCartFrom(temp);
+
+        assertEquals(900.00, order.calculateTotal());
+        assertEquals(2, order.getCartItemCount());
+    }
+
+    @Test
+    void transferCartFrom_leavesTheOrderIndependentOfTheTemporaryOne() {
+        Order.verifyTotals = true;
+        Product phone = new Electronics("P001", "Phone", 500.00, 100, 12);
+        Order temp = new OnlineOrder("TEMP_ORDER_C001", "C001", regular);
+        temp.setCartLimit(Integer.MAX_VALUE);
+        for (int i = 0; i <= Order.CART_INDEX_THRESHOLD; i++) {
+            temp.addToCart(new Fashion("P1" + i, "Item", 10.00, 50, "M"), 1);
+        }
+        temp.addToCart(phone, 1);
+
+        Order order = new OnlineOrder("O006", "C001", regular);
+        order.transferCartFrom(temp);
+        temp.addToCart(phone, 2);
+        temp.addToCart(new Fashion("P200", "Hat", 15.00, 50, "L"), 1);
+        order.addToCart(phone, 1);
+
+        assertEquals(Order.CART_INDEX_THRESHOLD + 2, order.cart.size());
+        assertEquals(2, order.cart.get(order.cart.size() - 1).getQuantity());
+        assertEquals(1090.00, order.calculateTotal());
+        assertEquals(Order.CART_INDEX_THRESHOLD + 3, temp.cart.size());
+        assertEquals(3, temp.cart.get(Order.CART_INDEX_THRESHOLD + 1).getQuantity());
+        assertEquals(1605.00, temp.calculateTotal());
+    }
+
+    @Test
+    void addToCart_linesReferToTheProductAndMergeBeforeAndAfterIndexing() {
+        Order order = new OnlineOrder("O005", "C001", regular);
+        order.setCartLimit(Integer.MAX_VALUE);
+        Product[] products = new Product[Order.CART_INDEX_THRESHOLD * 2];
+        for (int i = 0; i < products.length; i++) {
+            products[i] = new Fashion("P" + i, "Item" + i, 10.00, 50, "M");
+            order.addToCart(products[i], 1);
+            order.addToCart(products[0], 1);
+        }
+
+        assertEquals(products.length, order.cart.size());
+        assertSame(products[0], order.cart.get(0).getProduct());
+        assertEquals(products.length + 1, order.cart.get(0).getQuantity());
+        assertEquals(1, order.cart.get(products.length - 1).getQuantity());
+        assertEquals("P1 Item1 10.0 Quantity: 1", order.cart.get(1).toString());
+        assertEquals(products.length * 20.00, order.calculateTotal());
+    }
+
+    @Test
+    void calculateTotal_matchesRecalculationOnRandomCarts() {
+        Order.verifyTotals = true;
+        Random random = new Random(3);
+        for (int n = 0; n < 2000; n++) {
+            Customer customer = random.nextBoolean() ? regular : premium;
+            Order order = new OnlineOrder("O" + n, customer.getCustomerId(), customer);
+            order.setCartLimit(Integer.MAX_VALUE);
+            double legacy = 0.0;
+            for (int i = 0; i < 1 + random.nextInt(30); i++) {
+                double price = (1 + random.nextInt(20_000_000)) / 100.0;
+                int quantity = 1 + random.nextInt(5);
+                order.addToCart(new Fashion("P" + i, "Item", price, 500, "M"), quantity);
+                legacy += price * quantity * (customer == premium ? 0.90 : 1.0);
+            }
+            assertEquals(0, order.recalculateTotal().compareTo(order.getExactTotal()));
+            assertEquals(legacy, order.calculateTotal());
+        }
+    }
+
+    @Test
+    void verifyTotals_detectsDrift() {
+        Order order = new OnlineOrder("O004", "C001", regular);
+        order.addToCart(new Electronics("P001", "Phone", 500.00, 10, 12), 2);
+        assertEquals(1000.00, order.calculateTotal());
+        order.cart.get(0).setQuantity(3);
+
+        assertEquals(1000.00, order.calculateTotal());
+        Order.verifyTotals = true;
+        assertThrows(IllegalStateException.class, order::calculateTotal);
+    }
+}
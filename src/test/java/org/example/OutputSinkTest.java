@@ -0,0 +1,56 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutputSinkTest {
+
+    private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    private final PrintStream out = new PrintStream(outputStream);
+
+    @Test
+    void direct_writesEveryLineImmediately() {
+        OutputSink sink = OutputSink.direct(out);
+        sink.println("INVALID_SIZE");
+        sink.append("P001 Phone ").append(2).append(' ').append("x").endLine();
+        assertEquals("INVALID_SIZE\nP001 Phone 2 x\n", outputStream.toString());
+    }
+
+    @Test
+    void buffered_holdsLinesUntilFlush() {
+        BufferedOutputSink sink = new BufferedOutputSink(out, 1024);
+        sink.println("OUT_OF_STOCK");
+        sink.append("Total: ").append("1000.00").endLine();
+        assertEquals("", outputStream.toString());
+        assertTrue(sink.pending() > 0);
+
+        sink.flush();
+        assertEquals("OUT_OF_STOCK\nTotal: 1000.00\n", outputStream.toString());
+        assertEquals(0, sink.pending());
+    }
+
+    @Test
+    void buffered_writesBlockOnceThresholdIsReached() {
+        BufferedOutputSink sink = new BufferedOutputSink(out, 20);
+        sink.println("0123456789");
+        assertEquals("", outputStream.toString());
+        sink.println("0123456789");
+        assertEquals("0123456789\n0123456789\n", outputStream.toString());
+        assertEquals(0, sink.pending());
+    }
+
+    @Test
+    void buffered_helperFlushesAtEndOfEachPhase() {
+        Helper helper = new Helper(new BufferedOutputSink(out, 1 << 20));
+        helper.readCustomers(new Scanner("2\n" +
+                "C001 John john@example.com \"123 Street\" Regular\n" +
+                "C001 Priya priya@example.com \"456 Street\" Regular"), new LinkedHashMap<>());
+        assertEquals("INVALID_CUSTOMER_ID\n", outputStream.toString());
+    }
+}
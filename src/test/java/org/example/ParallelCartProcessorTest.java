@@ -0,0 +1,83 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelCartProcessorTest {
+
+    private static String feed(long seed, int customers, int products, int stock, int additions) {
+        Random random = new Random(seed);
+        StringBuilder input = new StringBuilder();
+        input.append(customers).append('\n');
+        for (int i = 0; i < customers; i++) {
+            input.append("C").append(i).append(" Name").append(i).append(" c").append(i).append("@example.com \"")
+                    .append(i).append(" Street\" ").append(i % 3 == 0 ? "Premium" : "Regular").append('\n');
+        }
+        input.append(products).append('\n');
+        for (int i = 0; i < products; i++) {
+            input.append("P").append(i).append(" Fashion Item").append(i).append(' ')
+                    .append(1 + random.nextInt(1000)).append(".99 ").append(stock).append(" M\n");
+        }
+        input.append(additions).append('\n');
+        for (int i = 0; i < additions; i++) {
+            int kind = random.nextInt(20);
+            if (kind == 0) {
+                input.append("C").append(customers + 5).append(" P0 1\n");
+            } else if (kind == 1) {
+                input.append("C0 P").append(products + 5).append(" 1\n");
+            } else if (kind == 2) {
+                input.append("C1 P1\n");
+            } else if (kind == 3) {
+                input.append("C2 P2 -1\n");
+            } else {
+                input.append("C").append(random.nextInt(customers)).append(" P").append(random.nextInt(products))
+                        .append(' ').append(1 + random.nextInt(6)).append('\n');
+            }
+        }
+        return input.toString();
+    }
+
+    private static String run(String input, int workers) {
+        PipelineRunner runner = new PipelineRunner();
+        runner.helper().setLimits(IngestLimits.UNBOUNDED);
+        runner.helper().setCartWorkers(workers);
+        try {
+            runner.run(input);
+        } catch (NumberFormatException e) {
+            runner.helper().print("FAILED " + e.getClass().getSimpleName());
+        }
+        StringBuilder state = new StringBuilder(runner.output());
+        for (Product product : runner.inventory.values()) {
+            state.append(product.getItemId()).append('=').append(product.getQuantity()).append('\n');
+        }
+        return state.toString();
+    }
+
+    @Test
+    void parallel_matchesSequentialWithPlentyOfStock() {
+        String input = feed(1, 150, 40, 500, 10_000);
+        String expected = run(input, 1);
+        for (int workers : new int[]{2, 4, 8}) {
+            assertEquals(expected, run(input, workers), "workers " + workers);
+        }
+    }
+
+    @Test
+    void parallel_matchesSequentialWhenStockRunsOut() {
+        String input = feed(2, 60, 5, 30, 9_000);
+        String expected = run(input, 1);
+        assertTrue(expected.contains("OUT_OF_STOCK"));
+        assertEquals(expected, run(input, 4));
+    }
+
+    @Test
+    void parallel_badQuantityStopsAtTheSameLine() {
+        String input = feed(3, 10, 5, 500, 6_000).replace("C1 P1\n", "C1 P1 x\n");
+        String expected = run(input, 1);
+        assertTrue(expected.contains("FAILED NumberFormatException"));
+        assertEquals(expected, run(input, 3));
+    }
+}
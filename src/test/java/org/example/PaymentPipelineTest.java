@@ -0,0 +1,104 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentPipelineTest {
+
+    private final Customer customer = new RegularCustomer("C001", "John", "john@example.com", "123 Street");
+    private final Order order = new OnlineOrder("O001", "C001", customer);
+
+    @Test
+    void submit_reportsInSubmissionOrder() {
+        List<String> reported = new ArrayList<>();
+        try (SimulatedGateway gateway = new SimulatedGateway(1_000, 20_000);
+             PaymentPipeline pipeline = new PaymentPipeline(16, 5_000)) {
+            for (int i = 0; i < 200; i++) {
+                int n = i;
+                if (i % 7 == 0) {
+                    pipeline.then(() -> reported.add("diagnostic " + n));
+                }
+                pipeline.submit(order, gateway.payment("CreditCard"), i % 5 == 0 ? 0.0 : 10.0,
+                        status -> reported.add(n + " " + status));
+            }
+            pipeline.drain();
+            assertTrue(gateway.getMaxInFlight() > 1);
+            assertTrue(gateway.getMaxInFlight() <= 16);
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            if (i % 7 == 0) {
+                expected.add("diagnostic " + i);
+            }
+            expected.add(i + " " + (i % 5 != 0));
+        }
+        assertEquals(expected, reported);
+    }
+
+    @Test
+    void submit_timeoutCountsAsFailed() {
+        Payment never = new NeverPayment();
+        List<Boolean> statuses = new ArrayList<>();
+        try (PaymentPipeline pipeline = new PaymentPipeline(2, 50)) {
+            pipeline.submit(order, never, 10.0, statuses::add);
+            pipeline.submit(order, new CreditCardPayment(), 10.0, statuses::add);
+            pipeline.drain();
+        }
+        assertEquals(List.of(false, true), statuses);
+    }
+
+    @Test
+    void readOrders_asyncOutputMatchesSequential() {
+        String input = "3\n" +
+                "C001 John john@example.com \"123 Street\" Regular\n" +
+                "C002 Alice alice@example.com \"456 Avenue\" Premium\n" +
+                "C003 Bob bob@example.com \"789 Road\" Regular\n" +
+                "1\n" +
+                "P001 Electronics Phone 500.00 10 12\n" +
+                "2\n" +
+                "C001 P001 2\n" +
+                "C002 P001 1\n" +
+                "6\n" +
+                "O001 C001 Online CreditCard\n" +
+                "O002 C009 Online CreditCard\n" +
+                "O003 C002 InStore PayPal\n" +
+                "O004 C003 Online PayPal\n" +
+                "O005 C002 Online Bitcoin\n" +
+                "O006 C001 InStore PayPal\n";
+
+        String expected = run(input, null);
+        try (SimulatedGateway gateway = new SimulatedGateway(2_000, 10_000);
+             PaymentPipeline pipeline = new PaymentPipeline(4, 5_000)) {
+            assertEquals(expected, run(input, pipeline, gateway));
+        }
+    }
+
+    private static String run(String input, PaymentPipeline pipeline) {
+        return run(input, pipeline, null);
+    }
+
+    private static String run(String input, PaymentPipeline pipeline, PaymentGateway gateway) {
+        PipelineRunner runner = new PipelineRunner();
+        runner.helper().setPaymentPipeline(pipeline);
+        runner.helper().setPaymentGateway(gateway);
+        return runner.run(input) + String.join(",", runner.orders.keySet());
+    }
+
+    private static final class NeverPayment implements Payment, AsyncPayment {
+        @Override
+        public boolean processPayment(double amount) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<Boolean> processPaymentAsync(double amount) {
+            return new CompletableFuture<>();
+        }
+    }
+}
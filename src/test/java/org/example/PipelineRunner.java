@@ -0,0 +1,61 @@
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Scanner;
+
+/**
+ * Runs a feed through every section the way Main does, customers,
+ * products, cart additions, the cart report and orders, and keeps the
+ * output and the state the run left. Set the Helper up before calling run.
+ */
+final class PipelineRunner {
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final Helper helper = new Helper(new PrintStream(out, true, StandardCharsets.UTF_8));
+    final LinkedHashMap<String, Customer> customers = new LinkedHashMap<>();
+    final Inventory inventory = new Inventory();
+    final LinkedHashMap<String, Order> orders = new LinkedHashMap<>();
+
+    Helper helper() {
+        return helper;
+    }
+
+    String run(String input) {
+        return run(LineSource.of(new Scanner(input)));
+    }
+
+    String run(LineSource source) {
+        try {
+            helper.readCustomers(source, customers);
+            helper.readProducts(source, inventory);
+            helper.readCartAdditions(source, customers, inventory);
+            helper.printCustomerCartDetails(customers);
+            helper.readOrders(source, customers, inventory, orders);
+        } finally {
+            helper.flush();
+            helper.setCartWorkers(1);
+        }
+        return output();
+    }
+
+    // Everything printed so far
+    String output() {
+        helper.flush();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    // Main.run over the source with the command line options, returns what it printed
+    static String runMain(LineSource source, String... options) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Main.run(RunOptions.parse(options), source, OutputSink.direct(new PrintStream(out, true,
+                StandardCharsets.UTF_8)));
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    static String runMain(String input, String... options) throws IOException {
+        return runMain(LineSource.of(new Scanner(input)), options);
+    }
+}
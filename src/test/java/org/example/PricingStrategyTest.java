@@ -0,0 +1,67 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PricingStrategyTest {
+
+    private final Customer regular = new RegularCustomer("C001", "John", "john@example.com", "123 Street");
+    private final Customer premium = new PremiumCustomer("C002", "Alice", "alice@example.com", "456 Avenue");
+
+    @Test
+    void defaultPricing_isTenPercentOffForPremiumOnly() {
+        assertSame(PricingStrategy.STANDARD, Pricing.DEFAULT.strategyFor(regular));
+        PricingStrategy strategy = Pricing.DEFAULT.strategyFor(premium);
+        assertEquals(0, new BigDecimal("54.00").compareTo(strategy.total(new BigDecimal("60.00"), 3)));
+        assertEquals("Total (after 10% discount): ", strategy.getTotalLabel());
+    }
+
+    @Test
+    void categoryVolumeAndTierDiscounts_applyInTurn() {
+        PricingStrategy strategy = PricingStrategy.STANDARD
+                .withCategoryDiscount(ProductType.ELECTRONICS, new BigDecimal("0.20"))
+                .withVolumeDiscount(10, new BigDecimal("0.05"))
+                .withTier(new BigDecimal("1000"), new BigDecimal("0.10"))
+                .withTier(new BigDecimal("100"), new BigDecimal("0.02"));
+
+        assertEquals(0, new BigDecimal("400").compareTo(strategy.line(ProductType.ELECTRONICS, 250.0, 2)));
+        assertEquals(0, new BigDecimal("40").compareTo(strategy.line(ProductType.FASHION, 20.0, 2)));
+        // Below every tier and the volume
+        assertEquals(0, new BigDecimal("50").compareTo(strategy.total(new BigDecimal("50"), 9)));
+        // Lowest tier only
+        assertEquals(0, new BigDecimal("490").compareTo(strategy.total(new BigDecimal("500"), 9)));
+        // Volume and the highest tier reached
+        assertEquals(0, new BigDecimal("1710").compareTo(strategy.total(new BigDecimal("2000"), 10)));
+    }
+
+    @Test
+    void order_pricesItsLinesWithItsStrategy() {
+        Order.verifyTotals = true;
+        try {
+            Order order = new OnlineOrder("O001", "C001", regular);
+            order.setPricing(PricingStrategy.STANDARD.withCategoryDiscount(ProductType.FASHION,
+                    new BigDecimal("0.50")));
+            order.addToCart(new Fashion("P002", "T-Shirt", 20.00, 50, "M"), 3);
+            order.addToCart(new Electronics("P001", "Phone", 100.00, 10, 12), 1);
+            assertEquals(130.0, order.calculateTotal());
+            assertEquals(0, order.getExactTotal().compareTo(order.recalculateTotal()));
+            assertThrows(IllegalStateException.class, () -> order.setPricing(PricingStrategy.STANDARD));
+        } finally {
+            Order.verifyTotals = false;
+        }
+    }
+
+    @Test
+    void invalidRates_andDuplicateTypes_areRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> PricingStrategy.STANDARD.withOrderDiscount(new BigDecimal("1.5")));
+        assertThrows(IllegalArgumentException.class,
+                () -> PricingStrategy.STANDARD.withVolumeDiscount(0, BigDecimal.ONE));
+        assertThrows(IllegalArgumentException.class, () -> ProductType.register("Electronics",
+                ProductType.Attribute.WARRANTY, Electronics::new));
+        assertSame(ProductType.FASHION, ProductType.of("Fashion"));
+    }
+}
@@ -0,0 +1,142 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCatalogTest {
+
+    // A category registered next to the built-in ones
+    static final class Grocery extends Product {
+        static final ProductType TYPE = ProductType.register("Grocery", ProductType.Attribute.NONE, Grocery::new);
+
+        Grocery(String itemId, String name, double price, int quantity, int attribute) {
+            super(itemId, name, price, quantity);
+        }
+
+        @Override
+        public ProductType getType() {
+            return TYPE;
+        }
+    }
+
+    @Test
+    void add_storesColumnsAndRejectsDuplicateIds() {
+        ProductCatalog catalog = new ProductCatalog();
+        assertEquals(0, catalog.add(new Electronics("P001", "Phone", 500.00, 10, 12)));
+        assertEquals(1, catalog.add(new Fashion("P002", "T-Shirt", 20.00, 50, "XL")));
+        assertEquals(-1, catalog.add(new Fashion("P001", "Hat", 5.00, 1, "S")));
+
+        assertEquals(2, catalog.size());
+        assertEquals(1, catalog.indexOf("P002"));
+        assertEquals(-1, catalog.indexOf("P003"));
+        assertEquals("Phone", catalog.name(0));
+        assertEquals(12, catalog.warranty(0));
+        assertEquals(ProductCatalog.Size.XL, catalog.fashionSize(1));
+        assertEquals(-1, catalog.warranty(1));
+        assertEquals(50, catalog.stock(1));
+    }
+
+    @Test
+    void add_rejectsUnknownSize() {
+        ProductCatalog catalog = new ProductCatalog();
+        assertThrows(IllegalArgumentException.class, () -> catalog.add(new Fashion("P001", "Hat", 5.00, 1, "XS")));
+        assertEquals(0, catalog.size());
+    }
+
+    @Test
+    void indexOf_findsEveryIdAcrossPagesAndRehashes() {
+        ProductCatalog catalog = new ProductCatalog();
+        int count = 20_000;
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, catalog.add("P" + i, "Item" + i, 1.0 + i, i % 500, ProductType.GENERAL, 0));
+        }
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, catalog.indexOf("P" + i));
+            assertEquals(1.0 + i, catalog.price(i));
+        }
+    }
+
+    @Test
+    void view_readsAndWritesThroughToTheColumns() {
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.add(new Electronics("P001", "Phone", 500.00, 10, 12));
+        Product view = catalog.view(0);
+
+        assertTrue(view.tryReserve(4));
+        assertFalse(view.tryReserve(7));
+        assertEquals(6, catalog.stock(0));
+        view.release(1);
+        assertEquals(7, catalog.view(0).getQuantity());
+
+        assertSame(catalog.id(0), view.getItemId());
+        assertSame(catalog.id(0), catalog.view(catalog.indexOf(new String("P001"))).getItemId());
+        assertSame(ProductType.ELECTRONICS, view.getType());
+        assertEquals(12, view.getWarranty());
+        assertNull(view.getSize());
+        assertEquals("P001 Phone 500.0 (12 months warranty)", view.toString());
+    }
+
+    @Test
+    void add_keepsRegisteredCategories() {
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.add(new Grocery("P001", "Apples", 2.50, 40, 0));
+        Product view = catalog.view(0);
+
+        assertSame(Grocery.TYPE, view.getType());
+        assertEquals(-1, view.getWarranty());
+        assertEquals("P001 Apples 2.5", view.toString());
+    }
+
+    @Test
+    void order_cartLinesFromViewsMatchPlainProducts() {
+        Inventory plain = new Inventory();
+        Inventory columnar = new Inventory(new ProductCatalog());
+        for (Inventory inventory : List.of(plain, columnar)) {
+            inventory.put("P001", new Electronics("P001", "Phone", 500.00, 10, 12));
+            inventory.put("P002", new Fashion("P002", "T-Shirt", 19.99, 50, "M"));
+        }
+        List<String> lines = new ArrayList<>();
+        for (Inventory inventory : List.of(plain, columnar)) {
+            Order order = new OnlineOrder("O1", "C001", new RegularCustomer("C001", "John", "j@x.com", "Street"));
+            order.addToCart(inventory.get("P001"), 2);
+            order.addToCart(inventory.get("P002"), 3);
+            order.addToCart(inventory.get("P001"), 1);
+            lines.add(order.cart + " " + order.calculateTotal() + " " + inventory.get("P001").getQuantity());
+        }
+        assertEquals(lines.get(0), lines.get(1));
+    }
+
+    @Test
+    void tryReserve_neverOversellsUnderContention() throws Exception {
+        ProductCatalog catalog = new ProductCatalog();
+        catalog.add("P001", "Phone", 500.00, 10_000, ProductType.ELECTRONICS, 12);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> taken = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                taken.add(pool.submit(() -> {
+                    int units = 0;
+                    while (catalog.tryReserve(0, 3)) {
+                        units += 3;
+                    }
+                    return units;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> future : taken) {
+                total += future.get();
+            }
+            assertEquals(9_999, total);
+            assertEquals(1, catalog.stock(0));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
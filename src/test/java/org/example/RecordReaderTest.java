@@ -0,0 +1,148 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordReaderTest {
+
+    private static final String CUSTOMERS = "4\n" +
+            "C001 John john@example.com \"123 Street\" Regular\n" +
+            "C002 Jane jane@example.com \"9 Road\" Premium\n" +
+            "C001 Again again@example.com \"1 Lane\" Regular\n" +
+            "C003 Broken\n";
+
+    private static final String PRODUCTS = "4\n" +
+            "P001 Electronics Phone 500.00 10 12\n" +
+            "P002 Fashion \"T-Shirt, red\" 20.00 50 M\n" +
+            "P003 Fashion Hat 15.50 5 XS\n" +
+            "P004 Electronics Radio 30.00 5 40\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void csv_followsRfc4180() throws IOException {
+        String csv = "id,name,note\r\n" +
+                "1,\"Smith, John\",\"said \"\"hi\"\"\"\r\n" +
+                "2,,\"two\r\nlines\"\n" +
+                "3, spaced ,\"\"\r\n" +
+                "4,last,no line break";
+        try (CsvRecordReader reader = new CsvRecordReader(new StringReader(csv), true)) {
+            assertArrayEquals(new String[]{"1", "Smith, John", "said \"hi\""}, fields(reader));
+            assertArrayEquals(new String[]{"2", "", "two\r\nlines"}, fields(reader));
+            assertArrayEquals(new String[]{"3", " spaced ", ""}, fields(reader));
+            assertArrayEquals(new String[]{"4", "last", "no line break"}, fields(reader));
+            assertEquals(-1, reader.next());
+        }
+    }
+
+    @Test
+    void binary_readsTypedFieldsBack() throws IOException {
+        Path file = dir.resolve("records.bin");
+        try (BinaryRecordWriter writer = new BinaryRecordWriter(Files.newOutputStream(file))) {
+            writer.text("P001").text("Café").decimal(12.5).integer(7);
+            writer.endRecord();
+            writer.text("").endRecord();
+        }
+        try (RecordReader reader = RecordReader.open(file)) {
+            assertEquals(4, reader.next());
+            assertEquals("Café", reader.token(1));
+            assertEquals(12.5, reader.doubleToken(2));
+            assertEquals(7, reader.intToken(3));
+            assertEquals("7", reader.token(3));
+            assertEquals(7.0, reader.doubleToken(3));
+            assertEquals(1, reader.next());
+            assertEquals("", reader.token(0));
+            assertEquals(-1, reader.next());
+        }
+    }
+
+    @Test
+    void binary_truncatedFile_fails() throws IOException {
+        Path file = dir.resolve("records.bin");
+        try (BinaryRecordWriter writer = new BinaryRecordWriter(Files.newOutputStream(file))) {
+            writer.text("C001").text("John").endRecord();
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 2));
+        try (RecordReader reader = RecordReader.open(file)) {
+            assertThrows(UncheckedIOException.class, reader::next);
+        }
+        Files.writeString(file, "not binary");
+        assertThrows(UncheckedIOException.class, () -> RecordReader.open(file));
+    }
+
+    @Test
+    void bulkFiles_loadWhatTheTextSectionsLoad() throws IOException {
+        Path customersCsv = dir.resolve("customers.csv");
+        Files.writeString(customersCsv, "customerId,name,email,address,type\r\n" +
+                "C001,John,john@example.com,123 Street,Regular\r\n" +
+                "C002,Jane,jane@example.com,9 Road,Premium\r\n" +
+                "C001,Again,again@example.com,1 Lane,Regular\r\n" +
+                "C003,Broken\r\n");
+        Path productsBin = dir.resolve("products.bin");
+        try (BinaryRecordWriter writer = new BinaryRecordWriter(Files.newOutputStream(productsBin))) {
+            writer.text("P001").text("Electronics").text("Phone").decimal(500.00).integer(10).integer(12)
+                    .endRecord();
+            writer.text("P002").text("Fashion").text("T-Shirt, red").decimal(20.00).integer(50).text("M")
+                    .endRecord();
+            writer.text("P003").text("Fashion").text("Hat").decimal(15.50).integer(5).text("XS").endRecord();
+            writer.text("P004").text("Electronics").text("Radio").decimal(30.00).integer(5).integer(40)
+                    .endRecord();
+        }
+
+        ByteArrayOutputStream textOut = new ByteArrayOutputStream();
+        Helper text = new Helper(new PrintStream(textOut));
+        LinkedHashMap<String, Customer> textCustomers = new LinkedHashMap<>();
+        Inventory textInventory = new Inventory();
+        text.readCustomers(new Scanner(CUSTOMERS), textCustomers);
+        text.readProducts(new Scanner(PRODUCTS), textInventory);
+
+        ByteArrayOutputStream bulkOut = new ByteArrayOutputStream();
+        Helper bulk = new Helper(new PrintStream(bulkOut));
+        LinkedHashMap<String, Customer> bulkCustomers = new LinkedHashMap<>();
+        Inventory bulkInventory = new Inventory();
+        try (RecordReader customers = RecordReader.open(customersCsv);
+             RecordReader products = RecordReader.open(productsBin)) {
+            bulk.readCustomers(customers, bulkCustomers);
+            bulk.readProducts(products, bulkInventory);
+        }
+
+        assertEquals(textOut.toString(), bulkOut.toString());
+        assertEquals(textCustomers.keySet(), bulkCustomers.keySet());
+        assertEquals("9 Road", bulkCustomers.get("C002").getAddress());
+        assertEquals(ids(textInventory), ids(bulkInventory));
+        assertEquals("T-Shirt, red", bulkInventory.get("P002").getName());
+        assertEquals(textInventory.get("P001").getPrice(), bulkInventory.get("P001").getPrice());
+    }
+
+    private static String ids(Inventory inventory) {
+        StringBuilder ids = new StringBuilder();
+        for (Product product : inventory.values()) {
+            ids.append(product.getItemId()).append(' ');
+        }
+        return ids.toString();
+    }
+
+    private static String[] fields(RecordReader reader) {
+        int count = reader.next();
+        String[] fields = new String[count];
+        for (int i = 0; i < count; i++) {
+            fields[i] = reader.token(i);
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,47 @@
+package org.example;
+
+import org.apache.logging.log4j.LogManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RejectLogTest {
+
+    @Test
+    void rejectsOverTheRate_areCountedUntilTheNextSecond() {
+        AtomicLong now = new AtomicLong(5_000_000_000L);
+        RejectLog log = new RejectLog(LogManager.getLogger("org.example.reject.test"), 3, now::get);
+
+        int admitted = 0;
+        for (int i = 0; i < 10; i++) {
+            admitted += log.admit() ? 1 : 0;
+        }
+        assertEquals(3, admitted);
+        assertEquals(7, log.getSuppressed());
+
+        now.addAndGet(999_000_000L);
+        assertFalse(log.admit());
+        assertEquals(8, log.getSuppressed());
+
+        // The next second logs the count and starts a new budget
+        now.addAndGet(1_000_000L);
+        assertTrue(log.admit());
+        assertEquals(0, log.getSuppressed());
+    }
+
+    @Test
+    void rateZero_admitsEveryReject() {
+        RejectLog log = new RejectLog(LogManager.getLogger("org.example.reject.test"), 0, () -> 0);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(log.admit());
+        }
+        assertEquals(0, log.getSuppressed());
+    }
+
+    @Test
+    void negativeRate_isRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new RejectLog(-1));
+    }
+}
@@ -0,0 +1,90 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShopIndexTest {
+
+    private static final String CUSTOMERS = "3\n" +
+            "C001 John john@example.com \"123 Street\" Regular\n" +
+            "C002 Jane jane@example.com \"9 Road\" Premium\n" +
+            "C003 Zoe zoe@example.com \"1 Lane\" Premium\n";
+
+    private static final String PRODUCTS = "2\n" +
+            "P001 Electronics Phone 500.00 10 12\n" +
+            "P002 Fashion T-Shirt 20.00 50 M\n";
+
+    private static final String CARTS = "4\n" +
+            "C001 P001 1\n" +
+            "C002 P002 2\n" +
+            "C003 P002 1\n" +
+            "C002 P002 1\n";
+
+    private static final String ORDERS = "4\n" +
+            "O001 C001 Online PayPal\n" +
+            "O002 C002 InStore CreditCard\n" +
+            "O003 C003 Online PayPal\n" +
+            "O001 C003 Online CreditCard\n";
+
+    @Test
+    void indexes_followWhatHelperChanges() {
+        LinkedHashMap<String, Customer> customers = new LinkedHashMap<>();
+        LinkedHashMap<String, Order> orders = new LinkedHashMap<>();
+        ShopIndex index = new ShopIndex(customers, orders);
+        load(index, customers, orders);
+
+        assertEquals(List.of("C002", "C003"), customerIds(index.customersOfType("Premium")));
+        assertEquals(List.of(), index.customersOfType("Gold"));
+        assertEquals("C002", index.customerByEmail("jane@example.com").getCustomerId());
+        assertNull(index.customerByEmail("nobody@example.com"));
+        assertEquals(List.of("C002", "C003"), customerIds(index.cartsHolding("P002")));
+        assertEquals(List.of(), index.cartsHolding("P999"));
+        // O001 came again, paid by credit card this time
+        assertEquals(List.of("O003"), orderIds(index.ordersPaidWith("PayPal")));
+        assertEquals(List.of("O002", "O001"), orderIds(index.ordersPaidWith("CreditCard")));
+    }
+
+    @Test
+    void indexOverExistingState_answersTheSame() {
+        LinkedHashMap<String, Customer> customers = new LinkedHashMap<>();
+        LinkedHashMap<String, Order> orders = new LinkedHashMap<>();
+        ShopIndex listening = new ShopIndex(customers, orders);
+        load(listening, customers, orders);
+        ShopIndex rebuilt = new ShopIndex(customers, orders);
+
+        for (String type : new String[]{"Regular", "Premium"}) {
+            assertEquals(listening.customersOfType(type), rebuilt.customersOfType(type));
+        }
+        for (String product : new String[]{"P001", "P002"}) {
+            assertEquals(customerIds(listening.cartsHolding(product)), customerIds(rebuilt.cartsHolding(product)));
+        }
+        assertEquals(listening.ordersPaidWith("PayPal"), rebuilt.ordersPaidWith("PayPal"));
+        assertEquals(listening.customerByEmail("zoe@example.com"), rebuilt.customerByEmail("zoe@example.com"));
+    }
+
+    private static void load(ShopIndex index, LinkedHashMap<String, Customer> customers,
+            LinkedHashMap<String, Order> orders) {
+        Helper helper = new Helper(new PrintStream(new ByteArrayOutputStream()));
+        helper.setListener(index);
+        Inventory inventory = new Inventory();
+        helper.readCustomers(new Scanner(CUSTOMERS), customers);
+        helper.readProducts(new Scanner(PRODUCTS), inventory);
+        helper.readCartAdditions(new Scanner(CARTS), customers, inventory);
+        helper.readOrders(new Scanner(ORDERS), customers, inventory, orders);
+    }
+
+    private static List<String> customerIds(List<Customer> customers) {
+        return customers.stream().map(Customer::getCustomerId).toList();
+    }
+
+    private static List<String> orderIds(List<Order> orders) {
+        return orders.stream().map(Order::getOrderId).toList();
+    }
+}
@@ -0,0 +1,106 @@
+package org.example;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.Scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShopServerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final LinkedHashMap<String, Customer> customers = new LinkedHashMap<>();
+    private final Inventory inventory = new Inventory();
+    private final LinkedHashMap<String, Order> orders = new LinkedHashMap<>();
+    private ShopServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Helper helper = new Helper(new PrintStream(new ByteArrayOutputStream()));
+        helper.readCustomers(new Scanner("2\n" +
+                "C001 John john@example.com \"123 Street\" Regular\n" +
+                "C002 Jane jane@example.com \"9 Road\" Premium\n"), customers);
+        helper.readProducts(new Scanner("2\n" +
+                "P001 Electronics Phone 500.00 10 12\n" +
+                "P002 Fashion T-Shirt 20.00 50 M\n"), inventory);
+        server = new ShopServer(helper, customers, inventory, orders, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    void cartAddViewAndCheckout_printWhatTheBatchRunPrints() throws Exception {
+        assertEquals(200, send("POST", "/cart/add?customer=C002&product=P002&quantity=3").statusCode());
+        assertEquals(200, send("POST", "/cart/add?customer=C002&product=P001&quantity=1").statusCode());
+        assertEquals(47, inventory.get("P002").getQuantity());
+
+        HttpResponse<String> cart = send("GET", "/cart?customer=C002");
+        assertEquals(200, cart.statusCode());
+        assertEquals(lines("Customer: Jane (Premium)", "Address: 9 Road", "Shopping Cart:",
+                "P002 T-Shirt 20.00 Quantity: 3", "P001 Phone 500.00 Quantity: 1",
+                "Total (after 10% discount): 504.00"), cart.body());
+
+        HttpResponse<String> checkout = send("POST", "/checkout?order=O001&customer=C002&type=Online&payment=PayPal");
+        assertEquals(200, checkout.statusCode());
+        assertEquals(lines("Processing Order O001 for Jane", "Payment Method: PayPal", "Payment Status: Successful"),
+                checkout.body());
+        assertTrue(orders.get("O001").isPaid());
+    }
+
+    @Test
+    void rejectedRecords_answerWithTheirDiagnostic() throws Exception {
+        HttpResponse<String> stock = send("POST", "/cart/add?customer=C001&product=P001&quantity=11");
+        assertEquals(400, stock.statusCode());
+        assertEquals(lines(RejectReason.OUT_OF_STOCK.getMessage()), stock.body());
+
+        HttpResponse<String> empty = send("POST", "/checkout?order=O001&customer=C001&type=Online&payment=PayPal");
+        assertEquals(400, empty.statusCode());
+        assertEquals(lines(RejectReason.EMPTY_CART.getMessage()), empty.body());
+
+        assertEquals(404, send("GET", "/cart?customer=C999").statusCode());
+        assertEquals(400, send("POST", "/cart/add?customer=C001&product=P001").statusCode());
+        assertEquals(405, send("GET", "/checkout?order=O001").statusCode());
+        assertTrue(orders.isEmpty());
+    }
+
+    @Test
+    void queries_answerFromTheIndex() throws Exception {
+        send("POST", "/cart/add?customer=C001&product=P001&quantity=1");
+        send("POST", "/cart/add?customer=C002&product=P001&quantity=2");
+        send("POST", "/checkout?order=O001&customer=C002&type=InStore&payment=PayPal");
+
+        assertEquals(lines("C002 Jane (Premium)"), send("GET", "/customers?type=Premium").body());
+        assertEquals(lines("C001 John (Regular)"), send("GET", "/customers?email=john%40example.com").body());
+        assertEquals(404, send("GET", "/customers?email=nobody%40example.com").statusCode());
+        assertEquals(lines("C001 John (Regular)", "C002 Jane (Premium)"), send("GET", "/carts?product=P001").body());
+        assertEquals(lines("O001 C002 900.00 Successful"), send("GET", "/orders?payment=PayPal").body());
+        assertEquals(200, send("GET", "/orders?payment=CreditCard").statusCode());
+    }
+
+    private HttpResponse<String> send(String method, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, HttpRequest.BodyPublishers.noBody()).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String lines(String... lines) {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+}
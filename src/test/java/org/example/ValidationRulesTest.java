@@ -0,0 +1,86 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Scanner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValidationRulesTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void defaults_matchTheBuiltInValues() {
+        ValidationRules rules = ValidationRules.DEFAULT;
+        assertEquals(ValidationRules.CustomerKind.PREMIUM, rules.customerType("Premium"));
+        assertNull(rules.customerType("Gold"));
+        assertEquals(ValidationRules.OrderKind.IN_STORE, rules.orderType("InStore"));
+        assertEquals("Credit Card", rules.paymentMethod("CreditCard").label);
+        assertEquals(ValidationRules.PaymentKind.PAY_PAL, rules.paymentMethod("PayPal").kind);
+        assertNull(rules.paymentMethod("Bitcoin"));
+        assertEquals(ProductStore.Size.XXL, rules.size("XXL"));
+        assertNull(rules.size("XS"));
+        assertFalse(rules.isValidPrice(0));
+        assertTrue(rules.isValidPrice(200000));
+        assertFalse(rules.isValidPrice(200000.01));
+        assertTrue(rules.isValidQuantity(1));
+        assertFalse(rules.isValidQuantity(501));
+        assertTrue(rules.isValidWarranty(36));
+        assertFalse(rules.isValidWarranty(-1));
+    }
+
+    @Test
+    void addedValues_areHandledAsTheBuiltInTheyName() throws IOException {
+        Path file = Files.writeString(dir.resolve("rules.properties"), "product.types=Electronics,Fashion,Toys\n" +
+                "product.type.Toys=Electronics\n" +
+                "product.sizes=M,L\n" +
+                "product.warranty.max=60\n" +
+                "payment.methods=CreditCard,PayPal,GiftCard\n" +
+                "payment.method.GiftCard=PayPal\n" +
+                "payment.method.GiftCard.label=Gift Card\n");
+        ValidationRules rules = ValidationRules.load(file);
+        assertNotEquals(ValidationRules.DEFAULT.getFingerprint(), rules.getFingerprint());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Helper helper = new Helper(new PrintStream(out));
+        helper.setRules(rules);
+        LinkedHashMap<String, Customer> customers = new LinkedHashMap<>();
+        Inventory inventory = new Inventory();
+        LinkedHashMap<String, Order> orders = new LinkedHashMap<>();
+        helper.readCustomers(new Scanner("1\nC001 John john@example.com \"123 Street\" Regular\n"), customers);
+        helper.readProducts(new Scanner("3\n" +
+                "P001 Toys Robot 50.00 10 48\n" +
+                "P002 Fashion Shirt 20.00 10 S\n" +
+                "P003 Fashion Hat 15.00 10 L\n"), inventory);
+        helper.readCartAdditions(new Scanner("1\nC001 P001 1\n"), customers, inventory);
+        helper.readOrders(new Scanner("1\nO001 C001 Online GiftCard\n"), customers, inventory, orders);
+
+        assertSame(ProductType.ELECTRONICS, inventory.get("P001").getType());
+        assertEquals(48, inventory.get("P001").getWarranty());
+        assertNull(inventory.get("P002"));
+        assertEquals("L", inventory.get("P003").getSize());
+        String output = out.toString();
+        assertTrue(output.contains("Payment Method: Gift Card"), output);
+        assertEquals("GiftCard", orders.get("O001").getPaymentType());
+    }
+
+    @Test
+    void unknownKinds_andUnstorableValues_areRefused() throws IOException {
+        Path kind = Files.writeString(dir.resolve("kind.properties"),
+                "order.types=Online,Phone\n");
+        assertThrows(IllegalArgumentException.class, () -> ValidationRules.load(kind));
+        Path size = Files.writeString(dir.resolve("size.properties"), "product.sizes=S,XS\n");
+        assertThrows(IllegalArgumentException.class, () -> ValidationRules.load(size));
+        Path warranty = Files.writeString(dir.resolve("warranty.properties"), "product.warranty.max=200\n");
+        assertThrows(IllegalArgumentException.class, () -> ValidationRules.load(warranty));
+    }
+}
@@ -0,0 +1,201 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    private static final String FEED = "3\n" +
+            "C001 John john@example.com \"123 Street\" Regular\n" +
+            "C002 Jane jane@example.com \"9 Road\" Premium\n" +
+            "C003 Priya priya@example.com \"456 Street\" Regular\n" +
+            "3\n" +
+            "P001 Electronics Phone 500.00 10 12\n" +
+            "P002 Fashion T-Shirt 20.00 50 M\n" +
+            "P003 Fashion Hat 15.50 5 L\n" +
+            "5\n" +
+            "C001 P001 2\n" +
+            "C002 P002 3\n" +
+            "C003 P003 5\n" +
+            "C002 P001 1\n" +
+            "C001 P003 1\n" +
+            "4\n" +
+            "O001 C001 Online CreditCard\n" +
+            "O002 C002 InStore PayPal\n" +
+            "O003 C003 Online PayPal\n" +
+            "O004 C002 Online CreditCard\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void crashAtAnyPoint_recoversToTheSameState() throws IOException {
+        Path complete = dir.resolve("complete.wal");
+        String output = run(complete, Long.MAX_VALUE);
+        String expected = state(complete);
+        assertTrue(expected.contains("O004 paid"), expected);
+
+        byte[] log = Files.readAllBytes(complete);
+        for (int cut : cutPoints(log)) {
+            Path crashed = dir.resolve("crashed-" + cut + ".wal");
+            Files.write(crashed, Arrays.copyOf(log, cut));
+            run(crashed, Long.MAX_VALUE);
+            assertEquals(expected, state(crashed), "log cut at " + cut);
+        }
+        // A finished log has nothing left to do
+        assertEquals("", run(complete, Long.MAX_VALUE));
+        assertFalse(output.isEmpty());
+    }
+
+    @Test
+    void unfinishedOrders_areReportedWithTheLoggedOutcome() {
+        AtomicInteger charged = new AtomicInteger();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Helper helper = new Helper(new PrintStream(out));
+        helper.setPaymentGateway(paymentType -> amount -> {
+            charged.incrementAndGet();
+            return true;
+        });
+        helper.setPaymentOutcomes(Map.of(0, false));
+        LinkedHashMap<String, Customer> customers = new LinkedHashMap<>();
+        Inventory inventory = new Inventory();
+        Scanner scanner = new Scanner(FEED);
+        helper.readCustomers(scanner, customers);
+        helper.readProducts(scanner, inventory);
+        helper.readCartAdditions(scanner, customers, inventory);
+        helper.readOrders(scanner, customers, inventory, new LinkedHashMap<>());
+
+        assertEquals(3, charged.get());
+        assertTrue(out.toString().contains("Processing Order O001 for John" + System.lineSeparator()
+                + "Payment Method: Credit Card" + System.lineSeparator() + "Payment Status: Failed"));
+    }
+
+    @Test
+    void compaction_keepsTheState() throws IOException {
+        Path plain = dir.resolve("plain.wal");
+        Path compacted = dir.resolve("compacted.wal");
+        run(plain, Long.MAX_VALUE);
+        run(compacted, 0);
+
+        assertEquals(state(plain), state(compacted));
+        assertTrue(Files.size(compacted) < Files.size(plain));
+    }
+
+    @Test
+    void concurrentAppends_shareSyncs() throws Exception {
+        Path path = dir.resolve("group.wal");
+        LinkedHashMap<String, Customer> customers = new LinkedHashMap<>();
+        int threads = 4;
+        int perThread = 200;
+        try (WriteAheadLog wal = WriteAheadLog.open(path, customers, new Inventory(), new LinkedHashMap<>(), 20,
+                Pricing.DEFAULT, 200, Long.MAX_VALUE)) {
+            wal.phaseStarted(Phase.CUSTOMERS);
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> done = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    int thread = t;
+                    done.add(pool.submit(() -> {
+                        for (int i = 0; i < perThread; i++) {
+                            String id = "C" + thread + "-" + i;
+                            wal.customerAdded(new RegularCustomer(id, "Name", "n@example.com", "Street"));
+                            wal.sync();
+                        }
+                    }));
+                }
+                for (Future<?> future : done) {
+                    future.get();
+                }
+            } finally {
+                pool.shutdown();
+            }
+            wal.phaseCompleted(Phase.CUSTOMERS);
+            assertTrue(wal.getSyncCount() < threads * perThread, "syncs: " + wal.getSyncCount());
+        }
+        LinkedHashMap<String, Customer> recovered = new LinkedHashMap<>();
+        WriteAheadLog.replay(path, recovered, new Inventory(), new LinkedHashMap<>(), 20, Pricing.DEFAULT);
+        assertEquals(threads * perThread, recovered.size());
+    }
+
+    @Test
+    void replay_pricesCartsWithThePricingOfTheRun() throws IOException {
+        Path path = dir.resolve("priced.wal");
+        Pricing sale = new Pricing(PricingStrategy.STANDARD.withCategoryDiscount(ProductType.ELECTRONICS,
+                new BigDecimal("0.50")), Pricing.DEFAULT.getPremium());
+        PipelineRunner runner = new PipelineRunner();
+        runner.helper().setPricing(sale);
+        try (WriteAheadLog wal = WriteAheadLog.open(path, runner.customers, runner.inventory, runner.orders,
+                Order.DEFAULT_CART_LIMIT, sale, 0, Long.MAX_VALUE)) {
+            runner.helper().setListener(wal);
+            runner.run(FEED);
+        }
+
+        LinkedHashMap<String, Order> orders = new LinkedHashMap<>();
+        WriteAheadLog.replay(path, new LinkedHashMap<>(), new Inventory(), orders, Order.DEFAULT_CART_LIMIT, sale);
+        assertEquals(500.00, orders.get("O001").calculateTotal());
+        for (Order order : runner.orders.values()) {
+            assertEquals(order.calculateTotal(), orders.get(order.getOrderId()).calculateTotal(), order.getOrderId());
+        }
+    }
+
+    private static String run(Path wal, long compactBytes) throws IOException {
+        return PipelineRunner.runMain(FEED, "--wal=" + wal, "--wal-compact-bytes=" + compactBytes);
+    }
+
+    private static String state(Path wal) throws IOException {
+        LinkedHashMap<String, Customer> customers = new LinkedHashMap<>();
+        Inventory inventory = new Inventory();
+        LinkedHashMap<String, Order> orders = new LinkedHashMap<>();
+        WriteAheadLog.replay(wal, customers, inventory, orders, Order.DEFAULT_CART_LIMIT, Pricing.DEFAULT);
+        StringBuilder sb = new StringBuilder();
+        for (Customer customer : customers.values()) {
+            sb.append(customer.getCustomerId()).append(' ').append(customer.getCustomerType());
+            if (customer.getOrder() != null) {
+                sb.append(' ').append(customer.getOrder().getOrderId()).append(customer.getOrder().cart);
+            }
+            sb.append('\n');
+        }
+        for (Product product : inventory.values()) {
+            sb.append(product.getItemId()).append(" stock ").append(product.getQuantity()).append('\n');
+        }
+        for (Order order : orders.values()) {
+            sb.append(order.getOrderId()).append(order.isPaid() ? " paid " : " failed ")
+                    .append(order.getPaymentType()).append(' ').append(order.calculateTotal()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    // Every record boundary plus a point inside every record
+    private static List<Integer> cutPoints(byte[] log) {
+        List<Integer> cuts = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.wrap(log);
+        int offset = 0;
+        while (offset < log.length) {
+            cuts.add(offset);
+            int length = buffer.getInt(offset);
+            cuts.add(offset + 4 + length / 2);
+            offset += 8 + length;
+        }
+        return cuts;
+    }
+}